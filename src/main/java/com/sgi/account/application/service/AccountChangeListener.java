@@ -0,0 +1,18 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+
+/**
+ * Interface that defines a local cache of bank account data kept consistent with the changes made by
+ * every instance. Implementations are registered as beans and receive the changes in stream order.
+ */
+public interface AccountChangeListener {
+
+    void onAccountChanged(AccountChangedEvent event);
+
+    /**
+     * Called when changes may have been missed, so everything cached may be stale.
+     */
+    void onChangesLost();
+
+}
@@ -0,0 +1,17 @@
+package com.sgi.account.application.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Service interface to generate the numbers of new bank accounts.
+ */
+public interface AccountNumberGenerator {
+
+    /**
+     * Generates an account number that has not been handed out before.
+     *
+     * @return the account number.
+     */
+    Mono<String> next();
+
+}
@@ -0,0 +1,27 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.infrastructure.dto.BalanceResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface that defines the cached read model of the account balances.
+ */
+public interface BalanceCacheService {
+
+    Mono<BalanceResponse> getBalance(String accountId);
+
+    /**
+     * Stores the balance of an account just written, unless a newer version is already cached.
+     */
+    void update(BankAccount bankAccount);
+
+    /**
+     * Evicts the cached balance of the account when it is older than {@code version},
+     * or regardless of its version when {@code version} is null.
+     */
+    void evict(String accountId, Long version);
+
+    void evictAll();
+
+}
@@ -0,0 +1,14 @@
+package com.sgi.account.application.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface that defines the cached check of whether a client holds a credit card.
+ */
+public interface CreditEligibilityService {
+
+    Mono<Boolean> hasCreditCard(String clientId);
+
+    void creditCreated(String clientId, boolean creditCard);
+
+}
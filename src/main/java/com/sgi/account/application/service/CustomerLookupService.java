@@ -0,0 +1,15 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.infrastructure.dto.Customer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interface that defines the cached lookup of customers from the customer service.
+ */
+public interface CustomerLookupService {
+
+    Mono<Customer> getCustomer(String customerId);
+
+    void evict(String customerId);
+
+}
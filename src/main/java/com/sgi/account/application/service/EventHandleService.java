@@ -1,8 +1,20 @@
 package com.sgi.account.application.service;
 
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Interface that defines services to handle events related to bank accounts.
  */
 public interface EventHandleService {
-    void validateExistBankAccount(String bootcoinId, String accountId);
+
+    /**
+     * Validates whether the accounts exist and can back a wallet, with a single lookup of the accounts.
+     *
+     * @param accountIds ids of the accounts to validate.
+     * @return whether each of the given account ids is valid.
+     */
+    Mono<Map<String, Boolean>> validateExistBankAccounts(Collection<String> accountIds);
 }
@@ -0,0 +1,19 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+/**
+ * Interface that defines the transfer saga, which moves funds between two bank accounts step by step.
+ */
+public interface TransferSagaService {
+
+    Mono<TransactionResponse> transfer(BankAccount source, String destinationAccountId, BigDecimal amount);
+
+    Mono<TransferSaga> resume(TransferSaga transferSaga);
+
+}
@@ -12,4 +12,15 @@ public interface ValidationBankAccount {
     Mono<AccountRequest> savingsAccount(AccountRequest account, Customer customer);
     Mono<AccountRequest> checkingAccount(AccountRequest account, Customer customer);
     Mono<AccountRequest> fixedTermAccount(AccountRequest account, Customer customer);
+
+    /**
+     * Validates {@code account} by its type while {@code customer} is still being fetched: the external facts
+     * the type may need are looked up speculatively, and the ones the customer turns out not to need are cancelled.
+     */
+    Mono<AccountRequest> validate(AccountRequest account, Mono<Customer> customer);
+
+    /**
+     * Whether the customer can hold only one account of the type of {@code account}.
+     */
+    boolean isOnePerClient(AccountRequest account, Customer customer);
 }
@@ -0,0 +1,111 @@
+package com.sgi.account.application.service.impl;
+
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The account validation rules compiled into one decision per customer type, profile and account type.
+ * Rules are evaluated once, when the table is compiled, so validating an account is a lookup of its
+ * decision, which also holds the minimal set of external facts the account needs.
+ */
+public final class AccountDecisionTable {
+
+    /**
+     * What an account of a segment requires: the checks of its data, in order, the facts to look up,
+     * the checks of those facts, the defaults to apply once it is valid and whether it is one per client.
+     */
+    public record Decision(List<AccountRule.Check> checks,
+                           Set<AccountRule.Fact> facts,
+                           List<AccountRule.FactCheck> factChecks,
+                           List<Consumer<AccountRequest>> defaults,
+                           boolean onePerClient) {
+    }
+
+    private record Key(Customer.TypeEnum customerType, Customer.ProfileEnum profile, AccountRequest.TypeEnum accountType) {
+    }
+
+    private final Map<Key, Decision> decisions;
+    private final Map<AccountRequest.TypeEnum, Set<AccountRule.Fact>> possibleFacts;
+
+    private AccountDecisionTable(Map<Key, Decision> decisions) {
+        this.decisions = decisions;
+        Map<AccountRequest.TypeEnum, Set<AccountRule.Fact>> possibleFacts = new EnumMap<>(AccountRequest.TypeEnum.class);
+        decisions.forEach((key, decision) -> possibleFacts
+                .computeIfAbsent(key.accountType(), accountType -> EnumSet.noneOf(AccountRule.Fact.class))
+                .addAll(decision.facts()));
+        this.possibleFacts = possibleFacts;
+    }
+
+    /**
+     * Compiles the decision of every account type, customer type and profile, including unknown ones, from the rules.
+     */
+    public static AccountDecisionTable compile(List<AccountRule> rules) {
+        Map<Key, Decision> decisions = new HashMap<>();
+        for (AccountRequest.TypeEnum accountType : AccountRequest.TypeEnum.values()) {
+            for (Customer.TypeEnum customerType : withNull(Customer.TypeEnum.values())) {
+                for (Customer.ProfileEnum profile : withNull(Customer.ProfileEnum.values())) {
+                    decisions.put(new Key(customerType, profile, accountType),
+                            decide(rules, accountType, new AccountRule.Segment(customerType, profile)));
+                }
+            }
+        }
+        return new AccountDecisionTable(Map.copyOf(decisions));
+    }
+
+    public Decision decide(Customer customer, AccountRequest.TypeEnum accountType) {
+        return decisions.get(new Key(customer.getType(), customer.getProfile(), accountType));
+    }
+
+    /**
+     * @return the facts the decision of some customer needs for {@code accountType}, i.e. the facts worth
+     *         looking up before the customer is known.
+     */
+    public Set<AccountRule.Fact> possibleFacts(AccountRequest.TypeEnum accountType) {
+        return Collections.unmodifiableSet(possibleFacts.get(accountType));
+    }
+
+    private static Decision decide(List<AccountRule> rules, AccountRequest.TypeEnum accountType, AccountRule.Segment segment) {
+        List<AccountRule.Check> checks = new ArrayList<>();
+        Set<AccountRule.Fact> facts = EnumSet.noneOf(AccountRule.Fact.class);
+        List<AccountRule.FactCheck> factChecks = new ArrayList<>();
+        List<Consumer<AccountRequest>> defaults = new ArrayList<>();
+        boolean onePerClient = false;
+        for (AccountRule rule : rules) {
+            if (!rule.matches(accountType, segment)) {
+                continue;
+            }
+            if (rule.getCheck() != null) {
+                checks.add(rule.getCheck());
+            }
+            if (rule.getFactCheck() != null) {
+                facts.add(rule.getFactCheck().fact());
+                factChecks.add(rule.getFactCheck());
+            }
+            if (rule.getDefaults() != null) {
+                defaults.add(rule.getDefaults());
+            }
+            onePerClient |= rule.isOnePerClient();
+            if (rule.isLast()) {
+                break;
+            }
+        }
+        return new Decision(List.copyOf(checks), Collections.unmodifiableSet(facts), List.copyOf(factChecks),
+                List.copyOf(defaults), onePerClient);
+    }
+
+    private static <E> List<E> withNull(E[] values) {
+        return Stream.concat(Arrays.stream(values), Stream.of((E) null)).toList();
+    }
+}
@@ -0,0 +1,301 @@
+package com.sgi.account.application.service.impl;
+
+import com.sgi.account.application.service.AccountNumberGenerator;
+import com.sgi.account.application.service.CustomerLookupService;
+import com.sgi.account.application.service.ValidationBankAccount;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.OnboardingResult;
+import com.sgi.account.domain.ports.in.AccountOnboardingService;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import com.sgi.account.domain.ports.out.OnboardingResultRepository;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
+import com.sgi.account.infrastructure.dto.Customer;
+import com.sgi.account.infrastructure.exception.CustomException;
+import com.sgi.account.infrastructure.mapper.BankAccountMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.sgi.account.application.service.impl.BankAccountServiceImpl.MAX_ACCOUNT_NUMBER_ATTEMPTS;
+
+/**
+ * Service implementation of the bulk account onboarding.
+ * Rows are validated in parallel, with every customer looked up once per batch, and counted in the
+ * client product counters, which enforce the one-account-per-type rules also between the rows of the
+ * batch. The valid accounts are written in chunks with one unordered bulk insert each, and the count
+ * of every row that could not be inserted is taken back. The result of every row of a chunk is
+ * recorded under the batch id before it is emitted, so a batch that is interrupted can be submitted
+ * again and only the rows without a result are processed. An account created from a row has an id
+ * derived from the batch id and the row index, so a row whose account was stored but whose result was
+ * not is recognised by the duplicate id instead of creating a second account. When the batch fails or is
+ * cancelled, the count of every row whose chunk was not settled is taken back.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountOnboardingServiceImpl implements AccountOnboardingService {
+
+    @Value("${app.onboarding.concurrency:16}")
+    private int concurrency = 16;
+
+    @Value("${app.onboarding.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${app.onboarding.chunk-max-wait:100ms}")
+    private Duration chunkMaxWait = Duration.ofMillis(100);
+
+    private final BankAccountRepository bankAccountRepository;
+    private final OnboardingResultRepository onboardingResultRepository;
+    private final CustomerLookupService customerLookupService;
+    private final ValidationBankAccount validationBankAccount;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final ClientProductCounterRepository clientProductCounterRepository;
+
+    @Override
+    public Flux<BulkAccountResponse> createAccounts(String batchId, Flux<AccountRequest> accountRequests) {
+        if (batchId == null || batchId.isBlank()) {
+            return Flux.error(new CustomException(CustomError.E_INVALID_QUERY));
+        }
+        Map<String, Mono<Customer>> customers = new ConcurrentHashMap<>();
+        Set<Row> unsettled = ConcurrentHashMap.newKeySet();
+        return onboardingResultRepository.findIndexesByBatchId(batchId)
+                .collect(Collectors.toSet())
+                .flatMapMany(recorded -> accountRequests
+                        .index()
+                        .filter(indexed -> !recorded.contains(indexed.getT1()))
+                        .flatMap(indexed -> validate(batchId, indexed.getT1(), indexed.getT2(), customers)
+                                        .doOnNext(row -> {
+                                            if (row.isCounted()) {
+                                                unsettled.add(row);
+                                            }
+                                        }),
+                                concurrency)
+                        .bufferTimeout(chunkSize, chunkMaxWait, true)
+                        .concatMap(rows -> insert(rows, 1)
+                                .then(Mono.defer(() -> uncount(rows)))
+                                .doOnSuccess(settled -> rows.forEach(unsettled::remove))
+                                .thenMany(Flux.defer(() -> record(batchId, rows)))))
+                .doFinally(signal -> release(unsettled));
+    }
+
+    @Override
+    public Flux<BulkAccountResponse> getResults(String batchId, Long after) {
+        return onboardingResultRepository.findByBatchId(batchId, after == null ? -1 : after)
+                .map(BankAccountMapper.INSTANCE::toBulkAccountResponse);
+    }
+
+    /**
+     * Validates a row with the same rules as a single account and counts it. When the count is rejected,
+     * the account may still be the one created from this row before the batch was interrupted.
+     */
+    private Mono<Row> validate(String batchId, long index, AccountRequest request,
+                               Map<String, Mono<Customer>> customers) {
+        if (request.getClientId() == null || request.getType() == null) {
+            return Mono.just(Row.failed(index, new CustomException(CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA)));
+        }
+        return customers.computeIfAbsent(request.getClientId(), clientId -> customerLookupService.getCustomer(clientId).cache())
+                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)))
+                .flatMap(customer -> validate(request, customer)
+                        .flatMap(validAccount -> clientProductCounterRepository.increment(validAccount.getClientId(),
+                                        validAccount.getType().name(),
+                                        validationBankAccount.isOnePerClient(validAccount, customer) ? 1 : null)
+                                .flatMap(counted -> {
+                                    BankAccount bankAccount = BankAccountServiceImpl.toNewAccount(validAccount);
+                                    bankAccount.setId(accountId(batchId, index));
+                                    bankAccount.setVersion(0L);
+                                    if (counted) {
+                                        return Mono.just(new Row(index, bankAccount));
+                                    }
+                                    return bankAccountRepository.findById(bankAccount.getId())
+                                            .map(existing -> Row.created(index, existing))
+                                            .switchIfEmpty(Mono.error(
+                                                    new CustomException(CustomError.E_MAX_SAVINGS_ACCOUNTS_REACHED)));
+                                })))
+                .onErrorResume(ex -> Mono.just(Row.failed(index, ex instanceof CustomException customException
+                        ? customException
+                        : new CustomException(CustomError.E_OPERATION_FAILED))));
+    }
+
+    private Mono<AccountRequest> validate(AccountRequest account, Customer customer) {
+        return switch (account.getType()) {
+            case SAVINGS -> validationBankAccount.savingsAccount(account, customer);
+            case CHECKING -> validationBankAccount.checkingAccount(account, customer);
+            case FIXED_TERM -> validationBankAccount.fixedTermAccount(account, customer);
+        };
+    }
+
+    /**
+     * Inserts the pending accounts of the chunk with one bulk write, numbering the ones without a number.
+     * Accounts whose number was already taken are numbered again and inserted in a new round.
+     */
+    private Mono<Void> insert(List<Row> rows, int attempt) {
+        List<Row> pending = rows.stream().filter(Row::isPending).toList();
+        if (pending.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(pending)
+                .filter(row -> row.getAccount().getAccountNumber() == null)
+                .concatMap(row -> accountNumberGenerator.next()
+                        .doOnNext(accountNumber -> row.getAccount().setAccountNumber(accountNumber)))
+                .then(Mono.defer(() -> {
+                    pending.forEach(row -> row.setAttempted(true));
+                    return bankAccountRepository.insertAll(pending.stream().map(Row::getAccount).toList());
+                }))
+                .flatMap(errors -> Flux.range(0, pending.size())
+                        .concatMap(position -> resolve(pending.get(position), errors.get(position), attempt))
+                        .then())
+                .then(Mono.defer(() -> insert(rows, attempt + 1)));
+    }
+
+    private Mono<Void> resolve(Row row, DataAccessException error, int attempt) {
+        if (error == null) {
+            row.setCreated(true);
+            row.setInserted(true);
+            return Mono.empty();
+        }
+        if (!(error instanceof DuplicateKeyException)) {
+            log.warn("Failed to insert the onboarded account {}: {}", row.getAccount().getId(), error.getMessage());
+            row.setError(new CustomException(CustomError.E_OPERATION_FAILED));
+            return Mono.empty();
+        }
+        return bankAccountRepository.findById(row.getAccount().getId())
+                .doOnNext(existing -> {
+                    // the account was counted when it was created, before the batch was interrupted,
+                    // so the count of this run, if any, is taken back
+                    row.setAccount(existing);
+                    row.setCreated(true);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    if (attempt >= MAX_ACCOUNT_NUMBER_ATTEMPTS) {
+                        row.setError(new CustomException(CustomError.E_DUPLICATE_ACCOUNT_NUMBER));
+                    } else {
+                        row.getAccount().setAccountNumber(null);
+                    }
+                }))
+                .then();
+    }
+
+    /**
+     * Takes back the count of the rows counted by this run whose account was not inserted by it.
+     */
+    private Mono<Void> uncount(List<Row> rows) {
+        return Flux.fromIterable(rows)
+                .filter(row -> row.isCounted() && !row.isInserted())
+                .concatMap(row -> clientProductCounterRepository.decrement(row.getAccount().getClientId(),
+                        row.getAccount().getType()))
+                .then();
+    }
+
+    /**
+     * Takes back the count of the rows left unsettled when the batch fails or is cancelled. A row whose
+     * insert was attempted keeps its count if its account is stored, as a resubmitted batch will find it.
+     */
+    private void release(Set<Row> unsettled) {
+        if (unsettled.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(List.copyOf(unsettled))
+                .concatMap(row -> (row.isAttempted()
+                        ? bankAccountRepository.existsById(row.getAccount().getId()).map(stored -> !stored)
+                        : Mono.just(true))
+                        .filter(Boolean::booleanValue)
+                        .flatMap(notStored -> clientProductCounterRepository.decrement(row.getAccount().getClientId(),
+                                row.getAccount().getType()))
+                        .onErrorResume(ex -> {
+                            log.error("Failed to take back the count of the onboarded account {}",
+                                    row.getAccount().getId(), ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    private Flux<BulkAccountResponse> record(String batchId, List<Row> rows) {
+        List<OnboardingResult> results = rows.stream()
+                .map(row -> toResult(batchId, row))
+                .toList();
+        return onboardingResultRepository.saveAll(results)
+                .thenMany(Flux.fromIterable(results))
+                .map(BankAccountMapper.INSTANCE::toBulkAccountResponse);
+    }
+
+    private static OnboardingResult toResult(String batchId, Row row) {
+        OnboardingResult.OnboardingResultBuilder result = OnboardingResult.builder()
+                .id(OnboardingResult.id(batchId, row.getIndex()))
+                .batchId(batchId)
+                .index(row.getIndex())
+                .createdDate(Instant.now());
+        if (row.getError() != null) {
+            return result.status(OnboardingResult.Status.FAILED)
+                    .errorCode(row.getError().getCode())
+                    .errorMessage(row.getError().getMessage())
+                    .build();
+        }
+        return result.status(OnboardingResult.Status.CREATED)
+                .accountId(row.getAccount().getId())
+                .accountNumber(row.getAccount().getAccountNumber())
+                .build();
+    }
+
+    static String accountId(String batchId, long index) {
+        return UUID.nameUUIDFromBytes(OnboardingResult.id(batchId, index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * A row of the batch on its way to the database: an account to insert, an inserted account or an error.
+     */
+    @Getter
+    @Setter
+    private static final class Row {
+
+        private final long index;
+        private BankAccount account;
+        private CustomException error;
+        private boolean created;
+        private boolean inserted;
+        private boolean attempted;
+        private boolean counted;
+
+        private Row(long index, BankAccount account) {
+            this.index = index;
+            this.account = account;
+            this.counted = account != null;
+        }
+
+        private static Row created(long index, BankAccount account) {
+            Row row = new Row(index, account);
+            row.setCreated(true);
+            row.setCounted(false);
+            return row;
+        }
+
+        private static Row failed(long index, CustomException error) {
+            Row row = new Row(index, null);
+            row.setError(error);
+            return row;
+        }
+
+        private boolean isPending() {
+            return error == null && !created;
+        }
+    }
+}
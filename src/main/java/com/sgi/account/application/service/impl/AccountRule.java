@@ -0,0 +1,99 @@
+package com.sgi.account.application.service.impl;
+
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.Customer;
+import lombok.Getter;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A row of the account validation rules: for an account type and the customer segments it matches,
+ * the account data it requires, the external fact it requires, the defaults it applies and whether the
+ * customer can hold only one account of the type. Rules are read in order by {@link AccountDecisionTable};
+ * a rejection or a rule marked as last ends the evaluation of a segment.
+ */
+@Getter
+public final class AccountRule {
+
+    /**
+     * External facts a rule can require; they are looked up only for the segments that need them.
+     */
+    public enum Fact {
+        CREDIT_CARD
+    }
+
+    /**
+     * The columns of the decision table a rule is matched on.
+     */
+    public record Segment(Customer.TypeEnum customerType, Customer.ProfileEnum profile) {
+    }
+
+    /**
+     * A check of the account request, failing with {@code error}.
+     */
+    public record Check(Predicate<AccountRequest> test, CustomError error) {
+    }
+
+    /**
+     * A fact about the client that must hold, or the request fails with {@code error}.
+     */
+    public record FactCheck(Fact fact, CustomError error) {
+    }
+
+    private final AccountRequest.TypeEnum accountType;
+    private final Predicate<Segment> segment;
+    private Check check;
+    private FactCheck factCheck;
+    private Consumer<AccountRequest> defaults;
+    private boolean onePerClient;
+    private boolean last;
+
+    private AccountRule(AccountRequest.TypeEnum accountType, Predicate<Segment> segment) {
+        this.accountType = accountType;
+        this.segment = segment;
+    }
+
+    public static AccountRule of(AccountRequest.TypeEnum accountType, Predicate<Segment> segment) {
+        return new AccountRule(accountType, segment);
+    }
+
+    /**
+     * Rejects the matching requests with {@code error}; no later rule applies.
+     */
+    public AccountRule reject(CustomError error) {
+        this.check = new Check(account -> false, error);
+        this.last = true;
+        return this;
+    }
+
+    public AccountRule require(Predicate<AccountRequest> test, CustomError error) {
+        this.check = new Check(test, error);
+        return this;
+    }
+
+    public AccountRule requireFact(Fact fact, CustomError error) {
+        this.factCheck = new FactCheck(fact, error);
+        return this;
+    }
+
+    public AccountRule apply(Consumer<AccountRequest> defaults) {
+        this.defaults = defaults;
+        return this;
+    }
+
+    public AccountRule onePerClient() {
+        this.onePerClient = true;
+        return this;
+    }
+
+    public AccountRule last() {
+        this.last = true;
+        return this;
+    }
+
+    boolean matches(AccountRequest.TypeEnum accountType, Segment segment) {
+        return this.accountType == accountType && this.segment.test(segment);
+    }
+}
@@ -0,0 +1,88 @@
+package com.sgi.account.application.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sgi.account.application.service.AccountChangeListener;
+import com.sgi.account.application.service.BalanceCacheService;
+import com.sgi.account.domain.model.BalanceView;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.infrastructure.dto.BalanceResponse;
+import com.sgi.account.infrastructure.mapper.BankAccountMapper;
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service implementation of the balance read model.
+ * Balances are written through by every balance mutation of this node and invalidated by the changes
+ * made on other nodes, as published by the account change bus. A miss reads only the balance fields of the account, and concurrent misses for
+ * the same account share that read. Entries are compared by document version, so a late write or a late
+ * invalidation never replaces a newer balance.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceCacheServiceImpl implements BalanceCacheService, AccountChangeListener {
+
+    private final AsyncCache<String, BalanceView> balanceCache;
+    private final BankAccountRepository bankAccountRepository;
+
+    @Override
+    public Mono<BalanceResponse> getBalance(String accountId) {
+        // a cancelled subscriber must not cancel the read shared with the other subscribers
+        return Mono.fromFuture(() -> balanceCache.get(accountId, (id, executor) -> bankAccountRepository.findBalanceById(id)
+                        .map(BankAccountMapper.INSTANCE::toBalanceView)
+                        .toFuture()), true)
+                .map(BankAccountMapper.INSTANCE::toBalance);
+    }
+
+    @Override
+    public void update(BankAccount bankAccount) {
+        BalanceView balance = BankAccountMapper.INSTANCE.toBalanceView(bankAccount);
+        balanceCache.asMap().compute(balance.getAccountId(), (id, cached) -> isOlderThan(cached, balance.getVersion())
+                ? CompletableFuture.completedFuture(balance)
+                : cached);
+    }
+
+    @Override
+    public void evict(String accountId, Long version) {
+        balanceCache.asMap().computeIfPresent(accountId, (id, cached) -> {
+            if (version == null || isOlderThan(cached, version)) {
+                log.debug("Evicting balance of account {} from the cache", id);
+                return null;
+            }
+            return cached;
+        });
+    }
+
+    @Override
+    public void evictAll() {
+        balanceCache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void onAccountChanged(AccountChangedEvent event) {
+        evict(event.getAccountId(), event.getVersion());
+    }
+
+    @Override
+    public void onChangesLost() {
+        evictAll();
+    }
+
+    /**
+     * Whether the cached entry may be older than {@code version}. A read still in flight may have
+     * started before the change, so it is always considered older.
+     */
+    private static boolean isOlderThan(CompletableFuture<BalanceView> cached, Long version) {
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return true;
+        }
+        BalanceView balance = cached.join();
+        return balance == null || balance.getVersion() == null || version == null || balance.getVersion() < version;
+    }
+}
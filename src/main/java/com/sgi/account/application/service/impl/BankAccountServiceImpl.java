@@ -1,13 +1,18 @@
 package com.sgi.account.application.service.impl;
 
+import com.sgi.account.application.service.AccountNumberGenerator;
+import com.sgi.account.application.service.BalanceCacheService;
+import com.sgi.account.application.service.CustomerLookupService;
 import com.sgi.account.application.service.ValidationBankAccount;
+import com.sgi.account.domain.model.AccountQuery;
 import com.sgi.account.domain.model.Balance;
 import com.sgi.account.domain.model.BankAccount;
 import com.sgi.account.domain.ports.in.BankAccountService;
 import com.sgi.account.domain.ports.out.BankAccountRepository;
-import com.sgi.account.domain.ports.out.FeignExternalService;
-import com.sgi.account.domain.shared.Constants;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
 import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.dto.AccountExistsBatchRequest;
+import com.sgi.account.infrastructure.dto.AccountExistsResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
 import com.sgi.account.infrastructure.dto.AccountBalanceResponse;
@@ -19,12 +24,18 @@ import com.sgi.account.infrastructure.dto.Customer;
 import com.sgi.account.infrastructure.exception.CustomException;
 import com.sgi.account.infrastructure.mapper.BankAccountMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 import static com.sgi.account.domain.shared.Constants.COMPLETED;
 
@@ -35,61 +46,105 @@ import static com.sgi.account.domain.shared.Constants.COMPLETED;
 @RequiredArgsConstructor
 public class BankAccountServiceImpl implements BankAccountService {
 
-    @Value("${feign.client.config.customer-service.url}")
-    private String customerServiceUrl;
+    public static final int MAX_EXISTS_BATCH = 1000;
+    public static final int MAX_ACCOUNT_NUMBER_ATTEMPTS = 3;
 
     private final BankAccountRepository bankAccountRepository;
-    private final FeignExternalService webClient;
+    private final CustomerLookupService customerLookupService;
     private final ValidationBankAccount validateSavingsAccount;
+    private final BalanceCacheService balanceCacheService;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final ClientProductCounterRepository clientProductCounterRepository;
 
+    /**
+     * Fetches the customer and validates the account at the same time, so the external facts the validation
+     * may need are looked up while the customer is still on its way. The customer is fetched once and shared.
+     */
     @Override
     public Mono<AccountResponse> createAccount(Mono<AccountRequest> accountRequest) {
-        return accountRequest.flatMap(account ->
-                webClient.getMono(
-                                customerServiceUrl.concat("/v1/customers/{customerId}"),
-                                account.getClientId(),
-                                Customer.class
-                        )
-                        .flatMap(customerResponse ->
-                                validateBankAccount(account, customerResponse)
-                                        .flatMap(validAccount -> {
-                                            BankAccount bankAccount = BankAccountMapper.INSTANCE.toAccount(validAccount);
-                                            bankAccount.setAccountBalance(new Balance(
-                                                    validAccount.getBalance() == null ? BigDecimal.ZERO
-                                                            : validAccount.getBalance(),
-                                                    validAccount.getCurrency()
-                                            ));
-                                            bankAccount.setAccountNumber(Constants.generateAccountNumber());
-                                            bankAccount.setCreatedDate(Instant.now());
-                                            bankAccount.setUpdatedDate(Instant.now());
-                                            bankAccount.setMovementsUsed(BigDecimal.ZERO.intValue());
-                                            return bankAccountRepository.save(bankAccount);
-                                        })
-                                        .onErrorResume(e -> Mono.error(new Exception("Invalid account data", e)))
-                        )
-                        .onErrorResume(e -> Mono.error(new Exception("Failed to fetch customer", e)))
-        );
-    }
-
-    private Mono<AccountRequest> validateBankAccount(AccountRequest account, Customer customer) {
-        return Mono.just(account)
-                .flatMap(acc -> switch (acc.getType()) {
-                    case SAVINGS -> validateSavingsAccount.savingsAccount(acc, customer);
-                    case CHECKING -> validateSavingsAccount.checkingAccount(acc, customer);
-                    case FIXED_TERM -> validateSavingsAccount.fixedTermAccount(acc, customer);
-                });
+        return accountRequest.flatMap(account -> {
+            AtomicReference<Throwable> customerFailure = new AtomicReference<>();
+            Mono<Customer> customer = customerLookupService.getCustomer(account.getClientId())
+                    .doOnError(customerFailure::set)
+                    .cache();
+            return validateSavingsAccount.validate(account, customer)
+                    .flatMap(validAccount -> customer.flatMap(customerResponse -> saveCounted(validAccount, customerResponse)))
+                    .onErrorMap(e -> e != customerFailure.get(), e -> new Exception("Invalid account data", e))
+                    .onErrorMap(e -> new Exception("Failed to fetch customer", e));
+        });
     }
 
+    /**
+     * Counts the account in the client product counters and saves it, taking the count back if the save fails.
+     * For the types limited to one account per client the count is conditional, so of two concurrent
+     * creations only one can succeed.
+     */
+    private Mono<AccountResponse> saveCounted(AccountRequest validAccount, Customer customer) {
+        String type = validAccount.getType().name();
+        return clientProductCounterRepository.increment(validAccount.getClientId(), type,
+                        validateSavingsAccount.isOnePerClient(validAccount, customer) ? 1 : null)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_MAX_SAVINGS_ACCOUNTS_REACHED)))
+                .flatMap(counted -> saveWithAccountNumber(toNewAccount(validAccount))
+                        .onErrorResume(ex -> clientProductCounterRepository.decrement(validAccount.getClientId(), type)
+                                .then(Mono.error(ex))));
+    }
+
+    static BankAccount toNewAccount(AccountRequest validAccount) {
+        BankAccount bankAccount = BankAccountMapper.INSTANCE.toAccount(validAccount);
+        bankAccount.setAccountBalance(new Balance(
+                validAccount.getBalance() == null ? BigDecimal.ZERO
+                        : validAccount.getBalance(),
+                validAccount.getCurrency()
+        ));
+        bankAccount.setCreatedDate(Instant.now());
+        bankAccount.setUpdatedDate(Instant.now());
+        bankAccount.setMovementsUsed(BigDecimal.ZERO.intValue());
+        return bankAccount;
+    }
+
+    /**
+     * Saves a new account with a generated number. The unique index on the account number is the final
+     * guarantee; if a number is already taken, e.g. by an account numbered before the sequence existed,
+     * a new number is generated.
+     */
+    private Mono<AccountResponse> saveWithAccountNumber(BankAccount bankAccount) {
+        return Mono.defer(() -> accountNumberGenerator.next()
+                        .flatMap(accountNumber -> {
+                            bankAccount.setAccountNumber(accountNumber);
+                            return bankAccountRepository.save(bankAccount);
+                        }))
+                .retryWhen(Retry.max(MAX_ACCOUNT_NUMBER_ATTEMPTS - 1)
+                        .filter(DuplicateKeyException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> new CustomException(CustomError.E_DUPLICATE_ACCOUNT_NUMBER)));
+    }
+
+    /**
+     * Deletes the account unless postings of its outbox are still to be delivered or a transfer is using it,
+     * in which case the delete is refused and can be retried once they are settled.
+     */
     @Override
     public Mono<Void> deleteAccount(String id) {
          return bankAccountRepository.findById(id)
                 .switchIfEmpty(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND)))
-                .flatMap(bankAccountRepository::delete);
+                .flatMap(account -> bankAccountRepository.deleteIfSettled(id)
+                        .filter(Boolean::booleanValue)
+                        .switchIfEmpty(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_SETTLED)))
+                        .then(clientProductCounterRepository.decrement(account.getClientId(), account.getType())))
+                .doOnSuccess(deleted -> balanceCacheService.evict(id, null));
     }
 
+    /**
+     * Reads one page of accounts; a query without a limit reads a page of the default size. The caller's
+     * query is left unchanged.
+     */
     @Override
-    public Flux<AccountResponse> getAllAccounts(String clientId, String type, String accountId) {
-        return bankAccountRepository.findAll(clientId, type, accountId);
+    public Flux<AccountResponse> getAllAccounts(AccountQuery accountQuery) {
+        int limit = accountQuery.getLimit() != null ? accountQuery.getLimit() : AccountQuery.DEFAULT_LIMIT;
+        if (limit < 1 || limit > AccountQuery.MAX_LIMIT) {
+            return Flux.error(new CustomException(CustomError.E_INVALID_QUERY));
+        }
+        return bankAccountRepository.findAll(accountQuery.toBuilder().limit(limit).build());
     }
 
     @Override
@@ -99,61 +154,117 @@ public class BankAccountServiceImpl implements BankAccountService {
                 .map(BankAccountMapper.INSTANCE::toAccountResponse);
     }
 
+    /**
+     * Resolves the existence of the accounts with a single lookup of their ids and types.
+     */
+    @Override
+    public Flux<AccountExistsResponse> existAccounts(Mono<AccountExistsBatchRequest> existsRequest) {
+        return existsRequest.flatMapMany(request -> {
+            List<String> accountIds = request.getAccountIds() == null ? List.of()
+                    : request.getAccountIds().stream().distinct().toList();
+            if (accountIds.isEmpty() || accountIds.size() > MAX_EXISTS_BATCH) {
+                return Flux.error(new CustomException(CustomError.E_INVALID_QUERY));
+            }
+            return bankAccountRepository.findTypesById(accountIds)
+                    .collectMap(BankAccount::getId, BankAccount::getType)
+                    .flatMapIterable(types -> accountIds.stream()
+                            .map(accountId -> toExistsResponse(accountId, types))
+                            .toList());
+        });
+    }
+
+    private static AccountExistsResponse toExistsResponse(String accountId, Map<String, String> types) {
+        AccountExistsResponse response = new AccountExistsResponse();
+        response.setAccountId(accountId);
+        response.setExists(types.containsKey(accountId));
+        if (types.get(accountId) != null) {
+            response.setType(AccountExistsResponse.TypeEnum.fromValue(types.get(accountId)));
+        }
+        return response;
+    }
+
+    /**
+     * Replaces the account data with the request. The number, balance, movements used and creation date,
+     * which the request does not carry, and the outbox and transfer bookkeeping are kept from the stored account.
+     */
     @Override
     public Mono<AccountResponse> updateAccount(String id, Mono<AccountRequest> bankAccount) {
-        return bankAccountRepository.findById(id)
+        AtomicReference<BankAccount> previous = new AtomicReference<>();
+        return bankAccount.flatMap(updatedAccount -> bankAccountRepository.update(id, account -> {
+                    previous.set(account);
+                    BankAccount updatedEntity = BankAccountMapper.INSTANCE.toAccount(updatedAccount);
+                    updatedEntity.setId(account.getId());
+                    updatedEntity.setVersion(account.getVersion());
+                    updatedEntity.setAccountNumber(account.getAccountNumber());
+                    updatedEntity.setAccountBalance(account.getAccountBalance());
+                    updatedEntity.setMovementsUsed(account.getMovementsUsed());
+                    updatedEntity.setCreatedDate(account.getCreatedDate());
+                    updatedEntity.setPendingTransactions(account.getPendingTransactions());
+                    updatedEntity.setOutboxLeaseUntil(account.getOutboxLeaseUntil());
+                    updatedEntity.setPendingTransfers(account.getPendingTransfers());
+                    updatedEntity.setUpdatedDate(Instant.now());
+                    return updatedEntity;
+                }))
+                .flatMap(updated -> moveCount(previous.get(), updated).thenReturn(updated))
+                .doOnNext(balanceCacheService::update)
                 .switchIfEmpty(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND)))
-                .flatMap(account ->
-                        bankAccount.map(updatedAccount -> {
-                            BankAccount updatedEntity = BankAccountMapper.INSTANCE.toAccount(updatedAccount);
-                            updatedEntity.setId(account.getId());
-                            updatedEntity.setUpdatedDate(Instant.now());
-                            return updatedEntity;
-                        })
-                ).flatMap(bankAccountRepository::save);
+                .map(BankAccountMapper.INSTANCE::toAccountResponse);
+    }
+
+    /**
+     * Moves the account in the client product counters when an update changed its client or type.
+     */
+    private Mono<Void> moveCount(BankAccount previous, BankAccount updated) {
+        if (previous == null || (Objects.equals(previous.getClientId(), updated.getClientId())
+                && Objects.equals(previous.getType(), updated.getType()))) {
+            return Mono.empty();
+        }
+        return clientProductCounterRepository.increment(updated.getClientId(), updated.getType(), null)
+                .then(clientProductCounterRepository.decrement(previous.getClientId(), previous.getType()));
     }
 
     @Override
     public Mono<BalanceResponse> getClientBalances(String idAccount) {
-        return bankAccountRepository.findById(idAccount)
-                .map(BankAccountMapper.INSTANCE::toBalance);
+        return balanceCacheService.getBalance(idAccount);
     }
 
     @Override
     public Mono<AccountBalanceResponse> updatedBalanceByAccountId(String action, Mono<BalanceRequest> balanceRequestMono) {
-        return balanceRequestMono.flatMap(balanceRequest ->
-                bankAccountRepository.findById(balanceRequest.getAccountId())
-                        .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
-                        .flatMap(bankAccount -> processBalanceUpdate(action, balanceRequest, bankAccount))
-        );
+        return balanceRequestMono.flatMap(balanceRequest -> processBalanceUpdate(action, balanceRequest)
+                .flatMap(mutation -> updateBalance(balanceRequest.getAccountId(), mutation)));
     }
 
-    private Mono<AccountBalanceResponse> processBalanceUpdate(String action, BalanceRequest balanceRequest, BankAccount bankAccount) {
+    private Mono<UnaryOperator<BankAccount>> processBalanceUpdate(String action, BalanceRequest balanceRequest) {
         return switch (action) {
-            case "deduct" -> processDeduction(balanceRequest, bankAccount);
-            case "add" -> processAddition(balanceRequest, bankAccount);
+            case "deduct" -> Mono.just(processDeduction(balanceRequest.getAmount()));
+            case "add" -> Mono.just(account -> addToBalance(account, balanceRequest.getAmount()));
             default -> Mono.error(new CustomException(CustomError.E_INVALID_ACTION));
         };
     }
 
-    private Mono<AccountBalanceResponse> processDeduction(BalanceRequest balanceRequest, BankAccount bankAccount) {
-        return Mono.just(bankAccount)
-                .filter(account -> account.getAccountBalance().getBalance().compareTo(balanceRequest.getAmount()) >= 0)
-                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE)))
-                .flatMap(account -> updateBalance(account, balanceRequest.getAmount().negate()));
-    }
-
-    private Mono<AccountBalanceResponse> processAddition(BalanceRequest balanceRequest, BankAccount bankAccount) {
-        return updateBalance(bankAccount, balanceRequest.getAmount());
+    private UnaryOperator<BankAccount> processDeduction(BigDecimal amount) {
+        return account -> {
+            if (account.getAccountBalance().getBalance().compareTo(amount) < 0) {
+                throw new CustomException(CustomError.E_INSUFFICIENT_BALANCE);
+            }
+            return addToBalance(account, amount.negate());
+        };
     }
 
-    private Mono<AccountBalanceResponse> updateBalance(BankAccount bankAccount, BigDecimal amount) {
+    private BankAccount addToBalance(BankAccount bankAccount, BigDecimal amount) {
         bankAccount.setAccountBalance(Balance.builder()
                 .balance(bankAccount.getAccountBalance().getBalance().add(amount))
                 .currency(bankAccount.getAccountBalance().getCurrency())
                 .build());
-        return bankAccountRepository.save(bankAccount)
-                .map(element -> BankAccountMapper.INSTANCE.toAccountBalance(element, COMPLETED));
+        return bankAccount;
+    }
+
+    private Mono<AccountBalanceResponse> updateBalance(String accountId, UnaryOperator<BankAccount> mutation) {
+        return bankAccountRepository.update(accountId, mutation)
+                .doOnNext(balanceCacheService::update)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
+                .map(element -> BankAccountMapper.INSTANCE.toAccountBalance(
+                        BankAccountMapper.INSTANCE.toAccountResponse(element), COMPLETED));
     }
 
 }
@@ -0,0 +1,45 @@
+package com.sgi.account.application.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sgi.account.application.service.CreditEligibilityService;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.infrastructure.dto.Credit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service implementation of the credit card check.
+ * The credit service is asked for the client cards, but only the first one is read; the answer, positive
+ * or negative, is cached by client id, and kept up to date by the credit-created events.
+ */
+@Service
+@RequiredArgsConstructor
+public class CreditEligibilityServiceImpl implements CreditEligibilityService {
+
+    @Value("${feign.client.config.credit-service.url}")
+    private String creditServiceUrl;
+
+    private final AsyncCache<String, Boolean> creditCardCache;
+    private final FeignExternalService webClient;
+
+    @Override
+    public Mono<Boolean> hasCreditCard(String clientId) {
+        return Mono.fromFuture(() -> creditCardCache.get(clientId, (id, executor) -> webClient.getFlux(
+                        creditServiceUrl.concat("/v1/credits/{clientId}/card"), id, Credit.class)
+                .hasElements()
+                .toFuture()), true);
+    }
+
+    @Override
+    public void creditCreated(String clientId, boolean creditCard) {
+        if (creditCard) {
+            creditCardCache.put(clientId, CompletableFuture.completedFuture(true));
+        } else {
+            creditCardCache.synchronous().invalidate(clientId);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.sgi.account.application.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sgi.account.application.service.CustomerLookupService;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.infrastructure.dto.Customer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service implementation of the customer lookup.
+ * Customers are kept in an asynchronous cache holding the in-flight call, so concurrent lookups for the
+ * same customer share a single request to the customer service. Failed or empty lookups are not cached.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CustomerLookupServiceImpl implements CustomerLookupService {
+
+    @Value("${feign.client.config.customer-service.url}")
+    private String customerServiceUrl;
+
+    private final AsyncCache<String, Customer> customerCache;
+    private final FeignExternalService webClient;
+
+    @Override
+    public Mono<Customer> getCustomer(String customerId) {
+        // a cancelled subscriber must not cancel the call shared with the other subscribers
+        return Mono.fromFuture(() -> customerCache.get(customerId, (id, executor) -> webClient.getMono(
+                        customerServiceUrl.concat("/v1/customers/{customerId}"), id, Customer.class)
+                .toFuture()), true);
+    }
+
+    @Override
+    public void evict(String customerId) {
+        log.debug("Evicting customer {} from the cache", customerId);
+        customerCache.synchronous().invalidate(customerId);
+    }
+}
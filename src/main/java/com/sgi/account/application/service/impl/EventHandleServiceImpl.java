@@ -1,47 +1,49 @@
 package com.sgi.account.application.service.impl;
 
 import com.sgi.account.application.service.EventHandleService;
-import com.sgi.account.domain.ports.in.BankAccountService;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
 import com.sgi.account.infrastructure.dto.AccountResponse;
-import com.sgi.account.infrastructure.subscriber.events.BankAccountExistEvent;
-import com.sgi.account.infrastructure.subscriber.message.EventSender;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * Service responsible for handling bank account validation and event sending.
+ * Service responsible for handling bank account validation events.
  */
 @Service
 @RequiredArgsConstructor
 public class EventHandleServiceImpl implements EventHandleService {
 
-    private final BankAccountService bankAccountService;
+    private static final Set<String> WALLET_ACCOUNT_TYPES = Set.of(AccountResponse.TypeEnum.CHECKING.getValue(),
+            AccountResponse.TypeEnum.SAVINGS.getValue());
 
-    private final EventSender kafkaTemplate;
+    private final BankAccountRepository bankAccountRepository;
 
     /**
-     * Validates whether the bank account exists and its type is valid (Checking or Savings).
-     * If the account is valid, sends a validation event to Kafka.
+     * Validates whether the bank accounts exist and their type is valid (Checking or Savings).
+     * Accounts that do not exist are not valid.
      *
-     * @param accountId The ID of the bank account to validate.
+     * @param accountIds The IDs of the bank accounts to validate.
      */
     @Override
-    public void validateExistBankAccount(String bootcoinId, String accountId) {
-            bankAccountService.getAccountById(accountId)
-                .flatMap(account -> {
-                    boolean isValid = account.getType().equals(AccountResponse.TypeEnum.CHECKING)
-                            || account.getType().equals(AccountResponse.TypeEnum.SAVINGS);
-                    kafkaTemplate.sendEvent(BankAccountExistEvent.TOPIC,
-                            BankAccountExistEvent.builder()
-                                    .accountId(accountId)
-                                    .bootcoinId(bootcoinId)
-                                    .exist(isValid)
-                                    .build());
-                    return Mono.empty();
-                })
-                .switchIfEmpty(Mono.defer(Mono::empty)).subscribe();
-
+    public Mono<Map<String, Boolean>> validateExistBankAccounts(Collection<String> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return bankAccountRepository.findTypesById(accountIds)
+                .filter(account -> WALLET_ACCOUNT_TYPES.contains(account.getType()))
+                .map(BankAccount::getId)
+                .collect(() -> {
+                    Map<String, Boolean> validity = new HashMap<>();
+                    accountIds.forEach(id -> validity.put(id, false));
+                    return validity;
+                }, (validity, id) -> validity.put(id, true));
     }
 
 }
@@ -0,0 +1,125 @@
+package com.sgi.account.application.service.impl;
+
+import com.sgi.account.application.service.AccountNumberGenerator;
+import com.sgi.account.domain.ports.out.SequenceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates account numbers from blocks of a Mongo sequence leased by this node.
+ * Numbers are taken from the current block with a single atomic increment; only when it is exhausted
+ * a new block is reserved, and concurrent callers share that reservation. Values of a block that is
+ * not used up before a restart are skipped, never reused.
+ * An account number is the prefix, the zero padded sequence value and a Luhn check digit.
+ */
+@Service
+@RequiredArgsConstructor
+public class SequenceAccountNumberGenerator implements AccountNumberGenerator {
+
+    static final String SEQUENCE = "accountNumber";
+    static final int SEQUENCE_DIGITS = 13;
+    private static final long MAX_VALUE = 9_999_999_999_999L;
+
+    @Value("${app.account-number.prefix:0001}")
+    private String prefix = "0001";
+
+    @Value("${app.account-number.block-size:1000}")
+    private int blockSize = 1000;
+
+    private final SequenceRepository sequenceRepository;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(1, 0));
+    private final AtomicReference<Mono<Block>> renewal = new AtomicReference<>();
+
+    @Override
+    public Mono<String> next() {
+        return Mono.defer(() -> {
+            Block current = block.get();
+            long value = current.take();
+            return value > 0 ? Mono.just(format(value)) : renew(current).then(next());
+        });
+    }
+
+    private Mono<Void> renew(Block exhausted) {
+        return Mono.defer(() -> {
+            if (block.get() != exhausted) {
+                return Mono.empty();
+            }
+            Mono<Block> reserved = Mono.defer(() -> sequenceRepository.reserve(SEQUENCE, blockSize))
+                    .map(first -> new Block(first, first + blockSize - 1))
+                    .doOnNext(fresh -> block.compareAndSet(exhausted, fresh))
+                    .cache();
+            Mono<Block> pending;
+            if (renewal.compareAndSet(null, reserved)) {
+                if (block.get() != exhausted) {
+                    renewal.compareAndSet(reserved, null);
+                    return Mono.empty();
+                }
+                pending = reserved;
+            } else {
+                pending = renewal.get();
+            }
+            if (pending == null) {
+                return renew(exhausted);
+            }
+            Mono<Block> waiting = pending;
+            return waiting.doFinally(signal -> renewal.compareAndSet(waiting, null)).then();
+        });
+    }
+
+    String format(long value) {
+        if (value > MAX_VALUE) {
+            throw new IllegalStateException("Account number sequence exhausted");
+        }
+        int length = prefix.length() + SEQUENCE_DIGITS;
+        char[] digits = new char[length + 1];
+        prefix.getChars(0, prefix.length(), digits, 0);
+        long remaining = value;
+        for (int i = length - 1; i >= prefix.length(); i--) {
+            digits[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        digits[length] = checkDigit(digits, length);
+        return new String(digits);
+    }
+
+    /**
+     * Luhn check digit of the first {@code length} digits.
+     */
+    static char checkDigit(char[] digits, int length) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = digits[i] - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+
+        private long take() {
+            long value = next.getAndIncrement();
+            return value <= end ? value : -1;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.sgi.account.application.service.impl;
 
-import com.sgi.account.domain.model.Balance;
+import com.sgi.account.application.service.BalanceCacheService;
+import com.sgi.account.application.service.TransferSagaService;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransactionHistoryQuery;
 import com.sgi.account.domain.ports.in.TransactionService;
 import com.sgi.account.domain.ports.out.BankAccountRepository;
 import com.sgi.account.domain.ports.out.FeignExternalService;
 import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.dto.BatchTransferRequest;
+import com.sgi.account.infrastructure.dto.BatchTransferResponse;
 import com.sgi.account.infrastructure.dto.DepositRequest;
 import com.sgi.account.infrastructure.dto.TransactionRequest;
 import com.sgi.account.infrastructure.dto.TransactionResponse;
@@ -16,12 +21,21 @@ import com.sgi.account.infrastructure.exception.CustomException;
 import com.sgi.account.infrastructure.mapper.TransactionExternalMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static com.sgi.account.infrastructure.dto.TransactionRequest.TypeEnum.DEPOSIT;
 import static com.sgi.account.infrastructure.dto.TransactionRequest.TypeEnum.WITHDRAWAL;
@@ -33,139 +47,217 @@ import static com.sgi.account.infrastructure.dto.TransactionRequest.TypeEnum.WIT
 @RequiredArgsConstructor
 public class TransactionServiceImpl implements TransactionService {
 
+    public static final int MAX_MOVEMENT_ATTEMPTS = 3;
+
     @Value("${feign.client.config.transaction-service.url}")
     private String transactionServiceUrl;
 
+    @Value("${app.transfer.batch.concurrency:16}")
+    private int batchConcurrency = 16;
+
     private final BankAccountRepository bankAccountRepository;
     private final FeignExternalService webClient;
+    private final TransferSagaService transferSagaService;
+    private final BalanceCacheService balanceCacheService;
 
+    /**
+     * Streams a page of the transaction history; the transactions are requested as NDJSON and emitted
+     * as they arrive, so the caller's demand is propagated to the transaction service.
+     */
     @Override
-    public Flux<TransactionResponse> getAccountIdTransactions(String idAccount) {
-        return bankAccountRepository.findById(idAccount)
-                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND)))
-                .flatMapMany(credit -> webClient.getFlux(
-                        transactionServiceUrl.concat("/v1/transactions/{productId}/card"),
-                        idAccount,
-                        TransactionResponse.class
-                ));
+    public Flux<TransactionResponse> getAccountIdTransactions(String idAccount, TransactionHistoryQuery query) {
+        if (!isValid(query)) {
+            return Flux.error(new CustomException(CustomError.E_INVALID_QUERY));
+        }
+        Map<String, Object> uriVariables = toUriVariables(idAccount, query);
+        return requireAccount(idAccount)
+                .flatMapMany(exists -> webClient.getFluxStream(toHistoryUrl(uriVariables), uriVariables,
+                        TransactionResponse.class));
+    }
+
+    /**
+     * Streams the transaction history as received from the transaction service, without deserializing it.
+     * The Mono resolves once the account is known to exist, so a missing account can still be answered with a 404.
+     */
+    @Override
+    public Mono<Flux<DataBuffer>> streamAccountIdTransactions(String idAccount, TransactionHistoryQuery query) {
+        if (!isValid(query)) {
+            return Mono.error(new CustomException(CustomError.E_INVALID_QUERY));
+        }
+        Map<String, Object> uriVariables = toUriVariables(idAccount, query);
+        return requireAccount(idAccount)
+                .map(exists -> webClient.getStream(toHistoryUrl(uriVariables), uriVariables));
+    }
+
+    private static boolean isValid(TransactionHistoryQuery query) {
+        int limit = limitOf(query);
+        return limit >= 1 && limit <= TransactionHistoryQuery.MAX_LIMIT
+                && (query.getFrom() == null || query.getTo() == null || query.getFrom().isBefore(query.getTo()));
+    }
+
+    private static int limitOf(TransactionHistoryQuery query) {
+        return query.getLimit() != null ? query.getLimit() : TransactionHistoryQuery.DEFAULT_LIMIT;
+    }
+
+    private static Map<String, Object> toUriVariables(String idAccount, TransactionHistoryQuery query) {
+        Map<String, Object> uriVariables = new LinkedHashMap<>();
+        uriVariables.put("productId", idAccount);
+        if (query.getFrom() != null) {
+            uriVariables.put("from", query.getFrom().toString());
+        }
+        if (query.getTo() != null) {
+            uriVariables.put("to", query.getTo().toString());
+        }
+        uriVariables.put("limit", limitOf(query));
+        if (query.getCursor() != null) {
+            uriVariables.put("cursor", query.getCursor());
+        }
+        return uriVariables;
+    }
+
+    private String toHistoryUrl(Map<String, Object> uriVariables) {
+        return uriVariables.keySet().stream()
+                .filter(name -> !"productId".equals(name))
+                .map(name -> name + "={" + name + "}")
+                .collect(Collectors.joining("&", transactionServiceUrl.concat("/v1/transactions/{productId}/card?"), ""));
+    }
+
+    private Mono<Boolean> requireAccount(String idAccount) {
+        return bankAccountRepository.existsById(idAccount)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND)));
     }
 
     @Override
     @Transactional
     public Mono<TransactionResponse> depositToAccount(String idAccount, Mono<DepositRequest> depositRequest) {
-        return bankAccountRepository.findById(idAccount)
-                .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
-                .flatMap(account -> depositRequest
-                        .filter(deposit -> account.getAccountBalance().getBalance()
-                                .add(BigDecimal.valueOf(deposit.getAmount()))
-                                .compareTo(calculateCommission(account)) >= 0)
-                        .switchIfEmpty(Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE)))
-                        .flatMap(deposit -> {
-                            BigDecimal commission = calculateCommission(account);
-                            BigDecimal currentBalance = account.getAccountBalance().getBalance()
-                                    .add(BigDecimal.valueOf(deposit.getAmount()));
-                            TransactionRequest transaction = new TransactionRequest();
-                            transaction.setProductId(idAccount);
-                            transaction.setAmount(deposit.getAmount());
-                            transaction.setType(DEPOSIT);
-                            transaction.setClientId(account.getClientId());
-                            transaction.setBalance(currentBalance.subtract(commission).doubleValue());
-                            transaction.setCommission(commission.doubleValue());
-                            account.setMovementsUsed(account.getMovementsUsed() + 1);
-                            account.setAccountBalance(Balance.builder()
-                                    .balance(currentBalance.subtract(commission))
-                                    .currency(account.getAccountBalance().getCurrency())
-                                    .build());
-                    return bankAccountRepository.save(account)
-                            .flatMap(savedAccount -> postTransaction(transaction));
-                }));
+        return depositRequest.flatMap(deposit -> applyMovement(idAccount, DEPOSIT, BigDecimal.valueOf(deposit.getAmount())));
     }
 
     @Override
     @Transactional
     public Mono<TransactionResponse> withdrawFromAccount(String idAccount, Mono<WithdrawalRequest> withdrawalRequest) {
-        return bankAccountRepository.findById(idAccount)
-                .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
-                .flatMap(account -> withdrawalRequest
-                        .filter(withdrawal -> account.getAccountBalance().getBalance()
-                                .compareTo(BigDecimal.valueOf(withdrawal.getAmount()).add(calculateCommission(account))) >= 0)
-                        .switchIfEmpty(Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE)))
-                        .flatMap(withdrawal -> {
-                            BigDecimal commission = calculateCommission(account);
-                            BigDecimal updatedBalance = account.getAccountBalance().getBalance()
-                                    .subtract(commission)
-                                    .subtract(BigDecimal.valueOf(withdrawal.getAmount()));
-                            TransactionRequest transaction = new TransactionRequest();
-                            transaction.setProductId(idAccount);
-                            transaction.setAmount(withdrawal.getAmount());
-                            transaction.setType(WITHDRAWAL);
-                            transaction.setCommission(commission.doubleValue());
-                            transaction.setClientId(account.getClientId());
-                            transaction.setBalance(updatedBalance.doubleValue());
-                            account.setAccountBalance(Balance.builder()
-                                    .balance(updatedBalance)
-                                    .currency(account.getAccountBalance().getCurrency())
-                                    .build());
-                            return bankAccountRepository.save(account)
-                                    .flatMap(savedAccount -> postTransaction(transaction));
-                        }));
+        return withdrawalRequest.flatMap(withdrawal -> applyMovement(idAccount, WITHDRAWAL,
+                BigDecimal.valueOf(withdrawal.getAmount())));
     }
 
     @Override
-    @Transactional
     public Mono<TransactionResponse> transferFunds(String idAccount, Mono<TransferRequest> transferRequest) {
         return bankAccountRepository.findById(idAccount)
                 .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
                 .flatMap(account -> transferRequest
+                            .filter(transfer -> !idAccount.equals(transfer.getDestinationProductId()))
+                            .switchIfEmpty(Mono.error(new CustomException(CustomError.E_SAME_ACCOUNT_TRANSFER)))
                             .filter(transfer -> account.getAccountBalance().getBalance()
                                     .compareTo(BigDecimal.valueOf(transfer.getAmount())) >= 0)
                             .switchIfEmpty(Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE)))
-                        .flatMap(transfer -> bankAccountRepository.findById(transfer.getDestinationProductId())
+                        .flatMap(transfer -> bankAccountRepository.existsById(transfer.getDestinationProductId())
+                                .filter(Boolean::booleanValue)
                                 .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
-                                .flatMap(accountDestination -> {
-                                    BigDecimal originalBalanceSource = account.getAccountBalance().getBalance();
-                                    BigDecimal originalBalanceDestination = accountDestination.getAccountBalance().getBalance();
-                                    TransactionRequest transactionWithdrawal = createTransaction(account,
-                                            transfer.getDestinationProductId(),
-                                            WITHDRAWAL, originalBalanceSource.subtract(BigDecimal.valueOf(transfer.getAmount())),
-                                            BigDecimal.valueOf(transfer.getAmount()));
-                                    TransactionRequest transactionDeposit = createTransaction(accountDestination,
-                                            account.getId(), DEPOSIT, originalBalanceDestination
-                                                    .add(BigDecimal.valueOf(transfer.getAmount())),
-                                            BigDecimal.valueOf(transfer.getAmount()));
-                                    updateAccountBalance(account, BigDecimal.valueOf(transactionWithdrawal.getBalance()));
-                                    updateAccountBalance(accountDestination, BigDecimal.valueOf(transactionDeposit.getBalance()));
-                                    return bankAccountRepository.saveAll(Flux.just(account, accountDestination))
-                                            .collectList()
-                                            .flatMap(savedAccounts ->
-                                                    Flux.zip(postTransaction(transactionWithdrawal),
-                                                                    postTransaction(transactionDeposit))
-                                                            .next()
-                                                            .map(results ->
-                                                                    new TransactionResponse(results.getT1().getId(), results.getT1().getProductId(),
-                                                                            results.getT2().getProductId(), results.getT1().getType(),
-                                                                            results.getT1().getAmount(), results.getT1().getClientId()))
-                                            )
-                                            .onErrorResume(e -> {
-                                                updateAccountBalance(account, originalBalanceSource);
-                                                updateAccountBalance(accountDestination, originalBalanceDestination);
-                                                return bankAccountRepository.saveAll(Flux.just(account, accountDestination))
-                                                        .then(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)));
-                                            });
-                                })
+                                .flatMap(exists -> transferSagaService.transfer(account, transfer.getDestinationProductId(),
+                                        BigDecimal.valueOf(transfer.getAmount())))
                         )
                 );
     }
 
-    private Mono<TransactionResponse> postTransaction(TransactionRequest transactionRequest) {
-        return webClient.post(transactionServiceUrl.concat("/v1/transactions"), transactionRequest, TransactionResponse.class);
+    /**
+     * Executes a stream of transfers. Transfers are spread over a bounded number of lanes by source account;
+     * each lane runs its transfers one after another, so transfers from the same account keep their order,
+     * while the lanes run in parallel. Results are emitted as each transfer finishes, tagged with the
+     * position of the transfer in the request stream.
+     */
+    @Override
+    public Flux<BatchTransferResponse> transferFundsBatch(Flux<BatchTransferRequest> transferRequests) {
+        return transferRequests
+                .index()
+                .groupBy(indexed -> Math.floorMod(Objects.hashCode(indexed.getT2().getSourceProductId()), batchConcurrency))
+                .flatMap(lane -> lane.concatMap(indexed -> transferBatchItem(indexed.getT1(), indexed.getT2())), batchConcurrency);
+    }
+
+    private Mono<BatchTransferResponse> transferBatchItem(long index, BatchTransferRequest request) {
+        BatchTransferResponse response = new BatchTransferResponse();
+        response.setIndex(index);
+        response.setSourceProductId(request.getSourceProductId());
+        response.setDestinationProductId(request.getDestinationProductId());
+        return Mono.defer(() -> transferFunds(request.getSourceProductId(),
+                        Mono.just(new TransferRequest(request.getDestinationProductId(), request.getAmount()))))
+                .map(transaction -> {
+                    response.setStatus(BatchTransferResponse.StatusEnum.COMPLETED);
+                    response.setTransaction(transaction);
+                    return response;
+                })
+                .onErrorResume(ex -> {
+                    CustomException error = ex instanceof CustomException customException
+                            ? customException
+                            : new CustomException(CustomError.E_OPERATION_FAILED);
+                    response.setStatus(BatchTransferResponse.StatusEnum.FAILED);
+                    response.setErrorCode(error.getCode());
+                    response.setErrorMessage(error.getMessage());
+                    return Mono.just(response);
+                });
+    }
+
+    /**
+     * Reads the account, prices the movement from that read and applies it. The movement is retried from
+     * a fresh read when another movement was counted in between, since that may change its commission.
+     */
+    private Mono<TransactionResponse> applyMovement(String idAccount, TransactionRequest.TypeEnum type, BigDecimal amount) {
+        return Mono.defer(() -> bankAccountRepository.findById(idAccount))
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
+                .flatMap(account -> applyMovement(account, type, amount))
+                .retryWhen(Retry.max(MAX_MOVEMENT_ATTEMPTS - 1)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> new CustomException(CustomError.E_CONCURRENT_MODIFICATION)));
+    }
+
+    /**
+     * Applies the movement and records its posting in a single guarded update, so concurrent movements
+     * on the same account never overwrite each other. The balance read is only used for an early rejection;
+     * when the commission depends on the movements used, the update also requires the count it was priced
+     * with. The posting is delivered later by the outbox relay.
+     */
+    private Mono<TransactionResponse> applyMovement(BankAccount account, TransactionRequest.TypeEnum type, BigDecimal amount) {
+        BigDecimal commission = calculateCommission(account);
+        BigDecimal movement = type == DEPOSIT ? amount.subtract(commission) : amount.add(commission).negate();
+        if (account.getAccountBalance().getBalance().compareTo(movement.negate()) < 0) {
+            return Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE));
+        }
+        Integer movementsUsed = isChargedByMovements(account) ? account.getMovementsUsed() : null;
+        PendingTransaction posting = createPosting(type, amount, commission);
+        return bankAccountRepository.applyMovement(account.getId(), movement, movement.negate(), movementsUsed, posting)
+                .doOnNext(balanceCacheService::update)
+                .switchIfEmpty(Mono.defer(() -> rejectMovement(account.getId(), movementsUsed)))
+                .map(updated -> TransactionExternalMapper.INSTANCE.toTransactionResponse(updated, posting));
+    }
+
+    /**
+     * Explains a movement rejected by its guard: a changed movement count calls for pricing it again,
+     * otherwise the balance no longer covers it.
+     */
+    private Mono<BankAccount> rejectMovement(String idAccount, Integer movementsUsed) {
+        Mono<BankAccount> insufficientBalance = Mono.error(new CustomException(CustomError.E_INSUFFICIENT_BALANCE));
+        if (movementsUsed == null) {
+            return insufficientBalance;
+        }
+        return bankAccountRepository.findById(idAccount)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND))))
+                .flatMap(current -> movementsUsed.equals(current.getMovementsUsed())
+                        ? insufficientBalance
+                        : Mono.<BankAccount>error(new OptimisticLockingFailureException("Movements used changed on account " + idAccount)));
     }
 
-    private void updateAccountBalance(BankAccount account, BigDecimal updatedBalance) {
-        account.setAccountBalance(Balance.builder()
-                .balance(updatedBalance)
-                .currency(account.getAccountBalance().getCurrency())
-                .build());
+    private PendingTransaction createPosting(TransactionRequest.TypeEnum type, BigDecimal amount, BigDecimal commission) {
+        return PendingTransaction.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .type(type.getValue())
+                .amount(amount)
+                .commission(commission)
+                .createdDate(Instant.now())
+                .build();
+    }
+
+    private static boolean isChargedByMovements(BankAccount account) {
+        return AccountRequest.TypeEnum.valueOf(account.getType()) == AccountRequest.TypeEnum.SAVINGS;
     }
 
     private BigDecimal calculateCommission(BankAccount account) {
@@ -181,9 +273,4 @@ public class TransactionServiceImpl implements TransactionService {
         };
     }
 
-    private TransactionRequest createTransaction(BankAccount account, String destinationProductId, TransactionRequest.TypeEnum type,
-                                                 BigDecimal updatedBalance, BigDecimal amount) {
-        return TransactionExternalMapper.INSTANCE.map(account, destinationProductId, amount, type, updatedBalance);
-    }
-
 }
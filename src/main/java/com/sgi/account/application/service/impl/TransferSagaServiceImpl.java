@@ -0,0 +1,249 @@
+package com.sgi.account.application.service.impl;
+
+import com.sgi.account.application.service.BalanceCacheService;
+import com.sgi.account.application.service.TransferSagaService;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.TransferSagaRepository;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.dto.TransactionRequest;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import com.sgi.account.infrastructure.exception.CustomException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+import static com.sgi.account.domain.model.TransferSaga.State.COMPENSATING;
+import static com.sgi.account.domain.model.TransferSaga.State.COMPLETED;
+import static com.sgi.account.domain.model.TransferSaga.State.CREDITED;
+import static com.sgi.account.domain.model.TransferSaga.State.FAILED;
+import static com.sgi.account.domain.model.TransferSaga.State.PENDING;
+import static com.sgi.account.domain.model.TransferSaga.State.RESERVED;
+import static com.sgi.account.infrastructure.dto.TransactionRequest.TypeEnum.DEPOSIT;
+import static com.sgi.account.infrastructure.dto.TransactionRequest.TypeEnum.WITHDRAWAL;
+
+/**
+ * Service implementation of the transfer saga.
+ * A transfer reserves the funds in the source account, credits the destination account and then
+ * posts both movements to the account outboxes. Every account step is an atomic conditional update
+ * marked with the transfer id, so replaying a step after a crash is a no-op, and every state change
+ * is a conditional transition of the saga. Transfers left unfinished are resumed by a background
+ * recovery once they have not been updated for a while; a failed credit is compensated by returning
+ * the reserved funds to the source account.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferSagaServiceImpl implements TransferSagaService {
+
+    @Value("${app.transfer.run-timeout:10s}")
+    private Duration runTimeout = Duration.ofSeconds(10);
+
+    @Value("${app.transfer.recovery.interval:10s}")
+    private Duration recoveryInterval = Duration.ofSeconds(10);
+
+    @Value("${app.transfer.recovery.stale-after:30s}")
+    private Duration staleAfter = Duration.ofSeconds(30);
+
+    private final TransferSagaRepository transferSagaRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final BalanceCacheService balanceCacheService;
+
+    private Disposable recovery;
+
+    /**
+     * Starts resuming the stale unfinished transfers at the configured interval once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRecovery() {
+        recovery = Flux.interval(recoveryInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> recoverStale())
+                .subscribe();
+    }
+
+    /**
+     * Stops the recovery; the unfinished transfers are resumed by another instance once stale.
+     */
+    @PreDestroy
+    public void stopRecovery() {
+        if (recovery != null) {
+            recovery.dispose();
+        }
+    }
+
+    @Override
+    public Mono<TransactionResponse> transfer(BankAccount source, String destinationAccountId, BigDecimal amount) {
+        if (source.getId().equals(destinationAccountId)) {
+            // the credit would find the mark of the reservation and skip the deposit
+            return Mono.error(new CustomException(CustomError.E_SAME_ACCOUNT_TRANSFER));
+        }
+        Instant now = Instant.now();
+        TransferSaga transferSaga = TransferSaga.builder()
+                .id(UUID.randomUUID().toString())
+                .sourceAccountId(source.getId())
+                .destinationAccountId(destinationAccountId)
+                .clientId(source.getClientId())
+                .amount(amount)
+                .state(PENDING)
+                .createdDate(now)
+                .updatedDate(now)
+                .build();
+        return transferSagaRepository.save(transferSaga)
+                .flatMap(saved -> advance(saved)
+                        // the run must end before the recovery may take the saga over, see stale-after
+                        .timeout(runTimeout)
+                        .onErrorMap(TimeoutException.class, ex -> new CustomException(CustomError.E_TRANSFER_IN_PROGRESS)))
+                .flatMap(this::toResponse);
+    }
+
+    @Override
+    public Mono<TransferSaga> resume(TransferSaga transferSaga) {
+        return advance(transferSaga);
+    }
+
+    /**
+     * Resumes the unfinished sagas that have not been updated within the stale-after window.
+     * Each saga is claimed first, so only one runner resumes it.
+     */
+    Mono<Void> recoverStale() {
+        Instant updatedBefore = Instant.now().minus(staleAfter);
+        return transferSagaRepository.findUnfinished(updatedBefore)
+                .concatMap(stale -> transferSagaRepository.claimStale(stale.getId(), updatedBefore)
+                        .flatMap(this::resume)
+                        .onErrorResume(ex -> {
+                            log.error("Failed to resume transfer {}", stale.getId(), ex);
+                            return Mono.empty();
+                        }))
+                .then()
+                .onErrorResume(ex -> {
+                    log.error("Failed to recover unfinished transfers", ex);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<TransferSaga> advance(TransferSaga transferSaga) {
+        if (transferSaga.getState() == COMPLETED || transferSaga.getState() == FAILED) {
+            return Mono.just(transferSaga);
+        }
+        return step(transferSaga).flatMap(this::advance);
+    }
+
+    private Mono<TransferSaga> step(TransferSaga transferSaga) {
+        return switch (transferSaga.getState()) {
+            case PENDING -> reserve(transferSaga);
+            case RESERVED -> credit(transferSaga);
+            case CREDITED -> post(transferSaga);
+            case COMPENSATING -> compensate(transferSaga);
+            case COMPLETED, FAILED -> Mono.just(transferSaga);
+        };
+    }
+
+    /**
+     * Withdraws the amount from the source account if its balance covers it. An empty result means
+     * either the funds were already reserved by a previous run or the balance is insufficient.
+     */
+    private Mono<TransferSaga> reserve(TransferSaga transferSaga) {
+        return bankAccountRepository.applyTransferStep(transferSaga.getSourceAccountId(), transferSaga.getId(),
+                        transferSaga.getAmount().negate(), transferSaga.getAmount())
+                .doOnNext(balanceCacheService::update)
+                .map(account -> true)
+                .switchIfEmpty(Mono.defer(() -> bankAccountRepository.hasPendingTransfer(transferSaga.getSourceAccountId(),
+                        transferSaga.getId())))
+                .flatMap(reserved -> reserved
+                        ? transition(transferSaga, RESERVED, null)
+                        : transition(transferSaga, FAILED, CustomError.E_INSUFFICIENT_BALANCE));
+    }
+
+    /**
+     * Deposits the amount in the destination account. An empty result means either the credit was
+     * already applied by a previous run or the destination account no longer exists.
+     */
+    private Mono<TransferSaga> credit(TransferSaga transferSaga) {
+        return bankAccountRepository.applyTransferStep(transferSaga.getDestinationAccountId(), transferSaga.getId(),
+                        transferSaga.getAmount(), null)
+                .doOnNext(balanceCacheService::update)
+                .map(account -> true)
+                .switchIfEmpty(Mono.defer(() -> bankAccountRepository.hasPendingTransfer(transferSaga.getDestinationAccountId(),
+                        transferSaga.getId())))
+                .flatMap(credited -> credited
+                        ? transition(transferSaga, CREDITED, null)
+                        : transition(transferSaga, COMPENSATING, CustomError.E_ACCOUNT_NOT_FOUND));
+    }
+
+    /**
+     * Records the withdrawal and the deposit in the account outboxes and clears the transfer marks.
+     * A settle step that finds no mark was already applied by a previous run.
+     */
+    private Mono<TransferSaga> post(TransferSaga transferSaga) {
+        return bankAccountRepository.settleTransferStep(transferSaga.getSourceAccountId(), transferSaga.getId(),
+                        createPosting(transferSaga, WITHDRAWAL, transferSaga.getDestinationAccountId()))
+                .then(Mono.defer(() -> bankAccountRepository.settleTransferStep(transferSaga.getDestinationAccountId(),
+                        transferSaga.getId(), createPosting(transferSaga, DEPOSIT, transferSaga.getSourceAccountId()))))
+                .then(Mono.defer(() -> transition(transferSaga, COMPLETED, null)));
+    }
+
+    /**
+     * Returns the reserved funds to the source account. A revert step that finds no mark was already
+     * applied by a previous run.
+     */
+    private Mono<TransferSaga> compensate(TransferSaga transferSaga) {
+        return bankAccountRepository.revertTransferStep(transferSaga.getSourceAccountId(), transferSaga.getId(),
+                        transferSaga.getAmount())
+                .doOnNext(balanceCacheService::update)
+                .then(Mono.defer(() -> transition(transferSaga, FAILED, null)));
+    }
+
+    /**
+     * Moves the saga to {@code to}. When another runner moved it first, continues from the stored state.
+     */
+    private Mono<TransferSaga> transition(TransferSaga transferSaga, TransferSaga.State to, CustomError failure) {
+        return transferSagaRepository.transition(transferSaga.getId(), transferSaga.getState(), to,
+                        failure != null ? failure.name() : null)
+                .switchIfEmpty(Mono.defer(() -> transferSagaRepository.findById(transferSaga.getId())));
+    }
+
+    private Mono<TransactionResponse> toResponse(TransferSaga transferSaga) {
+        if (transferSaga.getState() == FAILED) {
+            return Mono.error(new CustomException(CustomError.valueOf(transferSaga.getFailureReason())));
+        }
+        return Mono.just(new TransactionResponse(postingKey(transferSaga, WITHDRAWAL), transferSaga.getSourceAccountId(),
+                transferSaga.getDestinationAccountId(), TransactionResponse.TypeEnum.fromValue(WITHDRAWAL.getValue()),
+                transferSaga.getAmount(), transferSaga.getClientId()));
+    }
+
+    private PendingTransaction createPosting(TransferSaga transferSaga, TransactionRequest.TypeEnum type, String destinationProductId) {
+        return PendingTransaction.builder()
+                .idempotencyKey(postingKey(transferSaga, type))
+                .type(type.getValue())
+                .amount(transferSaga.getAmount())
+                .commission(BigDecimal.ZERO)
+                .destinationProductId(destinationProductId)
+                .createdDate(Instant.now())
+                .build();
+    }
+
+    /**
+     * Derives the posting key from the transfer id, so a posting created again by a resumed run
+     * is deduplicated by the transaction service.
+     */
+    private static String postingKey(TransferSaga transferSaga, TransactionRequest.TypeEnum type) {
+        return UUID.nameUUIDFromBytes((transferSaga.getId() + ":" + type.getValue()).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -1,20 +1,29 @@
 package com.sgi.account.application.service.impl;
 
+import com.sgi.account.application.service.CreditEligibilityService;
 import com.sgi.account.application.service.ValidationBankAccount;
-import com.sgi.account.domain.ports.out.BankAccountRepository;
-import com.sgi.account.domain.ports.out.FeignExternalService;
 import com.sgi.account.domain.shared.CustomError;
 import com.sgi.account.infrastructure.dto.AccountRequest;
-import com.sgi.account.infrastructure.dto.Credit;
 import com.sgi.account.infrastructure.dto.Customer;
 import com.sgi.account.infrastructure.exception.CustomException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
 import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
+import static com.sgi.account.infrastructure.dto.AccountRequest.TypeEnum.CHECKING;
+import static com.sgi.account.infrastructure.dto.AccountRequest.TypeEnum.FIXED_TERM;
+import static com.sgi.account.infrastructure.dto.AccountRequest.TypeEnum.SAVINGS;
 import static com.sgi.account.infrastructure.dto.Customer.ProfileEnum.PYME;
 import static com.sgi.account.infrastructure.dto.Customer.ProfileEnum.VIP;
 import static com.sgi.account.infrastructure.dto.Customer.TypeEnum.BUSINESS;
@@ -22,110 +31,164 @@ import static com.sgi.account.infrastructure.dto.Customer.TypeEnum.PERSONAL;
 
 /**
  * Implementation of the bank account validation service.
+ * The rules are declared in {@link #RULES} and compiled into an {@link AccountDecisionTable} when the
+ * service is created, so each validation looks up the decision of its segment, checks the account data
+ * and then fetches, concurrently, only the external facts that decision needs. When the customer is still
+ * being fetched, the facts are looked up speculatively at the same time, see {@link #validate(AccountRequest, Mono)}.
+ * The limit of one account per type for personal clients is not checked here; it is enforced by the
+ * per-client product counters when the account is created, see {@link #isOnePerClient}.
  */
 @Service
 @RequiredArgsConstructor
 public class ValidationBankAccountImpl implements ValidationBankAccount {
 
-    @Value("${feign.client.config.credit-service.url}")
-    private String creditServiceUrl;
+    private static final Predicate<AccountRule.Segment> ANY = segment -> true;
+    private static final Predicate<AccountRule.Segment> PERSONAL_CLIENT = segment -> PERSONAL.equals(segment.customerType());
+    private static final Predicate<AccountRule.Segment> BUSINESS_CLIENT = segment -> BUSINESS.equals(segment.customerType());
+    private static final Predicate<AccountRule.Segment> VIP_CLIENT = segment -> VIP.equals(segment.profile());
+    private static final Predicate<AccountRule.Segment> PYME_CLIENT = segment -> PYME.equals(segment.profile());
+
+    static final List<AccountRule> RULES = List.of(
+            AccountRule.of(SAVINGS, BUSINESS_CLIENT)
+                    .reject(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_SAVINGS),
+            AccountRule.of(SAVINGS, ANY)
+                    .require(account -> account.getMovementLimit() != null && account.getMovementLimit() > 0,
+                            CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA),
+            AccountRule.of(SAVINGS, PERSONAL_CLIENT.and(VIP_CLIENT))
+                    .requireFact(AccountRule.Fact.CREDIT_CARD, CustomError.E_MISSING_CREDIT_CARD),
+            AccountRule.of(SAVINGS, PERSONAL_CLIENT.and(VIP_CLIENT.negate()))
+                    .apply(account -> account.setMaintenanceFee(BigDecimal.ZERO))
+                    .onePerClient(),
+            AccountRule.of(CHECKING, BUSINESS_CLIENT.and(PYME_CLIENT))
+                    .requireFact(AccountRule.Fact.CREDIT_CARD, CustomError.E_MISSING_CREDIT_CARD)
+                    .last(),
+            AccountRule.of(CHECKING, PERSONAL_CLIENT)
+                    .require(account -> account.getMaintenanceFee() != null
+                                    && account.getMaintenanceFee().compareTo(BigDecimal.ZERO) > 0,
+                            CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA)
+                    .onePerClient(),
+            AccountRule.of(CHECKING, ANY)
+                    .apply(account -> account.setMovementLimit(null)),
+            AccountRule.of(FIXED_TERM, BUSINESS_CLIENT)
+                    .reject(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_FIXED_TERM),
+            AccountRule.of(FIXED_TERM, ANY)
+                    .require(account -> account.getTransactionDay() != null, CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA),
+            AccountRule.of(FIXED_TERM, PERSONAL_CLIENT)
+                    .apply(account -> {
+                        account.setMaintenanceFee(BigDecimal.ZERO);
+                        account.setMovementLimit(1);
+                    })
+                    .onePerClient());
 
-    private final BankAccountRepository bankAccountRepository;
-    private final FeignExternalService webClient;
-    Predicate<Customer> isPersonal = c -> PERSONAL.equals(c.getType());
-    Predicate<Customer> isBusiness = c -> BUSINESS.equals(c.getType());
-    Predicate<Customer> isVip = c -> VIP.equals(c.getProfile());
-    Predicate<Customer> isPyme = c -> PYME.equals(c.getProfile());
+    private final AccountDecisionTable decisionTable = AccountDecisionTable.compile(RULES);
+
+    private final CreditEligibilityService creditEligibilityService;
 
     @Override
     public Mono<AccountRequest> savingsAccount(AccountRequest account, Customer customer) {
-        if (isBusiness.test(customer)) {
-            return Mono.error(new CustomException(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_SAVINGS));
-        }
-        return validateAccountData(account)
-                .then(handlePersonalAccount(account, customer));
+        return validate(SAVINGS, account, customer);
     }
 
     @Override
     public Mono<AccountRequest> checkingAccount(AccountRequest account, Customer customer) {
-        if (isBusiness.test(customer) && isPyme.test(customer)) {
-            return checkCreditCardForClient(account, customer.getId());
-        }
-        if (isPersonal.test(customer) && (account.getMaintenanceFee() == null
-                || account.getMaintenanceFee().compareTo(BigDecimal.ZERO) <= 0)) {
-            return Mono.error(new CustomException(CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA));
-        }
-        if (isPersonal.test(customer)) {
-            return findByClientIdAndType(account.getClientId(), account.getType().name())
-                    .flatMap(exists -> exists
-                            ? Mono.error(new CustomException(CustomError.E_MAX_SAVINGS_ACCOUNTS_REACHED))
-                            : Mono.just(account).doOnNext(a -> a.setMovementLimit(null)));
-        }
-        account.setMovementLimit(null);
-        return Mono.just(account);
+        return validate(CHECKING, account, customer);
     }
 
     @Override
     public Mono<AccountRequest> fixedTermAccount(AccountRequest account, Customer customer) {
-        if (isBusiness.test(customer)) {
-            return Mono.error(new CustomException(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_FIXED_TERM));
-        }
-        if (account.getTransactionDay() == null) {
+        return validate(FIXED_TERM, account, customer);
+    }
+
+    @Override
+    public boolean isOnePerClient(AccountRequest account, Customer customer) {
+        return account.getType() != null && decisionTable.decide(customer, account.getType()).onePerClient();
+    }
+
+    /**
+     * Starts the lookup of every fact the account type may need together with the customer fetch. Once the
+     * customer is known, the lookups its decision does not need are cancelled, and the rest are awaited.
+     */
+    @Override
+    public Mono<AccountRequest> validate(AccountRequest account, Mono<Customer> customer) {
+        if (account.getType() == null) {
             return Mono.error(new CustomException(CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA));
         }
-        if (isPersonal.test(customer)) {
-            return findByClientIdAndType(account.getClientId(), account.getType().name())
-                    .flatMap(exists -> exists
-                            ? Mono.error(new CustomException(CustomError.E_MAX_SAVINGS_ACCOUNTS_REACHED))
-                            : Mono.just(account)
-                            .doOnNext(a -> {
-                                account.setMaintenanceFee(BigDecimal.ZERO);
-                                account.setMovementLimit(1);
-
-                            }));
-        }
-        return Mono.just(account);
+        return Mono.defer(() -> {
+            Map<AccountRule.Fact, Probe> probes = new EnumMap<>(AccountRule.Fact.class);
+            decisionTable.possibleFacts(account.getType())
+                    .forEach(fact -> probes.put(fact, new Probe(lookup(fact, account.getClientId()))));
+            return customer
+                    .flatMap(client -> {
+                        AccountDecisionTable.Decision decision = decisionTable.decide(client, account.getType());
+                        probes.forEach((fact, probe) -> {
+                            if (!decision.facts().contains(fact)) {
+                                probe.cancel();
+                            }
+                        });
+                        return validate(decision, account, fact -> probes.get(fact).result());
+                    })
+                    .doFinally(signal -> probes.values().forEach(Probe::cancel));
+        });
     }
 
-    private Mono<AccountRequest> checkCreditCardForClient(AccountRequest account, String clientId) {
-        return webClient.getFlux(creditServiceUrl.concat("/v1/credits/{clientId}/card"), clientId, Credit.class)
-                .collectList()
-                .filter(creditResponses -> !creditResponses.isEmpty())
-                .switchIfEmpty(Mono.error(new CustomException(CustomError.E_MISSING_CREDIT_CARD)))
-                .then(Mono.just(account));
+    private Mono<AccountRequest> validate(AccountRequest.TypeEnum accountType, AccountRequest account, Customer customer) {
+        return validate(decisionTable.decide(customer, accountType), account, fact -> lookup(fact, customer.getId()));
     }
 
-    public Mono<Boolean> findByClientIdAndType(String clientId, String type) {
-        return bankAccountRepository.existsByClientIdAndType(clientId, type);
+    private Mono<AccountRequest> validate(AccountDecisionTable.Decision decision, AccountRequest account,
+                                          Function<AccountRule.Fact, Mono<Boolean>> lookup) {
+        return decision.checks().stream()
+                .filter(check -> !check.test().test(account))
+                .findFirst()
+                .<Mono<AccountRequest>>map(check -> Mono.error(new CustomException(check.error())))
+                .orElseGet(() -> fetchFacts(decision.facts(), lookup)
+                        .flatMap(facts -> decision.factChecks().stream()
+                                .filter(factCheck -> !facts.getOrDefault(factCheck.fact(), false))
+                                .findFirst()
+                                .<Mono<AccountRequest>>map(factCheck -> Mono.error(new CustomException(factCheck.error())))
+                                .orElseGet(() -> {
+                                    decision.defaults().forEach(defaults -> defaults.accept(account));
+                                    return Mono.just(account);
+                                })));
     }
 
-    private Mono<Void> validateAccountData(AccountRequest account) {
-        if (account.getMovementLimit() == null || account.getMovementLimit() <= 0) {
-            return Mono.error(new CustomException(CustomError.E_MISSING_REQUIRED_ACCOUNT_DATA));
+    /**
+     * Looks up the facts concurrently; a fact whose lookup is empty is taken as not held.
+     */
+    private Mono<Map<AccountRule.Fact, Boolean>> fetchFacts(Set<AccountRule.Fact> facts,
+                                                           Function<AccountRule.Fact, Mono<Boolean>> lookup) {
+        if (facts.isEmpty()) {
+            return Mono.just(Map.of());
         }
-        return Mono.empty();
+        return Flux.fromIterable(facts)
+                .flatMap(fact -> lookup.apply(fact).map(value -> Map.entry(fact, value)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
     }
 
-    private Mono<AccountRequest> handlePersonalAccount(AccountRequest account, Customer customer) {
-        if (isPersonal.test(customer)) {
-            if (isVip.test(customer)) {
-                return checkCreditCardForClient(account, customer.getId());
-            }
-            return handleNonVipPersonalAccount(account);
-        }
-        return Mono.just(account);
+    private Mono<Boolean> lookup(AccountRule.Fact fact, String clientId) {
+        return switch (fact) {
+            case CREDIT_CARD -> creditEligibilityService.hasCreditCard(clientId);
+        };
     }
 
-    private Mono<AccountRequest> handleNonVipPersonalAccount(AccountRequest account) {
-        return findByClientIdAndType(account.getClientId(), account.getType().name())
-                .flatMap(exists -> {
-                    if (exists) {
-                        return Mono.error(new CustomException(CustomError.E_MAX_SAVINGS_ACCOUNTS_REACHED));
-                    } else {
-                        return Mono.just(account)
-                                .doOnNext(a -> a.setMaintenanceFee(BigDecimal.ZERO));
-                    }
-                });
-    }
+    /**
+     * A fact lookup started before it is known to be needed; its result is replayed to whoever awaits it.
+     */
+    private static final class Probe {
+
+        private final Sinks.One<Boolean> result = Sinks.one();
+        private final Disposable subscription;
 
+        private Probe(Mono<Boolean> lookup) {
+            this.subscription = lookup.subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+        }
+
+        private Mono<Boolean> result() {
+            return result.asMono();
+        }
+
+        private void cancel() {
+            subscription.dispose();
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Represents a query for a page of bank accounts matching all the filters that are set.
+ * Pages are ordered by account id; {@link #after} is the id of the last account of the previous page,
+ * and {@link #fields} restricts the returned account fields.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountQuery {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private String clientId;
+    private String type;
+    private String accountId;
+    private Boolean isActive;
+    private String currency;
+    private String after;
+    private Integer limit;
+    private List<String> fields;
+
+}
@@ -5,6 +5,8 @@ import lombok.Setter;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 
@@ -19,6 +21,7 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class Balance {
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal balance;
     private String currency;
 
@@ -0,0 +1,25 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Read model of the balance of a bank account, as kept in the balance cache.
+ * The version is the version of the bank account document the balance was read from,
+ * so an older balance never replaces a newer one.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class BalanceView {
+
+    private String accountId;
+    private String clientId;
+    private BigDecimal balance;
+    private String currency;
+    private Long version;
+
+}
@@ -7,7 +7,10 @@ import lombok.Builder;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
@@ -30,11 +33,17 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "bank-account")
-@CompoundIndex(def = "{'id': 1, 'accountNumber': 1}", name = "id_accountNumber_index", unique = true)
+@CompoundIndexes({
+        @CompoundIndex(def = "{'clientId': 1, 'type': 1}", name = "clientId_type_index"),
+        @CompoundIndex(def = "{'isActive': 1, '_id': 1}", name = "isActive_id_index"),
+        @CompoundIndex(def = "{'accountBalance.currency': 1, '_id': 1}", name = "currency_id_index")
+})
 public class BankAccount {
     @Id
     private String id;
+    @Indexed(name = "accountNumber_index", unique = true, sparse = true)
     private String accountNumber;
+    @Indexed(name = "type_index")
     private String type;
     private String clientId;
     private Balance accountBalance;
@@ -52,5 +61,10 @@ public class BankAccount {
     private Instant createdDate;
     @LastModifiedDate
     private Instant updatedDate;
+    @Version
+    private Long version;
+    private List<PendingTransaction> pendingTransactions;
+    private Instant outboxLeaseUntil;
+    private List<String> pendingTransfers;
 
 }
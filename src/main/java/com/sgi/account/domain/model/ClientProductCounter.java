@@ -0,0 +1,32 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Represents the number of bank accounts a client holds of each account type.
+ * The id is the client id, and {@link #products} is keyed by the account type. The counters are changed
+ * in the same step that creates or deletes an account, so the one-account-per-type rules are enforced
+ * with a single atomic update instead of a lookup of the client accounts.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "client-product-counter")
+public class ClientProductCounter {
+
+    public static final String PRODUCTS_FIELD = "products";
+
+    @Id
+    private String id;
+    private Map<String, Integer> products;
+}
@@ -0,0 +1,51 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Represents the result of one row of a bulk account onboarding.
+ * Results are recorded under the batch id chosen by the client, with the id {@code batchId:index},
+ * so a batch can be resubmitted and only the rows without a result are processed again.
+ * The class is mapped to the 'account-onboarding' collection in the MongoDB database.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "account-onboarding")
+@CompoundIndex(def = "{'batchId': 1, 'index': 1}", name = "batchId_index_index")
+public class OnboardingResult {
+
+    /**
+     * Status of an onboarded row.
+     */
+    public enum Status {
+        CREATED, FAILED
+    }
+
+    @Id
+    private String id;
+    private String batchId;
+    private long index;
+    private Status status;
+    private String accountId;
+    private String accountNumber;
+    private String errorCode;
+    private String errorMessage;
+    private Instant createdDate;
+
+    public static String id(String batchId, long index) {
+        return batchId + ":" + index;
+    }
+
+}
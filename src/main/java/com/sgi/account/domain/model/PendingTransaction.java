@@ -0,0 +1,39 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Represents a transaction posting waiting to be delivered to the transaction service.
+ * Postings are stored inside the bank account document (transactional outbox), so they are
+ * written in the same atomic update as the balance change they describe.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingTransaction {
+
+    public static final String FIELD = "pendingTransactions";
+
+    private String idempotencyKey;
+    private String type;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal commission;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal balance;
+    private String destinationProductId;
+    private Instant createdDate;
+
+}
@@ -0,0 +1,25 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Represents a named counter from which blocks of consecutive values are reserved.
+ * {@link #value} is the last value handed out, so a block of n values ends at it.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "sequence")
+public class Sequence {
+    @Id
+    private String id;
+    private long value;
+}
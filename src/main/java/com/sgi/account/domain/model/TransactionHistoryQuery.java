@@ -0,0 +1,31 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Represents a query for a page of the transactions of an account.
+ * {@link #from} is inclusive and {@link #to} exclusive; {@link #cursor} is the id of the last
+ * transaction of the previous page and is passed unchanged to the transaction service.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryQuery {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private OffsetDateTime from;
+    private OffsetDateTime to;
+    private Integer limit;
+    private String cursor;
+
+}
@@ -0,0 +1,51 @@
+package com.sgi.account.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Represents a transfer between two bank accounts driven as a persisted saga.
+ * Each step (reserve funds, credit, post) is applied to the accounts with an atomic conditional update
+ * and then recorded in {@link #state}, so an in-flight transfer can be resumed after a crash.
+ * The class is mapped to the 'transfer-saga' collection in the MongoDB database.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "transfer-saga")
+@CompoundIndex(def = "{'state': 1, 'updatedDate': 1}", name = "state_updatedDate_index")
+public class TransferSaga {
+
+    /**
+     * States of a transfer saga. COMPLETED and FAILED are terminal.
+     */
+    public enum State {
+        PENDING, RESERVED, CREDITED, COMPLETED, COMPENSATING, FAILED
+    }
+
+    @Id
+    private String id;
+    private String sourceAccountId;
+    private String destinationAccountId;
+    private String clientId;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+    private State state;
+    private String failureReason;
+    private Instant createdDate;
+    private Instant updatedDate;
+
+}
@@ -0,0 +1,13 @@
+package com.sgi.account.domain.ports.in;
+
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
+import reactor.core.publisher.Flux;
+
+/**
+ * Service interface for the bulk onboarding of bank accounts.
+ */
+public interface AccountOnboardingService {
+    Flux<BulkAccountResponse> createAccounts(String batchId, Flux<AccountRequest> accountRequests);
+    Flux<BulkAccountResponse> getResults(String batchId, Long after);
+}
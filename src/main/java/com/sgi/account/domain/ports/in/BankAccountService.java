@@ -1,5 +1,8 @@
 package com.sgi.account.domain.ports.in;
 
+import com.sgi.account.domain.model.AccountQuery;
+import com.sgi.account.infrastructure.dto.AccountExistsBatchRequest;
+import com.sgi.account.infrastructure.dto.AccountExistsResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
 import com.sgi.account.infrastructure.dto.BalanceRequest;
@@ -15,8 +18,9 @@ import reactor.core.publisher.Mono;
 public interface BankAccountService {
     Mono<AccountResponse> createAccount(Mono<AccountRequest> customer);
     Mono<Void> deleteAccount(String id);
-    Flux<AccountResponse> getAllAccounts(String clientId, String type, String accountId);
+    Flux<AccountResponse> getAllAccounts(AccountQuery accountQuery);
     Mono<AccountResponse> getAccountById(String id);
+    Flux<AccountExistsResponse> existAccounts(Mono<AccountExistsBatchRequest> existsRequest);
     Mono<AccountResponse> updateAccount(String id, Mono<AccountRequest> account);
     Mono<BalanceResponse> getClientBalances(String idAccount);
     Mono<AccountBalanceResponse> updatedBalanceByAccountId(String action, Mono<BalanceRequest> balanceRequest);
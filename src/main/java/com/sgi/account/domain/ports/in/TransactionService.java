@@ -1,9 +1,13 @@
 package com.sgi.account.domain.ports.in;
 
+import com.sgi.account.domain.model.TransactionHistoryQuery;
+import com.sgi.account.infrastructure.dto.BatchTransferRequest;
+import com.sgi.account.infrastructure.dto.BatchTransferResponse;
 import com.sgi.account.infrastructure.dto.DepositRequest;
 import com.sgi.account.infrastructure.dto.TransactionResponse;
 import com.sgi.account.infrastructure.dto.TransferRequest;
 import com.sgi.account.infrastructure.dto.WithdrawalRequest;
+import org.springframework.core.io.buffer.DataBuffer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -12,8 +16,10 @@ import reactor.core.publisher.Mono;
  * Defines the operations for deposit, withdraw, transfer and transactions.
  */
 public interface TransactionService {
-    Flux<TransactionResponse> getAccountIdTransactions(String idAccount);
+    Flux<TransactionResponse> getAccountIdTransactions(String idAccount, TransactionHistoryQuery query);
+    Mono<Flux<DataBuffer>> streamAccountIdTransactions(String idAccount, TransactionHistoryQuery query);
     Mono<TransactionResponse> depositToAccount(String idAccount, Mono<DepositRequest> depositRequestMono);
     Mono<TransactionResponse> transferFunds(String idAccount, Mono<TransferRequest> transferRequest);
+    Flux<BatchTransferResponse> transferFundsBatch(Flux<BatchTransferRequest> transferRequests);
     Mono<TransactionResponse> withdrawFromAccount(String idAccount, Mono<WithdrawalRequest> withdrawalRequestMono);
 }
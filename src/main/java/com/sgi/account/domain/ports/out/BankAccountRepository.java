@@ -1,10 +1,20 @@
 package com.sgi.account.domain.ports.out;
 
+import com.sgi.account.domain.model.AccountQuery;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
 import com.sgi.account.infrastructure.dto.AccountResponse;
+import org.springframework.dao.DataAccessException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
 /**
  * Repository interface defining operations to manage credits.
  */
@@ -14,12 +24,101 @@ public interface BankAccountRepository {
 
     Flux<AccountResponse> saveAll(Flux<BankAccount> bankAccounts);
 
+    /**
+     * Inserts the accounts with a single unordered bulk write, so a document that fails does not stop the others.
+     *
+     * @return the error of each document that was not inserted, by its position in {@code bankAccounts}.
+     */
+    Mono<Map<Integer, DataAccessException>> insertAll(List<BankAccount> bankAccounts);
+
     Mono<BankAccount> findById(String id);
 
-    Flux<AccountResponse> findAll(String clientId, String type, String accountId);
+    Mono<Boolean> existsById(String id);
+
+    /**
+     * Reads only the id, client id, balance and version of the account.
+     */
+    Mono<BankAccount> findBalanceById(String id);
+
+    /**
+     * Reads only the id and type of the accounts with the given ids, in a single query.
+     */
+    Flux<BankAccount> findTypesById(Collection<String> ids);
+
+    /**
+     * Reads the account, applies {@code mutation} and saves it guarded by the document version.
+     * On a version conflict the whole read-mutate-save cycle is retried with jittered backoff,
+     * so the mutation must be free of side effects and may run more than once.
+     *
+     * @param id       account id.
+     * @param mutation change to apply over the latest stored state.
+     * @return the saved account, or empty when the account does not exist.
+     */
+    Mono<BankAccount> update(String id, UnaryOperator<BankAccount> mutation);
+
+    Flux<AccountResponse> findAll(AccountQuery accountQuery);
 
     Mono<Void> delete(BankAccount bankAccount);
 
+    /**
+     * Atomically deletes the account only if its outbox has no pending postings and no transfer is in progress.
+     *
+     * @return whether the account was deleted.
+     */
+    Mono<Boolean> deleteIfSettled(String id);
+
     Mono<Boolean> existsByClientIdAndType(String clientId, String type);
 
+    /**
+     * Atomically adds {@code amount} to the account balance, counts one movement and appends
+     * {@code posting} to the account outbox, only if the current balance is at least {@code requiredBalance}
+     * and, when given, the account has still used {@code movementsUsed} movements.
+     * The balance of the posting is set by the database to the balance resulting from the movement.
+     *
+     * @param id              account id.
+     * @param amount          signed amount to add to the balance.
+     * @param requiredBalance minimum balance the account must hold for the movement to apply.
+     * @param movementsUsed   movements the account must have used, or null for any.
+     * @param posting         transaction posting to deliver once the movement is stored.
+     * @return the updated account, or empty when the account does not exist or the guard fails.
+     */
+    Mono<BankAccount> applyMovement(String id, BigDecimal amount, BigDecimal requiredBalance, Integer movementsUsed,
+                                    PendingTransaction posting);
+
+    /**
+     * Atomically adds {@code amount} to the balance as part of transfer {@code transferId} and marks the
+     * account with the transfer id. Applies only once per transfer and, when {@code requiredBalance} is
+     * not null, only if the current balance is at least {@code requiredBalance}.
+     *
+     * @return the updated account, or empty when the step was already applied or the guard fails.
+     */
+    Mono<BankAccount> applyTransferStep(String id, String transferId, BigDecimal amount, BigDecimal requiredBalance);
+
+    /**
+     * Clears the transfer mark of the account and appends {@code posting} to its outbox in one atomic update.
+     *
+     * @return the updated account, or empty when the account is not marked with the transfer.
+     */
+    Mono<BankAccount> settleTransferStep(String id, String transferId, PendingTransaction posting);
+
+    /**
+     * Reverts a transfer step: adds {@code amount} back to the balance and clears the transfer mark.
+     *
+     * @return the updated account, or empty when the account is not marked with the transfer.
+     */
+    Mono<BankAccount> revertTransferStep(String id, String transferId, BigDecimal amount);
+
+    Mono<Boolean> hasPendingTransfer(String id, String transferId);
+
+    /**
+     * Leases up to {@code batchSize} accounts with pending transaction postings, so that only one
+     * relay delivers them until the lease expires.
+     */
+    Flux<BankAccount> claimPendingTransactions(int batchSize, Duration lease);
+
+    /**
+     * Removes the delivered postings from the account outbox and, if {@code releaseLease}, releases its lease.
+     */
+    Mono<Void> acknowledgePendingTransactions(String id, List<String> idempotencyKeys, boolean releaseLease);
+
 }
@@ -0,0 +1,29 @@
+package com.sgi.account.domain.ports.out;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository interface defining operations on the per-client product counters.
+ */
+public interface ClientProductCounterRepository {
+
+    /**
+     * Atomically counts one more account of {@code type} for the client, only if the client holds fewer
+     * than {@code limit} accounts of that type. A null limit counts the account unconditionally.
+     * The counters of the client are created on first use.
+     *
+     * @return whether the account was counted.
+     */
+    Mono<Boolean> increment(String clientId, String type, Integer limit);
+
+    /**
+     * Atomically counts one account of {@code type} less for the client, never going below zero.
+     */
+    Mono<Void> decrement(String clientId, String type);
+
+    /**
+     * Raises the counter of {@code type} for the client to {@code count} if it is lower.
+     */
+    Mono<Void> raiseTo(String clientId, String type, int count);
+
+}
@@ -1,14 +1,20 @@
 package com.sgi.account.domain.ports.out;
 
+import org.springframework.core.io.buffer.DataBuffer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+
 /**
  * Interface for making reactive POST and GET HTTP requests to external services.
  * Defines methods for sending and receiving data asynchronously using Mono and Flux.
  */
 public interface FeignExternalService {
     <T, R> Mono<R> post(String url, T requestBody, Class<R> responseType);
+    <T, R> Mono<R> post(String url, String idempotencyKey, T requestBody, Class<R> responseType);
     <R> Flux<R> getFlux(String url,  String pathVariable, Class<R> responseType);
     <R> Mono<R> getMono(String url, String pathVariable, Class<R> responseType);
+    <R> Flux<R> getFluxStream(String url, Map<String, ?> uriVariables, Class<R> responseType);
+    Flux<DataBuffer> getStream(String url, Map<String, ?> uriVariables);
 }
@@ -0,0 +1,29 @@
+package com.sgi.account.domain.ports.out;
+
+import com.sgi.account.domain.model.OnboardingResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Repository interface defining operations to record the results of bulk account onboardings.
+ */
+public interface OnboardingResultRepository {
+
+    /**
+     * Records the results with a single unordered bulk write. Results already recorded are left as they are.
+     */
+    Mono<Void> saveAll(List<OnboardingResult> results);
+
+    /**
+     * Reads the results of the batch with an index greater than {@code after}, in index order.
+     */
+    Flux<OnboardingResult> findByBatchId(String batchId, long after);
+
+    /**
+     * Reads only the indexes of the rows of the batch that already have a result.
+     */
+    Flux<Long> findIndexesByBatchId(String batchId);
+
+}
@@ -0,0 +1,17 @@
+package com.sgi.account.domain.ports.out;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository interface defining operations on named sequences.
+ */
+public interface SequenceRepository {
+
+    /**
+     * Atomically advances the sequence by {@code blockSize}, creating it when missing.
+     *
+     * @return the first value of the reserved block; the block ends at {@code first + blockSize - 1}.
+     */
+    Mono<Long> reserve(String name, int blockSize);
+
+}
@@ -0,0 +1,34 @@
+package com.sgi.account.domain.ports.out;
+
+import com.sgi.account.domain.model.TransferSaga;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Repository interface defining operations to persist transfer sagas.
+ */
+public interface TransferSagaRepository {
+
+    Mono<TransferSaga> save(TransferSaga transferSaga);
+
+    Mono<TransferSaga> findById(String id);
+
+    /**
+     * Moves the saga from {@code from} to {@code to} only if it is still in {@code from}.
+     *
+     * @return the updated saga, or empty when the saga is no longer in {@code from}.
+     */
+    Mono<TransferSaga> transition(String id, TransferSaga.State from, TransferSaga.State to, String failureReason);
+
+    Flux<TransferSaga> findUnfinished(Instant updatedBefore);
+
+    /**
+     * Takes over an unfinished saga that has not been updated since {@code updatedBefore} by refreshing its update date.
+     *
+     * @return the claimed saga, or empty when it finished or another runner claimed it first.
+     */
+    Mono<TransferSaga> claimStale(String id, Instant updatedBefore);
+
+}
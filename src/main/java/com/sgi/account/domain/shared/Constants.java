@@ -1,19 +1,13 @@
 package com.sgi.account.domain.shared;
 
-import java.util.Random;
-
 /**
- * Utility class for defining constants and helper methods used throughout the application.
- * This class includes static constants and a method to generate unique account numbers.
+ * Utility class for defining constants used throughout the application.
  */
 public class Constants {
 
-    public static final String EXTERNAL_REQUEST_SUCCESS_FORMAT = "Request to {} succeeded: {}";
-    public static final String EXTERNAL_REQUEST_ERROR_FORMAT = "Error during request to {}";
+    public static final String EXTERNAL_REQUEST_SUCCESS_FORMAT = "Downstream request method={} url={} status={} latencyMs={} elements={}";
+    public static final String EXTERNAL_REQUEST_ERROR_FORMAT = "Downstream request failed method={} url={} status={} latencyMs={} error={}";
+    public static final String EXTERNAL_REQUEST_PAYLOAD_FORMAT = "Downstream response method={} url={} body={}";
     public static final String COMPLETED = "COMPLETED";
 
-    public static String generateAccountNumber() {
-        return String.format("%04d00%012d", new Random().nextInt(10000), new Random().nextLong(1000000000000L));
-    }
-
 }
@@ -21,6 +21,16 @@ public enum CustomError {
     E_MALFORMED_ACCOUNT_DATA(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-003", "Malformed account data")),
     E_MISSING_REQUIRED_ACCOUNT_DATA(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-006", "Missing required account data")),
     E_DUPLICATE_ACCOUNT_NUMBER(new ApiError(HttpStatus.CONFLICT, "ACCOUNT-005", "Account with this number already exists")),
+    E_CONCURRENT_MODIFICATION(new ApiError(HttpStatus.CONFLICT, "ACCOUNT-008", "The account was modified concurrently, try again")),
+    E_ACCOUNT_NOT_SETTLED(new ApiError(HttpStatus.CONFLICT, "ACCOUNT-016",
+            "The account has movements or transfers still being processed, try again later")),
+    E_TRANSFER_IN_PROGRESS(new ApiError(HttpStatus.CONFLICT, "ACCOUNT-009",
+            "The transfer is still being processed, check the account later")),
+    E_INVALID_QUERY(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-011", "Invalid query parameters")),
+    E_SAME_ACCOUNT_TRANSFER(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-015",
+            "The source and destination accounts of a transfer must be different")),
+    E_DEPENDENCY_UNAVAILABLE(new ApiError(HttpStatus.SERVICE_UNAVAILABLE, "ACCOUNT-013",
+            "A dependent service is unavailable, try again later")),
     E_MAX_SAVINGS_ACCOUNTS_REACHED(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-007",
             "The personal client cannot have more than one bank account.")),
     E_BUSINESS_CLIENT_CANNOT_HAVE_SAVINGS(new ApiError(HttpStatus.BAD_REQUEST, "ACCOUNT-010",
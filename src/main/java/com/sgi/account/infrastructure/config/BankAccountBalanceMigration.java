@@ -0,0 +1,55 @@
+package com.sgi.account.infrastructure.config;
+
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.account.domain.model.BankAccount;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject.Type;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Converts the balances of bank accounts stored before balances were written as Decimal128.
+ * The guarded balance updates compare and increment the balance as a Decimal128, so they never match a
+ * balance stored as a string or a double. The conversion runs once, recorded by a {@link MigrationMarker}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BankAccountBalanceMigration {
+
+    static final String MIGRATION_ID = "bank-account-balance-decimal128";
+
+    private static final String BALANCE_FIELD = "accountBalance.balance";
+
+    private static final Type[] LEGACY_TYPES = {Type.doubleType(), Type.stringType(), Type.intType(), Type.longType()};
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Converts the legacy balances once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void convertBalances() {
+        migrate().subscribe(count -> log.info("Converted the balance of {} bank accounts to Decimal128", count),
+                ex -> log.error("Failed to convert the bank account balances", ex));
+    }
+
+    Mono<Long> migrate() {
+        return MigrationMarker.runOnce(mongoTemplate, MIGRATION_ID, Mono.defer(() -> mongoTemplate.updateMulti(
+                        Query.query(Criteria.where(BALANCE_FIELD).type(LEGACY_TYPES)),
+                        AggregationUpdate.from(List.of(context -> new Document("$set",
+                                new Document(BALANCE_FIELD, new Document("$toDecimal", "$" + BALANCE_FIELD))))),
+                        BankAccount.class)
+                .map(UpdateResult::getModifiedCount)));
+    }
+}
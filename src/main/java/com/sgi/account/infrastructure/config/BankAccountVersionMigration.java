@@ -0,0 +1,35 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.domain.model.BankAccount;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Initializes the version field on bank accounts stored before optimistic locking was introduced.
+ * Without it, saving a legacy document would be treated as an insert and fail with a duplicate key.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BankAccountVersionMigration {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * Sets version 0 on the bank accounts without one once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeVersions() {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("version").exists(false)),
+                        new Update().set("version", 0L), BankAccount.class)
+                .subscribe(result -> log.info("Initialized version on {} bank accounts", result.getModifiedCount()),
+                        ex -> log.error("Failed to initialize bank account versions", ex));
+    }
+}
@@ -0,0 +1,98 @@
+package com.sgi.account.infrastructure.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sgi.account.domain.model.BalanceView;
+import com.sgi.account.infrastructure.dto.Customer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration class to define the caches of data owned by other services and of the balance read model.
+ * The caches are bounded by size and time to live, and publish their hit and miss counts
+ * as the 'cache.gets' metric tagged with the cache name.
+ */
+@Configuration
+public class CacheConfiguration {
+
+    public static final String CUSTOMER_CACHE = "customers";
+    public static final String CREDIT_CARD_CACHE = "credit-cards";
+    public static final String BALANCE_CACHE = "balances";
+
+    @Bean
+    public AsyncCache<String, Customer> customerCache(@Value("${app.cache.customers.ttl:5m}") Duration ttl,
+                                                      @Value("${app.cache.customers.max-size:10000}") long maxSize,
+                                                      MeterRegistry meterRegistry) {
+        AsyncCache<String, Customer> cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), CUSTOMER_CACHE, Tags.empty()).bindTo(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * Whether a client holds a credit card, keyed by client id. Clients without a card are cached for a
+     * shorter time, since a new card only shows up when its creation event is missed.
+     */
+    @Bean
+    public AsyncCache<String, Boolean> creditCardCache(@Value("${app.cache.credit-cards.ttl:30m}") Duration ttl,
+                                                       @Value("${app.cache.credit-cards.negative-ttl:1m}") Duration negativeTtl,
+                                                       @Value("${app.cache.credit-cards.max-size:10000}") long maxSize,
+                                                       MeterRegistry meterRegistry) {
+        AsyncCache<String, Boolean> cache = Caffeine.newBuilder()
+                .expireAfter(expireByValue(ttl, negativeTtl))
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), CREDIT_CARD_CACHE, Tags.empty()).bindTo(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * Balances by account id. Entries are kept up to date by the writes and the change stream of the
+     * bank accounts; the time to live only bounds how long a missed invalidation can be served.
+     */
+    @Bean
+    public AsyncCache<String, BalanceView> balanceCache(@Value("${app.cache.balances.ttl:10m}") Duration ttl,
+                                                        @Value("${app.cache.balances.max-size:100000}") long maxSize,
+                                                        MeterRegistry meterRegistry) {
+        AsyncCache<String, BalanceView> cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), BALANCE_CACHE, Tags.empty()).bindTo(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * Expires true values after {@code ttl} and false values after {@code negativeTtl}.
+     */
+    public static Expiry<String, Boolean> expireByValue(Duration ttl, Duration negativeTtl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Boolean value, long currentTime) {
+                return Boolean.TRUE.equals(value) ? ttl.toNanos() : negativeTtl.toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Boolean value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Boolean value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
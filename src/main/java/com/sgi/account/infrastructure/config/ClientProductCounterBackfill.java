@@ -0,0 +1,64 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * One-off migration that initializes the per-client product counters from the stored bank accounts.
+ * It runs once, recorded by a {@link MigrationMarker}; until the marker is completed, limited increments
+ * also count the stored accounts of the client, see {@code ClientProductCounterRepositoryImpl}.
+ * A deletion between the count and the raise of a counter leaves it one too high, so it is best run
+ * while few accounts are being deleted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClientProductCounterBackfill {
+
+    public static final String MIGRATION_ID = "client-product-counters-backfill";
+
+    @Value("${app.account.product-counters.backfill:true}")
+    private boolean enabled = true;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ClientProductCounterRepository clientProductCounterRepository;
+
+    /**
+     * Runs the backfill once the application is ready, unless it is disabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCounters() {
+        if (!enabled) {
+            return;
+        }
+        migrate().subscribe(count -> log.info("Initialized {} client product counters", count),
+                ex -> log.error("Failed to initialize the client product counters", ex));
+    }
+
+    Mono<Long> migrate() {
+        return MigrationMarker.runOnce(mongoTemplate, MIGRATION_ID, Mono.defer(this::backfill));
+    }
+
+    private Mono<Long> backfill() {
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Aggregation.group("clientId", "type").count().as("count")),
+                        BankAccount.class, Document.class)
+                .filter(group -> group.get("_id", Document.class).getString("clientId") != null
+                        && group.get("_id", Document.class).getString("type") != null)
+                .concatMap(group -> clientProductCounterRepository.raiseTo(
+                                group.get("_id", Document.class).getString("clientId"),
+                                group.get("_id", Document.class).getString("type"),
+                                group.getInteger("count"))
+                        .thenReturn(group))
+                .count();
+    }
+}
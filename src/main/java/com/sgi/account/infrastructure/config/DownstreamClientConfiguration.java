@@ -0,0 +1,31 @@
+package com.sgi.account.infrastructure.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class to define the isolation of the downstream services.
+ * Each downstream gets its own circuit breaker, whose time limit covers the connect and
+ * response timeouts of its client, so a slow call fails on the client timeout first.
+ */
+@Configuration
+@EnableConfigurationProperties(DownstreamClientProperties.class)
+public class DownstreamClientConfiguration {
+
+    /**
+     * Configures a circuit breaker per downstream, whose time limit covers its connect and response timeouts.
+     */
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> downstreamCircuitBreakers(DownstreamClientProperties properties) {
+        return factory -> properties.getConfig().forEach((name, downstream) -> factory.configure(builder -> builder
+                .circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+                .timeLimiterConfig(TimeLimiterConfig.custom()
+                        .timeoutDuration(downstream.getConnectTimeout().plus(downstream.getResponseTimeout()))
+                        .build()), name));
+    }
+}
@@ -0,0 +1,72 @@
+package com.sgi.account.infrastructure.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the HTTP clients of the downstream services, keyed by service name,
+ * e.g. {@code feign.client.config.customer-service.response-timeout=2s}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "feign.client")
+public class DownstreamClientProperties {
+
+    private Map<String, Downstream> config = new LinkedHashMap<>();
+    private RequestLog requestLog = new RequestLog();
+
+    /**
+     * Sampling of the downstream request log. Failures are always logged; response bodies
+     * are only logged at DEBUG level when {@code payloads} is enabled.
+     */
+    @Getter
+    @Setter
+    public static class RequestLog {
+        private double sampleRate = 0.01;
+        private boolean payloads;
+    }
+
+    /**
+     * Connection pool, timeouts and isolation limits of one downstream service.
+     */
+    @Getter
+    @Setter
+    public static class Downstream {
+        private String url;
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(1);
+        private Duration maxIdleTime = Duration.ofSeconds(20);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration responseTimeout = Duration.ofSeconds(3);
+        /**
+         * Negotiates HTTP/2 (h2 over TLS, h2c otherwise), falling back to HTTP/1.1 when the server does not support it.
+         */
+        private boolean http2;
+        private int maxConcurrentCalls = 50;
+        private Duration maxWaitDuration = Duration.ZERO;
+        /**
+         * Retries of idempotent GETs on transient failures, with jittered exponential backoff.
+         */
+        private int maxRetries = 2;
+        private Duration retryMinBackoff = Duration.ofMillis(50);
+        private Duration retryMaxBackoff = Duration.ofMillis(500);
+        /**
+         * Retries and hedges allowed per request, with a reserve of at most {@code retryBudgetMaxTokens}.
+         */
+        private double retryBudgetRatio = 0.1;
+        private int retryBudgetMaxTokens = 10;
+        /**
+         * Sends a second idempotent GET when the first one is slower than the given latency percentile.
+         */
+        private boolean hedging;
+        private double hedgePercentile = 0.95;
+        private Duration hedgeMinDelay = Duration.ofMillis(10);
+    }
+}
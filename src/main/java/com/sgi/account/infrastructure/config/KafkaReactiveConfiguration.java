@@ -0,0 +1,70 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.infrastructure.subscriber.events.BankAccountEvent;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+import java.time.Duration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration class to define the reactive Kafka clients.
+ * They share the broker settings of the Spring Kafka properties.
+ */
+@Configuration
+public class KafkaReactiveConfiguration {
+
+    /**
+     * Receiver of the wallet validation requests. Offsets are never committed automatically:
+     * the consumer commits them once the responses are produced.
+     */
+    @Bean
+    public KafkaReceiver<String, String> bankAccountEventReceiver(KafkaProperties kafkaProperties,
+                                                                  @Value("${app.name}") String groupId,
+                                                                  @Value("${app.kafka.validation.max-poll-records:500}") int maxPollRecords) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties(null);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return KafkaReceiver.create(ReceiverOptions.<String, String>create(properties)
+                .subscription(List.of(BankAccountEvent.TOPIC)));
+    }
+
+    /**
+     * Sender of the events published by this service. Records are written once and in order per key
+     * (idempotent producer, acks from all replicas) and are sent in lz4 compressed batches, waiting up
+     * to the linger time for a batch to fill.
+     */
+    @Bean
+    public KafkaSender<String, byte[]> eventKafkaSender(KafkaProperties kafkaProperties,
+                                                        @Value("${app.kafka.producer.linger:5ms}") Duration linger,
+                                                        @Value("${app.kafka.producer.batch-size:65536}") int batchSize,
+                                                        @Value("${app.kafka.producer.max-in-flight:1024}") int maxInFlight) {
+        Map<String, Object> properties = kafkaProperties.buildProducerProperties(null);
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        properties.put(ProducerConfig.ACKS_CONFIG, "all");
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        return KafkaSender.create(SenderOptions.<String, byte[]>create(properties)
+                .maxInFlight(maxInFlight));
+    }
+}
@@ -0,0 +1,51 @@
+package com.sgi.account.infrastructure.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Runs a one-off data migration at most once across all instances, recording it with a marker document
+ * in the migrations collection. The marker is inserted before the migration runs, so only the instance
+ * that inserts it applies the migration; it is completed on success and removed on failure to be retried.
+ */
+@Slf4j
+public final class MigrationMarker {
+
+    public static final String COLLECTION = "migrations";
+
+    private MigrationMarker() {
+    }
+
+    /**
+     * Runs {@code migration} unless the marker {@code id} exists; completes empty when it is skipped.
+     */
+    static <T> Mono<T> runOnce(ReactiveMongoTemplate mongoTemplate, String id, Mono<T> migration) {
+        Query marker = Query.query(Criteria.where("_id").is(id));
+        return mongoTemplate.insert(new Document("_id", id).append("startedAt", Date.from(Instant.now())), COLLECTION)
+                .onErrorResume(DuplicateKeyException.class, ex -> {
+                    log.info("Migration {} was already applied", id);
+                    return Mono.empty();
+                })
+                .flatMap(started -> migration
+                        .flatMap(result -> mongoTemplate.updateFirst(marker,
+                                        new Update().set("completedAt", Date.from(Instant.now())), COLLECTION)
+                                .thenReturn(result))
+                        .onErrorResume(ex -> mongoTemplate.remove(marker, COLLECTION).then(Mono.error(ex))));
+    }
+
+    /**
+     * Whether the migration {@code id} ran to completion.
+     */
+    public static Mono<Boolean> isCompleted(ReactiveMongoTemplate mongoTemplate, String id) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(id).and("completedAt").exists(true)), COLLECTION);
+    }
+}
@@ -0,0 +1,89 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.OnboardingResult;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransferSaga;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the indexes declared on the documents at startup, since automatic index creation is disabled
+ * by default, and drops the legacy index on {id, accountNumber} and the account number index created
+ * before it was sparse, so that it is created again with its current options. Indexes that cannot be declared
+ * with annotations, such as partial indexes, are listed in {@link #PARTIAL_INDEXES}.
+ * When app.mongo.verify-query-plans is enabled, the repository query plans are checked afterwards
+ * and the startup fails if any of them scans the whole collection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexInitializer {
+
+    private static final String LEGACY_BANK_ACCOUNT_INDEX = "id_accountNumber_index";
+    private static final String ACCOUNT_NUMBER_INDEX = "accountNumber_index";
+
+    /**
+     * The outbox lease of the accounts with pending postings, for the outbox relay claims. Only the few
+     * accounts with postings not yet published are indexed.
+     */
+    static final IndexDefinition OUTBOX_CLAIM_INDEX = new Index()
+            .on("outboxLeaseUntil", Sort.Direction.ASC)
+            .named("outboxLeaseUntil_pending_index")
+            .partial(PartialIndexFilter.of(Criteria.where(PendingTransaction.FIELD + ".0").exists(true)));
+
+    static final Map<Class<?>, List<IndexDefinition>> PARTIAL_INDEXES = Map.of(
+            BankAccount.class, List.of(OUTBOX_CLAIM_INDEX));
+
+    @Value("${app.mongo.verify-query-plans:false}")
+    private boolean verifyQueryPlans;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final QueryPlanVerifier queryPlanVerifier;
+
+    /**
+     * Drops the legacy indexes, creates the declared and partial indexes and, if enabled, verifies the query plans.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIndexes() {
+        dropLegacyIndexes()
+                .thenMany(Flux.fromIterable(List.of(BankAccount.class, TransferSaga.class, OnboardingResult.class))
+                        .concatMap(this::ensureIndexes))
+                .then(Mono.defer(() -> verifyQueryPlans ? queryPlanVerifier.verify() : Mono.empty()))
+                .block();
+    }
+
+    private Mono<Void> dropLegacyIndexes() {
+        return mongoTemplate.indexOps(BankAccount.class).getIndexInfo()
+                .filter(index -> LEGACY_BANK_ACCOUNT_INDEX.equals(index.getName())
+                        || (ACCOUNT_NUMBER_INDEX.equals(index.getName()) && !index.isSparse()))
+                .concatMap(index -> mongoTemplate.indexOps(BankAccount.class).dropIndex(index.getName()))
+                .then();
+    }
+
+    private Flux<String> ensureIndexes(Class<?> documentType) {
+        ReactiveIndexOperations indexOperations = mongoTemplate.indexOps(documentType);
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        return Flux.<IndexDefinition>fromIterable(resolver.resolveIndexFor(documentType))
+                .concatWithValues(PARTIAL_INDEXES.getOrDefault(documentType, List.of()).toArray(IndexDefinition[]::new))
+                .concatMap(indexOperations::ensureIndex)
+                .doOnNext(index -> log.info("Ensured index {} on {}", index, documentType.getSimpleName()));
+    }
+}
@@ -0,0 +1,147 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.domain.model.AccountQuery;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.infrastructure.repository.impl.BankAccountRepositoryImpl;
+import com.sgi.account.infrastructure.repository.impl.TransferSagaRepositoryImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Runs explain() on the queries issued by the repositories and reports the ones whose winning plan
+ * contains a collection scan. The queries are built by the query methods of the repositories with sample
+ * values and mapped to the document fields the way the template maps them, so a new filter added to a
+ * repository query is verified without being listed here.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueryPlanVerifier {
+
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+    private static final String SAMPLE = "explain";
+
+    /**
+     * A repository query and the document type it is issued on.
+     */
+    record VerifiedQuery(String name, Class<?> documentType, Query query) {
+    }
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * The queries of the repositories, with one page query of the account list per filter, since any
+     * filter can be requested alone.
+     */
+    static List<VerifiedQuery> queries() {
+        Instant now = Instant.now();
+        return List.of(
+                new VerifiedQuery("BankAccountRepository.findById", BankAccount.class,
+                        BankAccountRepositoryImpl.byIdQuery(SAMPLE)),
+                new VerifiedQuery("BankAccountRepository.findTypesById", BankAccount.class,
+                        BankAccountRepositoryImpl.byIdsQuery(List.of(SAMPLE, SAMPLE + 1))),
+                new VerifiedQuery("BankAccountRepository.deleteIfSettled", BankAccount.class,
+                        BankAccountRepositoryImpl.settledQuery(SAMPLE)),
+                new VerifiedQuery("BankAccountRepository.existsByClientIdAndType", BankAccount.class,
+                        BankAccountRepositoryImpl.clientTypeQuery(SAMPLE, SAMPLE)),
+                new VerifiedQuery("BankAccountRepository.hasPendingTransfer", BankAccount.class,
+                        BankAccountRepositoryImpl.pendingTransferQuery(SAMPLE, SAMPLE)),
+                new VerifiedQuery("BankAccountRepository.claimPendingTransactions", BankAccount.class,
+                        BankAccountRepositoryImpl.claimQuery(now)),
+                pageQuery("clientId", AccountQuery.builder().clientId(SAMPLE)),
+                pageQuery("type", AccountQuery.builder().type(SAMPLE)),
+                pageQuery("accountId", AccountQuery.builder().accountId(SAMPLE)),
+                pageQuery("isActive", AccountQuery.builder().isActive(true)),
+                pageQuery("currency", AccountQuery.builder().currency(SAMPLE)),
+                pageQuery("after", AccountQuery.builder().after(SAMPLE)),
+                pageQuery("all filters", AccountQuery.builder().clientId(SAMPLE).type(SAMPLE).isActive(true)
+                        .currency(SAMPLE).after(SAMPLE)),
+                new VerifiedQuery("TransferSagaRepository.findUnfinished", TransferSaga.class,
+                        TransferSagaRepositoryImpl.unfinishedQuery(now)));
+    }
+
+    /**
+     * Explains every repository query.
+     *
+     * @return a Mono that completes when no plan scans the collection, or fails listing the queries that do.
+     */
+    public Mono<Void> verify() {
+        List<VerifiedQuery> queries = queries();
+        return Flux.fromIterable(queries)
+                .concatMap(query -> explain(query)
+                        .filter(QueryPlanVerifier::hasCollectionScan)
+                        .map(explain -> query.name()))
+                .collectList()
+                .flatMap(scans -> {
+                    if (scans.isEmpty()) {
+                        log.info("All {} repository queries use an index", queries.size());
+                        return Mono.empty();
+                    }
+                    return Mono.error(new IllegalStateException("Queries running as a collection scan: " + scans));
+                });
+    }
+
+    private Mono<Document> explain(VerifiedQuery query) {
+        MongoConverter converter = mongoTemplate.getConverter();
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(query.documentType()))
+                .flatMap(collection -> Mono.from(collection.find(filter(converter, query))
+                        .sort(sort(converter, query))
+                        .explain(Document.class)));
+    }
+
+    /**
+     * The filter of the query with the property names mapped to the document fields, as sent to the server.
+     */
+    static Document filter(MongoConverter converter, VerifiedQuery query) {
+        return new QueryMapper(converter).getMappedObject(query.query().getQueryObject(), entity(converter, query));
+    }
+
+    static Document sort(MongoConverter converter, VerifiedQuery query) {
+        return new QueryMapper(converter).getMappedSort(query.query().getSortObject(), entity(converter, query));
+    }
+
+    private static MongoPersistentEntity<?> entity(MongoConverter converter, VerifiedQuery query) {
+        return converter.getMappingContext().getPersistentEntity(query.documentType());
+    }
+
+    private static VerifiedQuery pageQuery(String filter, AccountQuery.AccountQueryBuilder accountQuery) {
+        return new VerifiedQuery("BankAccountRepository.findAll by " + filter, BankAccount.class,
+                BankAccountRepositoryImpl.pageQuery(accountQuery.limit(AccountQuery.DEFAULT_LIMIT).build()));
+    }
+
+    /**
+     * Tells whether the winning plan of an explain() result, in the classic or the slot based engine
+     * format, contains a collection scan stage.
+     */
+    static boolean hasCollectionScan(Document explain) {
+        Object queryPlanner = explain.get("queryPlanner");
+        Object winningPlan = queryPlanner instanceof Document planner ? planner.get("winningPlan") : explain.get("winningPlan");
+        return containsStage(winningPlan, COLLECTION_SCAN);
+    }
+
+    private static boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> stages) {
+            return stages.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sgi.account.infrastructure.config;
+
+import com.sgi.account.domain.ports.in.TransactionService;
+import com.sgi.account.infrastructure.controller.TransactionHistoryProxyHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Configuration class to enable the pass-through mode of the transaction history.
+ * Router functions are matched before the annotated controllers, so when
+ * {@code app.transactions.history.pass-through} is enabled this route serves
+ * GET /v1/accounts/{accountId}/transactions instead of the {@code BanckAccountController}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.transactions.history.pass-through", havingValue = "true")
+public class TransactionHistoryProxyConfiguration {
+
+    @Bean
+    public TransactionHistoryProxyHandler transactionHistoryProxyHandler(TransactionService transactionService) {
+        return new TransactionHistoryProxyHandler(transactionService);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> transactionHistoryProxyRoute(TransactionHistoryProxyHandler handler) {
+        return RouterFunctions.route(RequestPredicates.GET("/v1/accounts/{accountId}/transactions"),
+                handler::getAccountIdTransactions);
+    }
+}
@@ -1,9 +1,17 @@
 package com.sgi.account.infrastructure.controller;
 
+import com.sgi.account.domain.model.AccountQuery;
+import com.sgi.account.domain.model.TransactionHistoryQuery;
+import com.sgi.account.domain.ports.in.AccountOnboardingService;
 import com.sgi.account.domain.ports.in.BankAccountService;
 import com.sgi.account.domain.ports.in.TransactionService;
+import com.sgi.account.infrastructure.dto.AccountExistsBatchRequest;
+import com.sgi.account.infrastructure.dto.AccountExistsResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
+import com.sgi.account.infrastructure.dto.BatchTransferRequest;
+import com.sgi.account.infrastructure.dto.BatchTransferResponse;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
 import com.sgi.account.infrastructure.dto.DepositRequest;
 import com.sgi.account.infrastructure.dto.BalanceResponse;
 import com.sgi.account.infrastructure.dto.BalanceRequest;
@@ -13,12 +21,16 @@ import com.sgi.account.infrastructure.dto.TransferRequest;
 import com.sgi.account.infrastructure.dto.WithdrawalRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+
 /**
  * Controller to handle operations related to credits.
  */
@@ -28,6 +40,7 @@ public class BanckAccountController implements V1Api {
 
     private final BankAccountService bankAccountService;
     private final TransactionService transactionService;
+    private final AccountOnboardingService accountOnboardingService;
 
     @Override
     public Mono<ResponseEntity<AccountResponse>> createAccount(Mono<AccountRequest> accountRequest, ServerWebExchange exchange) {
@@ -36,6 +49,22 @@ public class BanckAccountController implements V1Api {
                         -> ResponseEntity.status(HttpStatus.CREATED).body(bankAccount));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<BulkAccountResponse>>> createAccountsBulk(String batchId, Flux<AccountRequest> accountRequest,
+                                                                            ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(accountOnboardingService.createAccounts(batchId, accountRequest)));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Flux<BulkAccountResponse>>> getAccountsBulkResults(String batchId, Long after,
+                                                                                ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(accountOnboardingService.getResults(batchId, after)));
+    }
+
     @Override
     public Mono<ResponseEntity<Void>> deleteAccount(String idAccount, ServerWebExchange exchange) {
         return bankAccountService.deleteAccount(idAccount)
@@ -49,6 +78,12 @@ public class BanckAccountController implements V1Api {
                 .map(bankAccount -> ResponseEntity.ok().body(bankAccount));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<AccountExistsResponse>>> existAccountsBatch(Mono<AccountExistsBatchRequest> accountExistsBatchRequest,
+                                                                               ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().body(bankAccountService.existAccounts(accountExistsBatchRequest)));
+    }
+
     @Override
     public Mono<ResponseEntity<AccountResponse>> getAccountById(String idAccount, ServerWebExchange exchange) {
         return bankAccountService.getAccountById(idAccount)
@@ -67,13 +102,32 @@ public class BanckAccountController implements V1Api {
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<TransactionResponse>>> getAccountIdTransactions(String accountId, ServerWebExchange exchange) {
-        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.getAccountIdTransactions(accountId)));
+    public Mono<ResponseEntity<Flux<TransactionResponse>>> getAccountIdTransactions(String accountId, OffsetDateTime from,
+                                                                                   OffsetDateTime to, Integer limit, String cursor,
+                                                                                   ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().body(transactionService.getAccountIdTransactions(accountId,
+                TransactionHistoryQuery.builder()
+                        .from(from)
+                        .to(to)
+                        .limit(limit)
+                        .cursor(cursor)
+                        .build())));
     }
 
     @Override
-    public Mono<ResponseEntity<Flux<AccountResponse>>> getAllAccounts(String clientId, String type, String accountId, ServerWebExchange exchange) {
-        return Mono.fromSupplier(() -> ResponseEntity.ok().body(bankAccountService.getAllAccounts(clientId, type, accountId)));
+    public Mono<ResponseEntity<Flux<AccountResponse>>> getAllAccounts(String clientId, String type, String accountId, Boolean isActive,
+                                                                     String currency, String after, Integer limit, List<String> fields,
+                                                                     ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok().body(bankAccountService.getAllAccounts(AccountQuery.builder()
+                .clientId(clientId)
+                .type(type)
+                .accountId(accountId)
+                .isActive(isActive)
+                .currency(currency)
+                .after(after)
+                .limit(limit)
+                .fields(fields)
+                .build())));
     }
 
     @Override
@@ -83,6 +137,14 @@ public class BanckAccountController implements V1Api {
                 .map(transactionResponse -> ResponseEntity.ok().body(transactionResponse));
     }
 
+    @Override
+    public Mono<ResponseEntity<Flux<BatchTransferResponse>>> transferToAccountsBatch(Flux<BatchTransferRequest> batchTransferRequest,
+            ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(transactionService.transferFundsBatch(batchTransferRequest)));
+    }
+
     @Override
     public Mono<ResponseEntity<AccountResponse>> updateAccount(String idAccount, Mono<AccountRequest> accountRequest,
             ServerWebExchange exchange) {
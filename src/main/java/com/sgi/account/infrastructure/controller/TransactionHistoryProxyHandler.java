@@ -0,0 +1,50 @@
+package com.sgi.account.infrastructure.controller;
+
+import com.sgi.account.domain.model.TransactionHistoryQuery;
+import com.sgi.account.domain.ports.in.TransactionService;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.exception.CustomException;
+import com.sgi.account.infrastructure.exception.GlobalExceptionHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Pass-through handler for the transaction history of an account.
+ * The response of the transaction service is relayed buffer by buffer, so large histories are served
+ * with constant memory and without deserializing and serializing every transaction.
+ */
+@RequiredArgsConstructor
+public class TransactionHistoryProxyHandler {
+
+    private final TransactionService transactionService;
+
+    /**
+     * Relays the transaction history of the account, or the error response when the query is invalid or the account is missing.
+     */
+    public Mono<ServerResponse> getAccountIdTransactions(ServerRequest request) {
+        return Mono.fromCallable(() -> toQuery(request))
+                .onErrorMap(RuntimeException.class, ex -> new CustomException(CustomError.E_INVALID_QUERY))
+                .flatMap(query -> transactionService.streamAccountIdTransactions(request.pathVariable("accountId"), query))
+                .flatMap(history -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromDataBuffers(history)))
+                .onErrorResume(CustomException.class, ex -> ServerResponse.status(ex.getStatus())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(GlobalExceptionHandler.createErrorResponse(ex)));
+    }
+
+    private static TransactionHistoryQuery toQuery(ServerRequest request) {
+        return TransactionHistoryQuery.builder()
+                .from(request.queryParam("from").map(OffsetDateTime::parse).orElse(null))
+                .to(request.queryParam("to").map(OffsetDateTime::parse).orElse(null))
+                .limit(request.queryParam("limit").map(Integer::valueOf).orElse(null))
+                .cursor(request.queryParam("cursor").orElse(null))
+                .build();
+    }
+}
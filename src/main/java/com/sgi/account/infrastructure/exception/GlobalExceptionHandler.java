@@ -36,7 +36,7 @@ public class GlobalExceptionHandler {
      * @param ex Excepción personalizada.
      * @return Un objeto ErrorResponse con los detalles del error.
      */
-    private ErrorResponse createErrorResponse(CustomException ex) {
+    public static ErrorResponse createErrorResponse(CustomException ex) {
         LocalDateTime localDateTime = ex.getTimestamp();
         OffsetDateTime offsetDateTime = localDateTime.atOffset(ZoneOffset.UTC);
         return new ErrorResponse(ex.getStatus(), ex.getCode(), ex.getMessage(), offsetDateTime);
@@ -0,0 +1,185 @@
+package com.sgi.account.infrastructure.feign;
+
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.config.DownstreamClientProperties.Downstream;
+import com.sgi.account.infrastructure.exception.CustomException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.netty.channel.ChannelOption;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client of one downstream service, with its own connection pool, circuit breaker and bulkhead,
+ * so a slow or failing service only exhausts its own resources. Calls rejected by the bulkhead or by
+ * an open circuit fail fast with {@link CustomError#E_DEPENDENCY_UNAVAILABLE}.
+ * The pool publishes the reactor.netty.connection.provider metrics tagged with the downstream name.
+ * Idempotent calls can also be retried and hedged, both limited by a shared {@link RetryBudget}.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class DownstreamClient {
+
+    private final String name;
+    private final String url;
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final ReactiveCircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Downstream downstream;
+    private final RetryBudget retryBudget;
+    private final LatencyTracker latencyTracker;
+
+    /**
+     * Creates the client of the downstream {@code name} with its own connection pool, circuit breaker and bulkhead.
+     */
+    public static DownstreamClient create(String name, Downstream downstream, WebClient.Builder webClientBuilder,
+                                          ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .maxLifeTime(downstream.getMaxLifeTime())
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .responseTimeout(downstream.getResponseTimeout());
+        if (downstream.isHttp2()) {
+            boolean secure = downstream.getUrl() != null && downstream.getUrl().startsWith("https");
+            httpClient = secure
+                    ? httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    : httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        Bulkhead bulkhead = Bulkhead.of(name, BulkheadConfig.custom()
+                .maxConcurrentCalls(downstream.getMaxConcurrentCalls())
+                .maxWaitDuration(downstream.getMaxWaitDuration())
+                .build());
+        return new DownstreamClient(name, downstream.getUrl(),
+                webClientBuilder.clone().clientConnector(new ReactorClientHttpConnector(httpClient)).build(),
+                connectionProvider, circuitBreakerFactory.create(name), bulkhead, downstream,
+                new RetryBudget(downstream.getRetryBudgetRatio(), downstream.getRetryBudgetMaxTokens()),
+                new LatencyTracker(downstream.getHedgePercentile()));
+    }
+
+    public boolean serves(String requestUrl) {
+        return url != null && !url.isEmpty() && requestUrl.startsWith(url);
+    }
+
+    /**
+     * Runs the call through the circuit breaker and the bulkhead of the downstream.
+     */
+    public <R> Mono<R> protect(Mono<R> call) {
+        return call
+                .transformDeferred(circuitBreaker::run)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .onErrorMap(DownstreamClient::isRejected, ex -> new CustomException(CustomError.E_DEPENDENCY_UNAVAILABLE));
+    }
+
+    /**
+     * Streams the body of a response whose exchange was protected up to its headers, failing when the
+     * downstream sends no element within its response timeout.
+     *
+     * @param response the response whose headers were already received.
+     * @return the elements of the body as they arrive.
+     */
+    public <R> Flux<R> body(ResponseEntity<Flux<R>> response) {
+        return response.getBody() == null ? Flux.empty() : response.getBody().timeout(downstream.getResponseTimeout());
+    }
+
+    /**
+     * Runs an idempotent call, retrying transient failures with jittered backoff and, when hedging is
+     * enabled, sending a second attempt once the first one exceeds the latency percentile of the downstream.
+     * The first attempt that succeeds wins and the other one is cancelled.
+     *
+     * @param attempt supplies one protected attempt of the call.
+     * @return the response of the first successful attempt.
+     */
+    public <R> Mono<R> idempotent(Supplier<Mono<R>> attempt) {
+        return Mono.defer(() -> {
+                    retryBudget.deposit();
+                    return hedge(attempt)
+                            .retryWhen(Retry.backoff(downstream.getMaxRetries(), downstream.getRetryMinBackoff())
+                                    .maxBackoff(downstream.getRetryMaxBackoff())
+                                    .jitter(0.5)
+                                    .filter(ex -> isTransient(ex) && retryBudget.tryWithdraw())
+                                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+                })
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private <R> Mono<Optional<R>> hedge(Supplier<Mono<R>> attempt) {
+        return Mono.defer(() -> {
+            Optional<Duration> percentile = downstream.isHedging() ? latencyTracker.percentile() : Optional.empty();
+            if (percentile.isEmpty()) {
+                return timed(attempt);
+            }
+            Duration delay = percentile.get().compareTo(downstream.getHedgeMinDelay()) < 0
+                    ? downstream.getHedgeMinDelay() : percentile.get();
+            Sinks.One<Boolean> primaryFailed = Sinks.one();
+            Mono<Optional<R>> hedged = Mono.delay(delay)
+                    .takeUntilOther(primaryFailed.asMono())
+                    .filter(tick -> retryBudget.tryWithdraw())
+                    .flatMap(tick -> timed(attempt));
+            return Mono.firstWithValue(timed(attempt).doOnError(ex -> primaryFailed.tryEmitValue(true)), hedged)
+                    .onErrorMap(NoSuchElementException.class, DownstreamClient::firstFailure);
+        });
+    }
+
+    private <R> Mono<Optional<R>> timed(Supplier<Mono<R>> attempt) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.get()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnNext(response -> latencyTracker.record(System.nanoTime() - start));
+        });
+    }
+
+    private static Throwable firstFailure(NoSuchElementException ex) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        return Exceptions.unwrapMultiple(cause).stream()
+                .filter(failure -> !(failure instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(ex);
+    }
+
+    private static boolean isTransient(Throwable ex) {
+        if (ex instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode().value() == 429;
+        }
+        return ex instanceof WebClientRequestException || ex instanceof TimeoutException;
+    }
+
+    private static boolean isRejected(Throwable ex) {
+        return ex instanceof BulkheadFullException || ex instanceof CallNotPermittedException;
+    }
+}
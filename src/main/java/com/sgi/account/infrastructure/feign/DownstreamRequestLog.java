@@ -0,0 +1,113 @@
+package com.sgi.account.infrastructure.feign;
+
+import com.sgi.account.infrastructure.config.DownstreamClientProperties.RequestLog;
+import com.sgi.account.infrastructure.exception.CustomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.sgi.account.domain.shared.Constants.EXTERNAL_REQUEST_ERROR_FORMAT;
+import static com.sgi.account.domain.shared.Constants.EXTERNAL_REQUEST_PAYLOAD_FORMAT;
+import static com.sgi.account.domain.shared.Constants.EXTERNAL_REQUEST_SUCCESS_FORMAT;
+
+/**
+ * Request log of the downstream calls. It records the url template, status, latency and element
+ * count of a sample of the successful calls and of every failed call, without rendering the bodies,
+ * so large responses are never converted to text on the event loop.
+ */
+@Slf4j
+public class DownstreamRequestLog {
+
+    private static final String NOT_AVAILABLE = "-";
+
+    private final double sampleRate;
+    private final boolean payloads;
+
+    public DownstreamRequestLog(RequestLog requestLog) {
+        this.sampleRate = requestLog.getSampleRate();
+        this.payloads = requestLog.isPayloads();
+    }
+
+    /**
+     * Logs the outcome and the latency of the exchange, without rendering the response body.
+     */
+    public <R> Mono<ResponseEntity<R>> record(String method, String url, Mono<ResponseEntity<R>> exchange) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return exchange
+                    .doOnNext(response -> success(method, url, response, System.nanoTime() - start))
+                    .doOnError(ex -> failure(method, url, ex, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Records a streamed response. Decoded elements are counted; raw {@link DataBuffer}s are not,
+     * since their number depends on how the body was split on the wire.
+     */
+    public <T> Flux<T> recordStream(String method, String url, Flux<T> body) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong elements = new AtomicLong();
+            AtomicBoolean raw = new AtomicBoolean();
+            return body
+                    .doOnNext(element -> {
+                        if (element instanceof DataBuffer) {
+                            raw.set(true);
+                        } else {
+                            elements.incrementAndGet();
+                        }
+                    })
+                    .doOnComplete(() -> sample(method, url, HttpStatus.OK.value(), System.nanoTime() - start,
+                            raw.get() ? NOT_AVAILABLE : elements.get()))
+                    .doOnError(ex -> failure(method, url, ex, System.nanoTime() - start));
+        });
+    }
+
+    void success(String method, String url, ResponseEntity<?> response, long elapsedNanos) {
+        if (payloads && log.isDebugEnabled()) {
+            log.debug(EXTERNAL_REQUEST_PAYLOAD_FORMAT, method, url, response.getBody());
+        }
+        sample(method, url, response.getStatusCode().value(), elapsedNanos, elements(response.getBody()));
+    }
+
+    private void sample(String method, String url, int status, long elapsedNanos, Object elements) {
+        if (log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info(EXTERNAL_REQUEST_SUCCESS_FORMAT, method, url, status,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), elements);
+        }
+    }
+
+    void failure(String method, String url, Throwable ex, long elapsedNanos) {
+        if (log.isErrorEnabled()) {
+            log.error(EXTERNAL_REQUEST_ERROR_FORMAT, method, url, status(ex),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ex.toString());
+        }
+    }
+
+    private static int elements(Object body) {
+        if (body instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        return body == null ? 0 : 1;
+    }
+
+    private static Object status(Throwable ex) {
+        if (ex instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value();
+        }
+        if (ex instanceof CustomException customException) {
+            return customException.getCode();
+        }
+        return NOT_AVAILABLE;
+    }
+}
@@ -2,75 +2,134 @@ package com.sgi.account.infrastructure.feign;
 
 import com.sgi.account.domain.ports.out.FeignExternalService;
 import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.config.DownstreamClientProperties;
 import com.sgi.account.infrastructure.exception.CustomException;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import jakarta.annotation.PreDestroy;
 import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import static com.sgi.account.domain.shared.Constants.EXTERNAL_REQUEST_ERROR_FORMAT;
-import static com.sgi.account.domain.shared.Constants.EXTERNAL_REQUEST_SUCCESS_FORMAT;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementación del servicio externo Feign para realizar solicitudes HTTP de manera reactiva con soporte de Circuit Breaker.
+ * Cada servicio configurado en {@code feign.client.config} tiene su propio cliente ({@link DownstreamClient}),
+ * elegido por el prefijo de la URL; las URLs no configuradas usan el cliente por defecto "account-service".
+ * Los GET son idempotentes, por lo que se reintentan y, si se habilita, se duplican (hedging) cuando tardan;
+ * en getFlux solo se reintenta el intercambio hasta las cabeceras, y el cuerpo se emite a medida que llega,
+ * por lo que un reintento nunca repite elementos ya emitidos.
+ * getFluxStream y getStream no se reintentan ni acumulan: emiten cada elemento (NDJSON) o DataBuffer a medida
+ * que llega, con backpressure hacia el servicio remoto. El circuit breaker, su time limiter y el bulkhead solo
+ * cubren el intercambio hasta las cabeceras de la respuesta, de modo que un stream largo no se corta ni retiene
+ * el cupo del bulkhead; el cuerpo falla si el servicio deja de enviar elementos durante el response timeout.
+ * Cada llamada se registra en el {@link DownstreamRequestLog} sin renderizar el cuerpo de la respuesta.
  */
-@Slf4j
 @Service
 public class FeignExternalServiceImpl implements FeignExternalService {
 
-    private final WebClient webClient;
-    private final ReactiveCircuitBreaker circuitBreaker;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
-    public FeignExternalServiceImpl(WebClient.Builder webClientBuilder, ReactiveCircuitBreakerFactory circuitBreakerFactory) {
-        this.webClient = webClientBuilder.build();
-        this.circuitBreaker = circuitBreakerFactory.create("account-service");
+    private static final String DEFAULT_CLIENT = "account-service";
+
+    private final List<DownstreamClient> downstreamClients;
+    private final DownstreamClient defaultClient;
+    private final DownstreamRequestLog requestLog;
+
+    public FeignExternalServiceImpl(WebClient.Builder webClientBuilder, ReactiveCircuitBreakerFactory circuitBreakerFactory,
+                                    DownstreamClientProperties properties) {
+        this.downstreamClients = properties.getConfig().entrySet().stream()
+                .map(entry -> DownstreamClient.create(entry.getKey(), entry.getValue(), webClientBuilder, circuitBreakerFactory))
+                .toList();
+        this.defaultClient = DownstreamClient.create(DEFAULT_CLIENT, new DownstreamClientProperties.Downstream(),
+                webClientBuilder, circuitBreakerFactory);
+        this.requestLog = new DownstreamRequestLog(properties.getRequestLog());
+    }
+
+    @PreDestroy
+    public void close() {
+        downstreamClients.forEach(client -> client.getConnectionProvider().dispose());
+        defaultClient.getConnectionProvider().dispose();
     }
 
     @Override
     public <T, R> Mono<R> post(String url, T requestBody, Class<R> responseType) {
-        return webClient.post()
-                .uri(url)
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(responseType)
-                .doOnNext(response -> logSuccess(url, response))
-                .doOnError(ex -> logError(url, ex))
-                .onErrorResume(ex -> Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)))
-                .transformDeferred(circuitBreaker::run);
+        DownstreamClient client = resolve(url);
+        return exchangePost(client, client.getWebClient().post().uri(url), url, requestBody, responseType);
+    }
+
+    @Override
+    public <T, R> Mono<R> post(String url, String idempotencyKey, T requestBody, Class<R> responseType) {
+        DownstreamClient client = resolve(url);
+        return exchangePost(client, client.getWebClient().post().uri(url).header(IDEMPOTENCY_KEY_HEADER, idempotencyKey),
+                url, requestBody, responseType);
+    }
+
+    private <T, R> Mono<R> exchangePost(DownstreamClient client, WebClient.RequestBodySpec request, String url,
+                                        T requestBody, Class<R> responseType) {
+        return requestLog.record("POST", url, client.protect(request
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .toEntity(responseType)))
+                .mapNotNull(ResponseEntity::getBody)
+                .onErrorMap(ex -> !(ex instanceof CustomException), ex -> new CustomException(CustomError.E_OPERATION_FAILED));
     }
 
     @Override
     public <R> Flux<R> getFlux(String url, String pathVariable, Class<R> responseType) {
-        return webClient.get()
-                .uri(url, pathVariable)
-                .retrieve()
-                .bodyToFlux(responseType)
-                .doOnNext(response -> logSuccess(url, response))
-                .doOnError(ex -> logError(url, ex))
-                .onErrorResume(ex -> Flux.error(new CustomException(CustomError.E_OPERATION_FAILED)))
-                .transformDeferred(circuitBreaker::run);
+        DownstreamClient client = resolve(url);
+        return requestLog.recordStream("GET", url, client.idempotent(() -> client.protect(client.getWebClient().get()
+                                .uri(url, pathVariable)
+                                .retrieve()
+                                .toEntityFlux(responseType)))
+                        .flatMapMany(client::body))
+                .onErrorMap(ex -> !(ex instanceof CustomException), ex -> new CustomException(CustomError.E_OPERATION_FAILED));
     }
 
     @Override
     public <R> Mono<R> getMono(String url, String pathVariable, Class<R> responseType) {
-        return webClient.get()
-                .uri(url, pathVariable)
-                .retrieve()
-                .bodyToMono(responseType)
-                .doOnNext(response -> logSuccess(url, response))
-                .doOnError(ex -> logError(url, ex))
-                .onErrorResume(ex -> Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)))
-                .transformDeferred(circuitBreaker::run);
+        DownstreamClient client = resolve(url);
+        return requestLog.record("GET", url, client.idempotent(() -> client.protect(client.getWebClient().get()
+                        .uri(url, pathVariable)
+                        .retrieve()
+                        .toEntity(responseType))))
+                .mapNotNull(ResponseEntity::getBody)
+                .onErrorMap(ex -> !(ex instanceof CustomException), ex -> new CustomException(CustomError.E_OPERATION_FAILED));
+    }
+
+    @Override
+    public <R> Flux<R> getFluxStream(String url, Map<String, ?> uriVariables, Class<R> responseType) {
+        DownstreamClient client = resolve(url);
+        return requestLog.recordStream("GET", url, client.protect(client.getWebClient().get()
+                                .uri(url, uriVariables)
+                                .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                                .retrieve()
+                                .toEntityFlux(responseType))
+                        .flatMapMany(client::body))
+                .onErrorMap(ex -> !(ex instanceof CustomException), ex -> new CustomException(CustomError.E_OPERATION_FAILED));
     }
 
-    private <R> void logSuccess(String url, R response) {
-        log.info(EXTERNAL_REQUEST_SUCCESS_FORMAT, url, response);
+    @Override
+    public Flux<DataBuffer> getStream(String url, Map<String, ?> uriVariables) {
+        DownstreamClient client = resolve(url);
+        return requestLog.recordStream("GET", url, client.protect(client.getWebClient().get()
+                                .uri(url, uriVariables)
+                                .accept(MediaType.APPLICATION_JSON)
+                                .retrieve()
+                                .toEntityFlux(DataBuffer.class))
+                        .flatMapMany(client::body))
+                .onErrorMap(ex -> !(ex instanceof CustomException), ex -> new CustomException(CustomError.E_OPERATION_FAILED));
     }
 
-    private void logError(String url, Throwable ex) {
-        log.error(EXTERNAL_REQUEST_ERROR_FORMAT, url, ex);
+    DownstreamClient resolve(String url) {
+        return downstreamClients.stream()
+                .filter(client -> client.serves(url))
+                .findFirst()
+                .orElse(defaultClient);
     }
 }
@@ -0,0 +1,59 @@
+package com.sgi.account.infrastructure.feign;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding window of the latest response times of a downstream service, used to decide when
+ * a request is slow enough to be hedged. The percentile is recomputed every {@value #REFRESH}
+ * samples and is not available until the window holds {@value #MIN_SAMPLES} of them.
+ */
+public class LatencyTracker {
+
+    private static final int WINDOW = 1024;
+    private static final int MIN_SAMPLES = 20;
+    private static final int REFRESH = 50;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(WINDOW);
+    private final AtomicLong count = new AtomicLong();
+
+    private volatile Duration cached;
+    private volatile long cachedAt;
+
+    public LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public void record(long nanos) {
+        samples.set((int) (count.getAndIncrement() % WINDOW), nanos);
+    }
+
+    /**
+     * The tracked percentile of the recent latencies, or empty until enough calls were recorded.
+     */
+    public Optional<Duration> percentile() {
+        long recorded = count.get();
+        if (recorded < MIN_SAMPLES) {
+            return Optional.empty();
+        }
+        if (cached == null || recorded - cachedAt >= REFRESH) {
+            cached = compute((int) Math.min(recorded, WINDOW));
+            cachedAt = recorded;
+        }
+        return Optional.of(cached);
+    }
+
+    private Duration compute(int size) {
+        long[] snapshot = new long[size];
+        for (int i = 0; i < size; i++) {
+            snapshot[i] = samples.get(i);
+        }
+        Arrays.sort(snapshot);
+        int index = Math.min(size - 1, Math.max(0, (int) Math.ceil(percentile * size) - 1));
+        return Duration.ofNanos(snapshot[index]);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sgi.account.infrastructure.feign;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the extra load created by retries and hedged requests.
+ * Every request deposits a fraction of a token and every retry or hedge withdraws a whole one,
+ * so under a widespread failure the extra calls stay around the configured ratio instead of
+ * multiplying the traffic sent to an already struggling service.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int maxTokens) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.maxBalance = maxTokens * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void deposit() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(maxBalance, current + amount));
+    }
+
+    public boolean tryWithdraw() {
+        return balance.getAndUpdate(current -> current >= TOKEN ? current - TOKEN : current) >= TOKEN;
+    }
+}
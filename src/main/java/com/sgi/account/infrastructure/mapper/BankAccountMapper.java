@@ -1,10 +1,13 @@
 package com.sgi.account.infrastructure.mapper;
 
+import com.sgi.account.domain.model.BalanceView;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.OnboardingResult;
 import com.sgi.account.infrastructure.dto.AccountBalanceResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
 import com.sgi.account.infrastructure.dto.BalanceResponse;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -27,6 +30,10 @@ public interface BankAccountMapper {
     AccountResponse toAccountResponse(BankAccount bankAccount);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "pendingTransactions", ignore = true)
+    @Mapping(target = "outboxLeaseUntil", ignore = true)
+    @Mapping(target = "pendingTransfers", ignore = true)
     @Mapping(target = "type", source = "type")
     BankAccount toAccount(AccountRequest accountRequest);
 
@@ -34,9 +41,19 @@ public interface BankAccountMapper {
     @Mapping(target = "accountBalance", source = "accountBalance.balance")
     BalanceResponse toBalance(BankAccount bankAccount);
 
+    @Mapping(target = "accountId", source = "id")
+    @Mapping(target = "balance", source = "accountBalance.balance")
+    @Mapping(target = "currency", source = "accountBalance.currency")
+    BalanceView toBalanceView(BankAccount bankAccount);
+
+    @Mapping(target = "accountBalance", source = "balance")
+    BalanceResponse toBalance(BalanceView balanceView);
+
     @Mapping(target = "status", source = "status")
     AccountBalanceResponse toAccountBalance(AccountResponse accountResponse, String status);
 
+    BulkAccountResponse toBulkAccountResponse(OnboardingResult onboardingResult);
+
     default OffsetDateTime map(Instant instant) {
         return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
     }
@@ -1,7 +1,9 @@
 package com.sgi.account.infrastructure.mapper;
 
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
 import com.sgi.account.infrastructure.dto.TransactionRequest;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
 import jakarta.validation.constraints.NotNull;
 import org.mapstruct.Mapper;
 import org.mapstruct.factory.Mappers;
@@ -44,4 +46,36 @@ public interface TransactionExternalMapper {
         return transaction;
     }
 
+    /**
+     * Maps a {@link PendingTransaction} stored in the outbox of a {@link BankAccount} to a {@link TransactionRequest} DTO.
+     *
+     * @param account the account the posting belongs to
+     * @param posting the pending posting
+     * @return a {@link TransactionRequest} containing the mapped data
+     */
+    default TransactionRequest map(BankAccount account, PendingTransaction posting) {
+        TransactionRequest transaction = new TransactionRequest();
+        transaction.setProductId(account.getId());
+        transaction.setDestinationProductId(posting.getDestinationProductId());
+        transaction.setClientId(account.getClientId());
+        transaction.setAmount(posting.getAmount().doubleValue());
+        transaction.setCommission(posting.getCommission().doubleValue());
+        transaction.setBalance(posting.getBalance().doubleValue());
+        transaction.setType(TypeEnum.fromValue(posting.getType()));
+        return transaction;
+    }
+
+    /**
+     * Maps a {@link PendingTransaction} to the {@link TransactionResponse} returned to the caller
+     * while the posting is still waiting in the outbox.
+     *
+     * @param account the account the posting belongs to
+     * @param posting the pending posting
+     * @return a {@link TransactionResponse} identified by the idempotency key of the posting
+     */
+    default TransactionResponse toTransactionResponse(BankAccount account, PendingTransaction posting) {
+        return new TransactionResponse(posting.getIdempotencyKey(), account.getId(), posting.getDestinationProductId(),
+                TransactionResponse.TypeEnum.fromValue(posting.getType()), posting.getAmount(), account.getClientId());
+    }
+
 }
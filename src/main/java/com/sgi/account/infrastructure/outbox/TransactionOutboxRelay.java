@@ -0,0 +1,112 @@
+package com.sgi.account.infrastructure.outbox;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import com.sgi.account.infrastructure.mapper.TransactionExternalMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background relay that drains the transaction outbox stored in the bank accounts.
+ * It leases accounts with pending postings in batches and delivers their postings, in order,
+ * to the transaction service using the posting idempotency key, so a redelivery after a crash
+ * or an expired lease does not create a duplicated transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionOutboxRelay {
+
+    @Value("${feign.client.config.transaction-service.url}")
+    private String transactionServiceUrl;
+
+    @Value("${app.outbox.relay.interval:1s}")
+    private Duration interval = Duration.ofSeconds(1);
+
+    @Value("${app.outbox.relay.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${app.outbox.relay.concurrency:8}")
+    private int concurrency = 8;
+
+    @Value("${app.outbox.relay.lease:30s}")
+    private Duration lease = Duration.ofSeconds(30);
+
+    private final BankAccountRepository bankAccountRepository;
+    private final FeignExternalService webClient;
+
+    private Disposable subscription;
+
+    /**
+     * Starts draining the account outboxes at the configured interval once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain())
+                .subscribe();
+    }
+
+    /**
+     * Stops draining the outboxes; postings not yet delivered are claimed again by another instance.
+     */
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Delivers one batch of pending postings.
+     *
+     * @return a Mono that completes when the batch has been processed.
+     */
+    public Mono<Void> drain() {
+        return bankAccountRepository.claimPendingTransactions(batchSize, lease)
+                .flatMap(this::relay, concurrency)
+                .then()
+                .onErrorResume(ex -> {
+                    log.error("Failed to drain the transaction outbox", ex);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Delivers the postings of a leased account and acknowledges the delivered ones. When a delivery fails,
+     * the account keeps its lease, so its remaining postings are only retried once the lease expires.
+     */
+    private Mono<Void> relay(BankAccount account) {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        return Flux.fromIterable(account.getPendingTransactions())
+                .concatMap(posting -> webClient.post(transactionServiceUrl.concat("/v1/transactions"),
+                                posting.getIdempotencyKey(),
+                                TransactionExternalMapper.INSTANCE.map(account, posting),
+                                TransactionResponse.class)
+                        .thenReturn(posting.getIdempotencyKey()))
+                .onErrorResume(ex -> {
+                    log.warn("Outbox delivery interrupted for account {}, remaining postings will be retried after {}",
+                            account.getId(), lease);
+                    interrupted.set(true);
+                    return Flux.empty();
+                })
+                .collectList()
+                .flatMap(delivered -> interrupted.get() && delivered.isEmpty()
+                        ? Mono.empty()
+                        : bankAccountRepository.acknowledgePendingTransactions(account.getId(), delivered, !interrupted.get()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.sgi.account.domain.model.AccountQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Builds the Mongo query of an {@link AccountQuery}.
+ * Every filter that is set is ANDed, so a query only matches the accounts that satisfy all of them.
+ * A new filter is added as one entry of {@link #FILTERS}, with the document property it matches.
+ */
+public final class AccountCriteriaBuilder {
+
+    private static final List<Filter> FILTERS = List.of(
+            new Filter("clientId", AccountQuery::getClientId),
+            new Filter("type", AccountQuery::getType),
+            new Filter("id", AccountQuery::getAccountId),
+            new Filter("isActive", AccountQuery::getIsActive),
+            new Filter("accountBalance.currency", AccountQuery::getCurrency));
+
+    private AccountCriteriaBuilder() {
+    }
+
+    /**
+     * The query matching every filter set in {@code accountQuery}, or all accounts when none is set.
+     */
+    public static Query toQuery(AccountQuery accountQuery) {
+        List<Criteria> criteria = Stream.concat(
+                        FILTERS.stream().map(filter -> filter.toCriteria(accountQuery)),
+                        Stream.of(accountQuery.getAfter() == null ? null : Criteria.where("id").gt(accountQuery.getAfter())))
+                .filter(Objects::nonNull)
+                .toList();
+        return switch (criteria.size()) {
+            case 0 -> new Query();
+            case 1 -> new Query(criteria.get(0));
+            default -> new Query(new Criteria().andOperator(criteria));
+        };
+    }
+
+    private record Filter(String property, Function<AccountQuery, Object> value) {
+
+        Criteria toCriteria(AccountQuery accountQuery) {
+            Object filterValue = value.apply(accountQuery);
+            return filterValue == null ? null : Criteria.where(property).is(filterValue);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import java.util.List;
+
+/**
+ * Reads the per-document errors of an unordered bulk write.
+ * Depending on its errors, a failed bulk write reaches the caller as a {@link BulkOperationException} or
+ * as a translated exception caused by the driver {@link MongoBulkWriteException}; both are supported.
+ */
+public final class BulkWriteErrors {
+
+    private BulkWriteErrors() {
+    }
+
+    /**
+     * @return the errors of the documents that were not written, or an empty list when {@code ex}
+     *         is not a bulk write failure.
+     */
+    public static List<BulkWriteError> of(Throwable ex) {
+        if (ex instanceof BulkOperationException bulkOperationException) {
+            return bulkOperationException.getErrors();
+        }
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException.getWriteErrors();
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * @return whether {@code ex} is a bulk write failure in which every error is a duplicate key.
+     */
+    public static boolean onlyDuplicateKeys(Throwable ex) {
+        List<BulkWriteError> errors = of(ex);
+        return !errors.isEmpty() && errors.stream().allMatch(BulkWriteErrors::isDuplicateKey);
+    }
+
+    /**
+     * The exception of a single write of the bulk: a duplicate key, or a data integrity violation otherwise.
+     */
+    public static DataAccessException toException(BulkWriteError error) {
+        return isDuplicateKey(error)
+                ? new DuplicateKeyException(error.getMessage())
+                : new DataIntegrityViolationException(error.getMessage());
+    }
+
+    private static boolean isDuplicateKey(BulkWriteError error) {
+        return ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+}
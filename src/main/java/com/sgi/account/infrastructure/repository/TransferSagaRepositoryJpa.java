@@ -0,0 +1,11 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.sgi.account.domain.model.TransferSaga;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Repositorio Reactivo para la entidad TransferSaga.
+ * Extiende de ReactiveMongoRepository para realizar operaciones CRUD en MongoDB.
+ */
+public interface TransferSagaRepositoryJpa extends ReactiveMongoRepository<TransferSaga, String> {
+}
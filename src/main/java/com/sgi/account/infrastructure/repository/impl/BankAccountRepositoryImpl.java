@@ -1,29 +1,98 @@
 package com.sgi.account.infrastructure.repository.impl;
 
+import com.sgi.account.domain.model.AccountQuery;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
 import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.shared.CustomError;
 import com.sgi.account.infrastructure.dto.AccountResponse;
+import com.sgi.account.infrastructure.exception.CustomException;
 import com.sgi.account.infrastructure.mapper.BankAccountMapper;
+import com.sgi.account.infrastructure.repository.AccountCriteriaBuilder;
 import com.sgi.account.infrastructure.repository.BankAccountRepositoryJpa;
+import com.sgi.account.infrastructure.repository.BulkWriteErrors;
+import com.mongodb.bulk.BulkWriteError;
 import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the {@link BankAccountRepository} interface.
  * Provides operations for managing bank accounts using a JPA-based repository.
+ * The filters of the queries are built by the public static query methods, which the
+ * {@link com.sgi.account.infrastructure.config.QueryPlanVerifier} explains to check that they use an index.
  */
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class BankAccountRepositoryImpl implements BankAccountRepository {
 
+    private static final String BALANCE_FIELD = "accountBalance.balance";
+    private static final String OUTBOX_LEASE_FIELD = "outboxLeaseUntil";
+    private static final String PENDING_TRANSFERS_FIELD = "pendingTransfers";
+
+    /**
+     * Account response fields that can be requested, mapped to the document properties they are read from.
+     */
+    private static final Map<String, String> PROJECTABLE_FIELDS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("type", "type"),
+            Map.entry("balance", "accountBalance"),
+            Map.entry("accountNumber", "accountNumber"),
+            Map.entry("createdDate", "createdDate"),
+            Map.entry("movementLimit", "movementLimit"),
+            Map.entry("maintenanceFee", "maintenanceFee"),
+            Map.entry("commissionFee", "commissionFee"),
+            Map.entry("clientId", "clientId"),
+            Map.entry("transactionDay", "transactionDay"),
+            Map.entry("holders", "holders"),
+            Map.entry("authorizedSigners", "authorizedSigners"));
+    private static final String CONFLICTS_METRIC = "bank.account.version.conflicts";
+    private static final String RETRIES_METRIC = "bank.account.version.retries";
+
     private final BankAccountRepositoryJpa repositoryJpa;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.account.optimistic-lock.max-retries:5}")
+    private long maxRetries = 5;
+
+    @Value("${app.account.optimistic-lock.min-backoff:10ms}")
+    private Duration minBackoff = Duration.ofMillis(10);
+
+    @Value("${app.account.optimistic-lock.max-backoff:200ms}")
+    private Duration maxBackoff = Duration.ofMillis(200);
+
+    @Value("${app.account.optimistic-lock.jitter:0.5}")
+    private double jitter = 0.5;
 
     @Override
     public Mono<AccountResponse> save(BankAccount bankAccount) {
@@ -37,17 +106,78 @@ public class BankAccountRepositoryImpl implements BankAccountRepository {
                 .map(BankAccountMapper.INSTANCE::toAccountResponse);
     }
 
+    @Override
+    public Mono<Map<Integer, DataAccessException>> insertAll(List<BankAccount> bankAccounts) {
+        if (bankAccounts.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BankAccount.class)
+                .insert(bankAccounts)
+                .execute()
+                .<Map<Integer, DataAccessException>>map(result -> Map.of())
+                .onErrorResume(ex -> !BulkWriteErrors.of(ex).isEmpty(), ex -> Mono.just(BulkWriteErrors.of(ex).stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteErrors::toException))));
+    }
+
     @Override
     public Mono<BankAccount> findById(String id) {
         return repositoryJpa.findById(id);
     }
 
     @Override
-    public Flux<AccountResponse> findAll(String clientId, String type, String accountId) {
-        boolean allNull = Stream.of(clientId, type, accountId).allMatch(Objects::isNull);
-        Flux<BankAccount> resultFlux = allNull
-                ? repositoryJpa.findAll() : repositoryJpa.findAllByClientIdOrTypeOrId(clientId, type, accountId);
-        return resultFlux.map(BankAccountMapper.INSTANCE::toAccountResponse);
+    public Mono<Boolean> existsById(String id) {
+        return repositoryJpa.existsById(id);
+    }
+
+    @Override
+    public Mono<BankAccount> findBalanceById(String id) {
+        Query query = byIdQuery(id);
+        query.fields().include("clientId", "accountBalance", "version");
+        return mongoTemplate.findOne(query, BankAccount.class);
+    }
+
+    @Override
+    public Flux<BankAccount> findTypesById(Collection<String> ids) {
+        Query query = byIdsQuery(ids);
+        query.fields().include("type");
+        return mongoTemplate.find(query, BankAccount.class);
+    }
+
+    @Override
+    public Mono<BankAccount> update(String id, UnaryOperator<BankAccount> mutation) {
+        return Mono.defer(() -> repositoryJpa.findById(id)
+                        .map(mutation)
+                        .flatMap(repositoryJpa::save))
+                .doOnError(OptimisticLockingFailureException.class, ex -> {
+                    log.debug("Version conflict updating bank account {}", id);
+                    meterRegistry.counter(CONFLICTS_METRIC).increment();
+                })
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(jitter)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .doBeforeRetry(signal -> meterRegistry.counter(RETRIES_METRIC).increment())
+                        .onRetryExhaustedThrow((spec, signal) -> new CustomException(CustomError.E_CONCURRENT_MODIFICATION)));
+    }
+
+    /**
+     * Reads one page of accounts ordered by id, starting after {@link AccountQuery#getAfter()}, with the
+     * requested fields only. The page is streamed from the cursor, so memory does not grow with its size.
+     */
+    @Override
+    public Flux<AccountResponse> findAll(AccountQuery accountQuery) {
+        Query query = pageQuery(accountQuery);
+        if (accountQuery.getFields() != null) {
+            for (String field : accountQuery.getFields()) {
+                String property = PROJECTABLE_FIELDS.get(field.trim());
+                if (property == null) {
+                    return Flux.error(new CustomException(CustomError.E_INVALID_QUERY));
+                }
+                query.fields().include(property);
+            }
+        }
+        return mongoTemplate.find(query, BankAccount.class)
+                .map(BankAccountMapper.INSTANCE::toAccountResponse);
     }
 
     @Override
@@ -55,8 +185,168 @@ public class BankAccountRepositoryImpl implements BankAccountRepository {
         return repositoryJpa.delete(bankAccount);
     }
 
+    @Override
+    public Mono<Boolean> deleteIfSettled(String id) {
+        return mongoTemplate.remove(settledQuery(id), BankAccount.class)
+                .map(result -> result.getDeletedCount() > 0);
+    }
+
     @Override
     public Mono<Boolean> existsByClientIdAndType(String clientId, String type) {
-        return repositoryJpa.existsByClientIdAndType(clientId, type);
+        return mongoTemplate.exists(clientTypeQuery(clientId, type), BankAccount.class);
+    }
+
+    @Override
+    public Mono<BankAccount> applyMovement(String id, BigDecimal amount, BigDecimal requiredBalance, Integer movementsUsed,
+                                           PendingTransaction posting) {
+        Criteria criteria = Criteria.where("id").is(id).and(BALANCE_FIELD).gte(new Decimal128(requiredBalance));
+        if (movementsUsed != null) {
+            criteria = criteria.and("movementsUsed").is(movementsUsed);
+        }
+        Query query = Query.query(criteria);
+        Document newBalance = new Document("$add", List.of("$" + BALANCE_FIELD, new Decimal128(amount)));
+        Document changes = new Document(BALANCE_FIELD, newBalance)
+                .append("movementsUsed", increment("movementsUsed"))
+                .append("version", increment("version"))
+                .append("updatedDate", "$$NOW")
+                .append(PendingTransaction.FIELD, appendPosting(posting, newBalance));
+        AggregationUpdate update = AggregationUpdate.from(List.of(context -> new Document("$set", changes)));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), BankAccount.class);
+    }
+
+    @Override
+    public Mono<BankAccount> applyTransferStep(String id, String transferId, BigDecimal amount, BigDecimal requiredBalance) {
+        Criteria criteria = Criteria.where("id").is(id).and(PENDING_TRANSFERS_FIELD).ne(transferId);
+        if (requiredBalance != null) {
+            criteria = criteria.and(BALANCE_FIELD).gte(new Decimal128(requiredBalance));
+        }
+        Update update = new Update()
+                .inc(BALANCE_FIELD, new Decimal128(amount))
+                .addToSet(PENDING_TRANSFERS_FIELD, transferId)
+                .inc("version", 1)
+                .currentDate("updatedDate");
+        return mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), BankAccount.class);
+    }
+
+    @Override
+    public Mono<BankAccount> settleTransferStep(String id, String transferId, PendingTransaction posting) {
+        Document changes = new Document(PENDING_TRANSFERS_FIELD, new Document("$filter", new Document("input", "$" + PENDING_TRANSFERS_FIELD)
+                        .append("cond", new Document("$ne", List.of("$$this", transferId)))))
+                .append("version", increment("version"))
+                .append("updatedDate", "$$NOW")
+                .append(PendingTransaction.FIELD, appendPosting(posting, "$" + BALANCE_FIELD));
+        AggregationUpdate update = AggregationUpdate.from(List.of(context -> new Document("$set", changes)));
+        return mongoTemplate.findAndModify(pendingTransferQuery(id, transferId), update,
+                FindAndModifyOptions.options().returnNew(true), BankAccount.class);
+    }
+
+    @Override
+    public Mono<BankAccount> revertTransferStep(String id, String transferId, BigDecimal amount) {
+        Update update = new Update()
+                .inc(BALANCE_FIELD, new Decimal128(amount))
+                .pull(PENDING_TRANSFERS_FIELD, transferId)
+                .inc("version", 1)
+                .currentDate("updatedDate");
+        return mongoTemplate.findAndModify(pendingTransferQuery(id, transferId), update,
+                FindAndModifyOptions.options().returnNew(true), BankAccount.class);
+    }
+
+    @Override
+    public Mono<Boolean> hasPendingTransfer(String id, String transferId) {
+        return mongoTemplate.exists(pendingTransferQuery(id, transferId), BankAccount.class);
+    }
+
+    @Override
+    public Flux<BankAccount> claimPendingTransactions(int batchSize, Duration lease) {
+        AtomicInteger claimed = new AtomicInteger(1);
+        return claimNextPendingTransactions(lease)
+                .expand(account -> claimed.getAndIncrement() < batchSize ? claimNextPendingTransactions(lease) : Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> acknowledgePendingTransactions(String id, List<String> idempotencyKeys, boolean releaseLease) {
+        Update update = new Update()
+                .pull(PendingTransaction.FIELD, new Document("idempotencyKey", new Document("$in", idempotencyKeys)))
+                .inc("version", 1);
+        if (releaseLease) {
+            update.unset(OUTBOX_LEASE_FIELD);
+        }
+        return mongoTemplate.updateFirst(byIdQuery(id), update, BankAccount.class).then();
+    }
+
+    private Mono<BankAccount> claimNextPendingTransactions(Duration lease) {
+        Instant now = Instant.now();
+        Query query = claimQuery(now);
+        Update update = new Update()
+                .set(OUTBOX_LEASE_FIELD, now.plus(lease))
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), BankAccount.class);
+    }
+
+    public static Query byIdQuery(String id) {
+        return Query.query(Criteria.where("id").is(id));
+    }
+
+    public static Query byIdsQuery(Collection<String> ids) {
+        return Query.query(Criteria.where("id").in(ids));
+    }
+
+    /**
+     * The account {@code id} if it has no pending postings and no transfer marks.
+     */
+    public static Query settledQuery(String id) {
+        return Query.query(Criteria.where("id").is(id)
+                .and(PendingTransaction.FIELD + ".0").exists(false)
+                .and(PENDING_TRANSFERS_FIELD + ".0").exists(false));
+    }
+
+    public static Query clientTypeQuery(String clientId, String type) {
+        return Query.query(Criteria.where("clientId").is(clientId).and("type").is(type));
+    }
+
+    /**
+     * The page of accounts of {@code accountQuery}, in id order.
+     */
+    public static Query pageQuery(AccountQuery accountQuery) {
+        Query query = AccountCriteriaBuilder.toQuery(accountQuery).with(Sort.by(Sort.Direction.ASC, "id"));
+        return accountQuery.getLimit() == null ? query : query.limit(accountQuery.getLimit());
+    }
+
+    /**
+     * An account with pending postings whose outbox is not leased, selected through the partial index on the
+     * outbox lease of the accounts with pending postings.
+     */
+    public static Query claimQuery(Instant now) {
+        return Query.query(new Criteria().andOperator(
+                Criteria.where(PendingTransaction.FIELD + ".0").exists(true),
+                new Criteria().orOperator(
+                        Criteria.where(OUTBOX_LEASE_FIELD).exists(false),
+                        Criteria.where(OUTBOX_LEASE_FIELD).lt(now))));
+    }
+
+    public static Query pendingTransferQuery(String id, String transferId) {
+        return Query.query(Criteria.where("id").is(id).and(PENDING_TRANSFERS_FIELD).is(transferId));
+    }
+
+    /**
+     * Builds the expression appending {@code posting} to the account outbox, with its balance
+     * taken from {@code balance}, which may be an aggregation expression evaluated by the database.
+     */
+    private static Document appendPosting(PendingTransaction posting, Object balance) {
+        Document postingDocument = new Document("idempotencyKey", posting.getIdempotencyKey())
+                .append("type", posting.getType())
+                .append("amount", new Decimal128(posting.getAmount()))
+                .append("commission", new Decimal128(posting.getCommission()))
+                .append("balance", balance)
+                .append("destinationProductId", posting.getDestinationProductId())
+                .append("createdDate", Date.from(posting.getCreatedDate()));
+        return new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$" + PendingTransaction.FIELD, List.of())),
+                List.of(postingDocument)));
+    }
+
+    private static Document increment(String field) {
+        return new Document("$add", List.of(new Document("$ifNull", List.of("$" + field, 0)), 1));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package com.sgi.account.infrastructure.repository.impl;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.ClientProductCounter;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import com.sgi.account.infrastructure.config.ClientProductCounterBackfill;
+import com.sgi.account.infrastructure.config.MigrationMarker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Implementation of the {@link ClientProductCounterRepository} interface.
+ * A limited increment is a single upsert guarded by the current count: when the guard fails, the upsert
+ * tries to insert a second document for the client and fails with a duplicate key. The first increments
+ * of a new client race on the insert too, so a duplicate key is retried once, when the document exists
+ * and only the guard can reject it. Until the counters were initialized from the stored accounts by the
+ * {@link ClientProductCounterBackfill}, a limited increment also counts the stored accounts of the client.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClientProductCounterRepositoryImpl implements ClientProductCounterRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
+    @Override
+    public Mono<Boolean> increment(String clientId, String type, Integer limit) {
+        Criteria criteria = Criteria.where("id").is(clientId);
+        if (limit != null) {
+            criteria.and(field(type)).not().gte(limit);
+        }
+        Mono<Boolean> counted = Mono.defer(() -> mongoTemplate.upsert(Query.query(criteria), new Update().inc(field(type), 1),
+                        ClientProductCounter.class))
+                .retryWhen(Retry.max(1)
+                        .filter(DuplicateKeyException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, ex -> Mono.just(false));
+        if (limit == null) {
+            return counted;
+        }
+        return isInitialized()
+                .flatMap(ready -> ready
+                        ? Mono.just(false)
+                        : mongoTemplate.count(BankAccountRepositoryImpl.clientTypeQuery(clientId, type), BankAccount.class)
+                                .map(stored -> stored >= limit))
+                .flatMap(reached -> reached ? Mono.just(false) : counted);
+    }
+
+    @Override
+    public Mono<Void> decrement(String clientId, String type) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(clientId).and(field(type)).gt(0)),
+                        new Update().inc(field(type), -1), ClientProductCounter.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> raiseTo(String clientId, String type, int count) {
+        return mongoTemplate.upsert(Query.query(Criteria.where("id").is(clientId)),
+                        new Update().max(field(type), count), ClientProductCounter.class)
+                .then();
+    }
+
+    private Mono<Boolean> isInitialized() {
+        if (initialized.get()) {
+            return Mono.just(true);
+        }
+        return MigrationMarker.isCompleted(mongoTemplate, ClientProductCounterBackfill.MIGRATION_ID)
+                .doOnNext(completed -> {
+                    if (completed) {
+                        initialized.set(true);
+                    }
+                });
+    }
+
+    private static String field(String type) {
+        return ClientProductCounter.PRODUCTS_FIELD + "." + type;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sgi.account.infrastructure.repository.impl;
+
+import com.sgi.account.domain.model.OnboardingResult;
+import com.sgi.account.domain.ports.out.OnboardingResultRepository;
+import com.sgi.account.infrastructure.repository.BulkWriteErrors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Implementation of the {@link OnboardingResultRepository} interface.
+ * Results have the id {@code batchId:index}, so recording a row twice fails with a duplicate key,
+ * which is ignored: the first recorded result is kept.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OnboardingResultRepositoryImpl implements OnboardingResultRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<Void> saveAll(List<OnboardingResult> results) {
+        if (results.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OnboardingResult.class)
+                .insert(results)
+                .execute()
+                .onErrorResume(BulkWriteErrors::onlyDuplicateKeys, ex -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public Flux<OnboardingResult> findByBatchId(String batchId, long after) {
+        return mongoTemplate.find(Query.query(Criteria.where("batchId").is(batchId).and("index").gt(after))
+                .with(Sort.by(Sort.Direction.ASC, "index")), OnboardingResult.class);
+    }
+
+    @Override
+    public Flux<Long> findIndexesByBatchId(String batchId) {
+        Query query = Query.query(Criteria.where("batchId").is(batchId));
+        query.fields().include("index");
+        return mongoTemplate.find(query, OnboardingResult.class)
+                .map(OnboardingResult::getIndex);
+    }
+}
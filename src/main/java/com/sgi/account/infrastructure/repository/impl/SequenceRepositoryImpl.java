@@ -0,0 +1,35 @@
+package com.sgi.account.infrastructure.repository.impl;
+
+import com.sgi.account.domain.model.Sequence;
+import com.sgi.account.domain.ports.out.SequenceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Implementation of the {@link SequenceRepository} interface.
+ * A reservation is a single $inc upsert, so concurrent nodes always receive disjoint blocks.
+ * Two nodes creating the same sequence at once race on the upsert; the loser is retried once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SequenceRepositoryImpl implements SequenceRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<Long> reserve(String name, int blockSize) {
+        return Mono.defer(() -> mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(name)),
+                        new Update().inc("value", blockSize),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Sequence.class))
+                .retryWhen(Retry.max(1).filter(DuplicateKeyException.class::isInstance))
+                .map(sequence -> sequence.getValue() - blockSize + 1);
+    }
+}
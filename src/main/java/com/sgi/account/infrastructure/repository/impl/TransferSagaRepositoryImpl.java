@@ -0,0 +1,72 @@
+package com.sgi.account.infrastructure.repository.impl;
+
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.domain.ports.out.TransferSagaRepository;
+import com.sgi.account.infrastructure.repository.TransferSagaRepositoryJpa;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Implementation of the {@link TransferSagaRepository} interface.
+ * State transitions are conditional updates, so concurrent runners of the same saga cannot
+ * move it twice or backwards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferSagaRepositoryImpl implements TransferSagaRepository {
+
+    private final TransferSagaRepositoryJpa repositoryJpa;
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<TransferSaga> save(TransferSaga transferSaga) {
+        return repositoryJpa.save(transferSaga);
+    }
+
+    @Override
+    public Mono<TransferSaga> findById(String id) {
+        return repositoryJpa.findById(id);
+    }
+
+    @Override
+    public Mono<TransferSaga> transition(String id, TransferSaga.State from, TransferSaga.State to, String failureReason) {
+        Update update = new Update()
+                .set("state", to)
+                .currentDate("updatedDate");
+        if (failureReason != null) {
+            update.set("failureReason", failureReason);
+        }
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id).and("state").is(from)), update,
+                FindAndModifyOptions.options().returnNew(true), TransferSaga.class);
+    }
+
+    @Override
+    public Flux<TransferSaga> findUnfinished(Instant updatedBefore) {
+        return mongoTemplate.find(unfinishedQuery(updatedBefore), TransferSaga.class);
+    }
+
+    @Override
+    public Mono<TransferSaga> claimStale(String id, Instant updatedBefore) {
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id).andOperator(unfinished(updatedBefore))),
+                new Update().currentDate("updatedDate"), FindAndModifyOptions.options().returnNew(true), TransferSaga.class);
+    }
+
+    public static Query unfinishedQuery(Instant updatedBefore) {
+        return Query.query(unfinished(updatedBefore));
+    }
+
+    private static Criteria unfinished(Instant updatedBefore) {
+        return Criteria.where("state")
+                .nin(TransferSaga.State.COMPLETED, TransferSaga.State.FAILED)
+                .and("updatedDate").lt(updatedBefore);
+    }
+}
@@ -0,0 +1,116 @@
+package com.sgi.account.infrastructure.subscriber.changestream;
+
+import com.mongodb.MongoException;
+import com.sgi.account.application.service.AccountChangeListener;
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the changes of bank accounts made by any instance to the local caches of this instance.
+ * The resume token of the last change delivered is kept, so when the stream fails, for instance on
+ * a primary election, listening resumes right after it and the caches are not flushed. Only when the
+ * token can no longer be resumed, because the change history was rolled over, or when no change was
+ * received yet, are the caches told that changes were lost, and listening starts again from the current time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountChangeBus {
+
+    /**
+     * Server error codes telling that the change stream cannot be resumed from the token:
+     * ChangeStreamFatalError, ChangeStreamHistoryLost and CappedPositionLost.
+     */
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(280, 286, 136);
+
+    @Value("${app.change-stream.min-backoff:1s}")
+    private Duration minBackoff = Duration.ofSeconds(1);
+
+    @Value("${app.change-stream.max-backoff:30s}")
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    private final BankAccountChangeSource changeSource;
+    private final List<AccountChangeListener> listeners;
+
+    private final AtomicReference<BsonDocument> resumeToken = new AtomicReference<>();
+
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = listen().subscribe();
+    }
+
+    /**
+     * Stops listening to the change stream.
+     */
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Listens to the changes and publishes each one to every listener before recording its token.
+     */
+    Flux<AccountChangedEvent> listen() {
+        return Flux.defer(() -> changeSource.listen(resumeToken.get()))
+                .doOnNext(event -> {
+                    publish(event);
+                    resumeToken.set(event.getResumeToken());
+                })
+                .doOnError(this::handleError)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff).maxBackoff(maxBackoff));
+    }
+
+    BsonDocument getResumeToken() {
+        return resumeToken.get();
+    }
+
+    private void publish(AccountChangedEvent event) {
+        for (AccountChangeListener listener : listeners) {
+            try {
+                listener.onAccountChanged(event);
+            } catch (RuntimeException ex) {
+                log.error("Account change listener {} failed for account {}", listener.getClass().getSimpleName(),
+                        event.getAccountId(), ex);
+            }
+        }
+    }
+
+    private void handleError(Throwable ex) {
+        // without a token, the changes made while reconnecting cannot be replayed either
+        if (resumeToken.get() != null && !isHistoryLost(ex)) {
+            log.warn("Bank account change stream failed, resuming after the last change", ex);
+            return;
+        }
+        log.warn("Bank account change stream cannot be resumed, notifying the local caches", ex);
+        resumeToken.set(null);
+        listeners.forEach(AccountChangeListener::onChangesLost);
+    }
+
+    private static boolean isHistoryLost(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && HISTORY_LOST_CODES.contains(mongoException.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
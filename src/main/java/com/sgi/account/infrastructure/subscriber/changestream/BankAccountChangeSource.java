@@ -0,0 +1,20 @@
+package com.sgi.account.infrastructure.subscriber.changestream;
+
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+import org.bson.BsonDocument;
+import reactor.core.publisher.Flux;
+
+/**
+ * Source of the changes of the bank account collection.
+ */
+public interface BankAccountChangeSource {
+
+    /**
+     * Listens to the updates, replacements and deletions of bank accounts.
+     *
+     * @param resumeToken token of the last change received, to continue right after it,
+     *                    or null to start from the current time.
+     */
+    Flux<AccountChangedEvent> listen(BsonDocument resumeToken);
+
+}
@@ -0,0 +1,99 @@
+package com.sgi.account.infrastructure.subscriber.changestream;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveChangeStreamOperation.ChangeStreamWithFilterAndProjection;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of the {@link BankAccountChangeSource} interface.
+ * Reads the MongoDB change stream of the bank account collection, which requires a replica set.
+ * Updates that only claim or acknowledge the outbox of an account are skipped: they bump the version
+ * to guard the read-modify-write updates, but do not change anything a reader caches.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoBankAccountChangeSource implements BankAccountChangeSource {
+
+    private static final List<String> OPERATIONS = List.of(OperationType.UPDATE.getValue(),
+            OperationType.REPLACE.getValue(), OperationType.DELETE.getValue());
+
+    private static final String OUTBOX_LEASE_FIELD = "outboxLeaseUntil";
+
+    private static final Set<String> OUTBOX_FIELDS = Set.of("version", OUTBOX_LEASE_FIELD, PendingTransaction.FIELD);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Flux<AccountChangedEvent> listen(BsonDocument resumeToken) {
+        ChangeStreamWithFilterAndProjection<BankAccount> changeStream = mongoTemplate.changeStream(BankAccount.class)
+                .watchCollection(BankAccount.class)
+                .filter(Criteria.where("operationType").in(OPERATIONS));
+        return (resumeToken != null ? changeStream.resumeAfter(resumeToken).listen() : changeStream.listen())
+                .map(ChangeStreamEvent::getRaw)
+                .filter(change -> change.getDocumentKey() != null && !isOutboxBookkeeping(change))
+                .map(MongoBankAccountChangeSource::toEvent);
+    }
+
+    private static AccountChangedEvent toEvent(ChangeStreamDocument<Document> change) {
+        boolean deleted = change.getOperationType() == OperationType.DELETE;
+        return new AccountChangedEvent(toId(change.getDocumentKey().get("_id")), deleted ? null : version(change),
+                deleted, change.getResumeToken());
+    }
+
+    /**
+     * Whether the change is an update of the outbox fields only, as written when the outbox of the account
+     * is claimed or acknowledged.
+     */
+    static boolean isOutboxBookkeeping(ChangeStreamDocument<Document> change) {
+        if (change.getOperationType() != OperationType.UPDATE || change.getUpdateDescription() == null) {
+            return false;
+        }
+        UpdateDescription description = change.getUpdateDescription();
+        boolean updatesOutbox = description.getUpdatedFields() == null
+                || description.getUpdatedFields().keySet().stream().allMatch(MongoBankAccountChangeSource::isOutboxField);
+        boolean removesOutbox = description.getRemovedFields() == null
+                || description.getRemovedFields().stream().allMatch(OUTBOX_LEASE_FIELD::equals);
+        return updatesOutbox && removesOutbox;
+    }
+
+    private static boolean isOutboxField(String path) {
+        int dot = path.indexOf('.');
+        return OUTBOX_FIELDS.contains(dot < 0 ? path : path.substring(0, dot));
+    }
+
+    /**
+     * The version written by the change: replacements carry the whole document and updates list the
+     * updated fields. Null when the change does not tell.
+     */
+    private static Long version(ChangeStreamDocument<Document> change) {
+        if (change.getFullDocument() != null) {
+            Number version = change.getFullDocument().get("version", Number.class);
+            return version != null ? version.longValue() : null;
+        }
+        if (change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null) {
+            BsonValue version = change.getUpdateDescription().getUpdatedFields().get("version");
+            return version != null && version.isNumber() ? version.asNumber().longValue() : null;
+        }
+        return null;
+    }
+
+    private static String toId(BsonValue id) {
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
@@ -0,0 +1,26 @@
+package com.sgi.account.infrastructure.subscriber.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.BsonDocument;
+
+/**
+ * Event class representing a change of a bank account stored by any instance, read from the
+ * change stream of the bank account collection. It is used to invalidate the local copies of the account.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountChangedEvent {
+    private String accountId;
+    /**
+     * Version written by the change, or null when the change does not tell.
+     */
+    private Long version;
+    private boolean deleted;
+    /**
+     * Position of the change in the stream, to resume listening after it.
+     */
+    private BsonDocument resumeToken;
+}
@@ -0,0 +1,20 @@
+package com.sgi.account.infrastructure.subscriber.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event class representing a credit created in the credit service.
+ * It is used to keep the cached credit card flag of the client up to date.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditCreatedEvent {
+    private String creditId;
+    private String clientId;
+    private Boolean creditCard;
+
+    public static final String TOPIC = "credit-created";
+}
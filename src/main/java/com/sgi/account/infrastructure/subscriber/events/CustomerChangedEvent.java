@@ -0,0 +1,18 @@
+package com.sgi.account.infrastructure.subscriber.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event class representing a change of a customer in the customer service.
+ * It is used to invalidate the cached copy of the customer.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerChangedEvent {
+    private String customerId;
+
+    public static final String TOPIC = "customer-changed";
+}
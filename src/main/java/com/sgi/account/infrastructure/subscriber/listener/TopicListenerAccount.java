@@ -1,28 +1,134 @@
 package com.sgi.account.infrastructure.subscriber.listener;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.sgi.account.application.service.EventHandleService;
-import com.sgi.account.infrastructure.annotations.KafkaController;
 import com.sgi.account.infrastructure.subscriber.events.BankAccountEvent;
+import com.sgi.account.infrastructure.subscriber.events.BankAccountExistEvent;
+import com.sgi.account.infrastructure.subscriber.message.EventSender;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
-import org.springframework.kafka.annotation.KafkaListener;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static com.sgi.account.infrastructure.mapper.ObjectMappers.OBJECT_MAPPER;
 
 /**
  * Listener for Kafka topics related to account validation.
- * This class listens to the "validation-request-topic" and processes validation requests.
+ * This class consumes the "validation-exists-wallet" topic one poll at a time: the accounts of the
+ * whole poll are validated with a single lookup, then the responses of each partition are produced in
+ * order, with a bounded number of partitions in parallel, and the partition offset is committed once
+ * its responses are acknowledged. A failure stops the consumer and reconnects it, so the records of
+ * an uncommitted poll are received again.
  */
-@KafkaController
+@Slf4j
+@Component
 @RequiredArgsConstructor
 public class TopicListenerAccount {
 
+    @Value("${app.kafka.validation.concurrency:8}")
+    private int concurrency = 8;
+
+    @Value("${app.kafka.validation.min-backoff:1s}")
+    private Duration minBackoff = Duration.ofSeconds(1);
+
+    @Value("${app.kafka.validation.max-backoff:30s}")
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    private final KafkaReceiver<String, String> bankAccountEventReceiver;
     private final EventHandleService eventHandleService;
+    private final EventSender eventSender;
+
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = listen().subscribe();
+    }
+
+    /**
+     * Stops consuming the topic; records whose offsets were not committed are consumed again.
+     */
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Mono<Void> listen() {
+        return bankAccountEventReceiver.receiveBatch()
+                .concatMap(batch -> batch.collectList().flatMap(this::handleValidateAccounts))
+                .doOnError(ex -> log.error("Wallet validation consumer failed, reconnecting", ex))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff).maxBackoff(maxBackoff))
+                .then();
+    }
+
+    private Mono<Void> handleValidateAccounts(List<ReceiverRecord<String, String>> records) {
+        List<ValidationRequest> requests = records.stream()
+                .map(record -> new ValidationRequest(record, toEvent(record)))
+                .toList();
+        List<String> accountIds = requests.stream()
+                .map(ValidationRequest::event)
+                .filter(Objects::nonNull)
+                .map(BankAccountEvent::getAccountId)
+                .distinct()
+                .toList();
+        // grouped up front: groupBy would stall once a poll spans more partitions than the concurrency
+        Map<TopicPartition, List<ValidationRequest>> partitions = requests.stream()
+                .collect(Collectors.groupingBy(request -> request.record().receiverOffset().topicPartition(),
+                        LinkedHashMap::new, Collectors.toList()));
+        return eventHandleService.validateExistBankAccounts(accountIds)
+                .flatMap(validity -> Flux.fromIterable(partitions.values())
+                        .flatMap(partition -> Flux.fromIterable(partition)
+                                .concatMap(request -> respond(request, validity).thenReturn(request))
+                                .last()
+                                .flatMap(request -> request.record().receiverOffset().commit()), concurrency)
+                        .then());
+    }
+
+    private Mono<Void> respond(ValidationRequest request, Map<String, Boolean> validity) {
+        if (request.event() == null) {
+            return Mono.empty();
+        }
+        return eventSender.sendEvent(BankAccountExistEvent.TOPIC, request.event().getAccountId(), BankAccountExistEvent.builder()
+                .accountId(request.event().getAccountId())
+                .bootcoinId(request.event().getBootcoinId())
+                .exist(validity.getOrDefault(request.event().getAccountId(), false))
+                .build());
+    }
 
-    @KafkaListener(topics = BankAccountEvent.TOPIC,  groupId = "${app.name}")
-    @SneakyThrows
-    public void handleValidateAccount(BankAccountEvent event) {
-        eventHandleService.validateExistBankAccount(event.getBootcoinId(), event.getAccountId());
+    /**
+     * Reads the validation request of a record, or null when the record is not a valid request,
+     * so it is skipped instead of blocking its partition.
+     */
+    private static BankAccountEvent toEvent(ReceiverRecord<String, String> record) {
+        try {
+            BankAccountEvent event = OBJECT_MAPPER.readValue(record.value(), BankAccountEvent.class);
+            return event != null && event.getAccountId() != null ? event : null;
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            log.warn("Skipping invalid wallet validation request at {} offset {}", record.receiverOffset().topicPartition(),
+                    record.offset());
+            return null;
+        }
     }
 
+    private record ValidationRequest(ReceiverRecord<String, String> record, BankAccountEvent event) {
+    }
 }
@@ -0,0 +1,25 @@
+package com.sgi.account.infrastructure.subscriber.listener;
+
+import com.sgi.account.application.service.CreditEligibilityService;
+import com.sgi.account.infrastructure.annotations.KafkaController;
+import com.sgi.account.infrastructure.subscriber.events.CreditCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+
+/**
+ * Listener for Kafka topics related to credits.
+ * This class listens to the "credit-created" topic and updates the cached credit card flag of the client.
+ * The cache is local to each instance, so each instance consumes the topic with its own group.
+ */
+@KafkaController
+@RequiredArgsConstructor
+public class TopicListenerCredit {
+
+    private final CreditEligibilityService creditEligibilityService;
+
+    @KafkaListener(topics = CreditCreatedEvent.TOPIC, groupId = "${app.name}-${random.uuid}")
+    public void handleCreditCreated(CreditCreatedEvent event) {
+        creditEligibilityService.creditCreated(event.getClientId(), Boolean.TRUE.equals(event.getCreditCard()));
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.sgi.account.infrastructure.subscriber.listener;
+
+import com.sgi.account.application.service.CustomerLookupService;
+import com.sgi.account.infrastructure.annotations.KafkaController;
+import com.sgi.account.infrastructure.subscriber.events.CustomerChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+
+/**
+ * Listener for Kafka topics related to customers.
+ * This class listens to the "customer-changed" topic and evicts the changed customer from the cache.
+ * The cache is local to each instance, so each instance consumes the topic with its own group.
+ */
+@KafkaController
+@RequiredArgsConstructor
+public class TopicListenerCustomer {
+
+    private final CustomerLookupService customerLookupService;
+
+    @KafkaListener(topics = CustomerChangedEvent.TOPIC, groupId = "${app.name}-${random.uuid}")
+    public void handleCustomerChanged(CustomerChangedEvent event) {
+        customerLookupService.evict(event.getCustomerId());
+    }
+
+}
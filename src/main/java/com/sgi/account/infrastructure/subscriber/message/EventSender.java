@@ -1,43 +1,48 @@
 package com.sgi.account.infrastructure.subscriber.message;
 
 import com.sgi.account.infrastructure.mapper.ObjectMappers;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
 
 /**
  * EventSender is a component responsible for sending events to Kafka topics.
- * It uses KafkaTemplate to publish events, where the topic name is derived
- * from the class name of the event.
+ * It uses a reactive KafkaSender to publish events serialized to JSON bytes, keyed so that
+ * the events of the same key keep their order.
  */
 @Component
 @Slf4j
 public class EventSender {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final KafkaSender<String, byte[]> kafkaSender;
 
     /**
      * Constructor for EventSender.
-     * Initializes the KafkaTemplate used to send messages to Kafka.
+     * Initializes the KafkaSender used to send messages to Kafka.
      *
-     * @param kafkaTemplate The KafkaTemplate to be used for sending messages.
+     * @param kafkaSender The KafkaSender to be used for sending messages.
      */
-    public EventSender(KafkaTemplate<String, Object> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public EventSender(KafkaSender<String, byte[]> kafkaSender) {
+        this.kafkaSender = kafkaSender;
     }
 
     /**
      * Sends an event to a Kafka topic asynchronously.
-     * The topic is determined by the class name of the event object.
      *
+     * @param topic The topic to publish to.
+     * @param key   The record key, usually the account id, which selects the partition.
      * @param event The event to be sent.
+     * @return a Mono that completes when the broker acknowledges the event, so callers
+     * only send as fast as the broker accepts.
      */
-    @SneakyThrows
-    public void sendEvent(String topic, Object event) {
-            String value = ObjectMappers.OBJECT_MAPPER.writeValueAsString(event);
-            log.info("Publishing to Kafka topic {}: {}", topic, event);
-        kafkaTemplate.send(new ProducerRecord<>(topic, value));
+    public Mono<Void> sendEvent(String topic, String key, Object event) {
+        return Mono.fromCallable(() -> ObjectMappers.OBJECT_MAPPER.writeValueAsBytes(event))
+                .doOnNext(value -> log.debug("Publishing {} to Kafka topic {} with key {}",
+                        event.getClass().getSimpleName(), topic, key))
+                .flatMap(value -> kafkaSender.send(Mono.just(SenderRecord.create(new ProducerRecord<>(topic, key, value), key)))
+                        .then());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.AccountDecisionTable;
+import com.sgi.account.application.service.impl.AccountRule;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link AccountDecisionTable}.
+ * Verifies that each segment gets only the checks and facts of the rules matching it, in order,
+ * and that a rejection or a last rule ends the segment.
+ */
+public class AccountDecisionTableTest {
+
+    private static final AccountDecisionTable TABLE = AccountDecisionTable.compile(List.of(
+            AccountRule.of(AccountRequest.TypeEnum.SAVINGS,
+                            segment -> Customer.TypeEnum.BUSINESS.equals(segment.customerType()))
+                    .reject(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_SAVINGS),
+            AccountRule.of(AccountRequest.TypeEnum.SAVINGS,
+                            segment -> Customer.ProfileEnum.VIP.equals(segment.profile()))
+                    .requireFact(AccountRule.Fact.CREDIT_CARD, CustomError.E_MISSING_CREDIT_CARD)
+                    .last(),
+            AccountRule.of(AccountRequest.TypeEnum.SAVINGS, segment -> true)
+                    .apply(account -> account.setMaintenanceFee(BigDecimal.ZERO))
+                    .onePerClient()));
+
+    @Test
+    void decide_shouldOnlyRequireTheFactsOfTheMatchingRules() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        customer.setType(Customer.TypeEnum.PERSONAL);
+
+        AccountDecisionTable.Decision vip = TABLE.decide(customer, AccountRequest.TypeEnum.SAVINGS);
+        assertEquals(Set.of(AccountRule.Fact.CREDIT_CARD), vip.facts());
+        assertTrue(vip.defaults().isEmpty());
+        assertFalse(vip.onePerClient());
+
+        customer.setProfile(null);
+        AccountDecisionTable.Decision regular = TABLE.decide(customer, AccountRequest.TypeEnum.SAVINGS);
+        assertTrue(regular.facts().isEmpty());
+        assertEquals(1, regular.defaults().size());
+        assertTrue(regular.onePerClient());
+    }
+
+    @Test
+    void decide_shouldStopAtARejection() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        customer.setType(Customer.TypeEnum.BUSINESS);
+        AccountRequest account = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+
+        AccountDecisionTable.Decision decision = TABLE.decide(customer, AccountRequest.TypeEnum.SAVINGS);
+        assertEquals(1, decision.checks().size());
+        assertFalse(decision.checks().get(0).test().test(account));
+        assertEquals(CustomError.E_BUSINESS_CLIENT_CANNOT_HAVE_SAVINGS, decision.checks().get(0).error());
+        assertTrue(decision.facts().isEmpty());
+    }
+
+    @Test
+    void decide_shouldCoverCustomersWithoutTypeOrProfile() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        customer.setType(null);
+        customer.setProfile(null);
+
+        AccountDecisionTable.Decision decision = TABLE.decide(customer, AccountRequest.TypeEnum.CHECKING);
+        assertTrue(decision.checks().isEmpty());
+        assertTrue(decision.facts().isEmpty());
+        assertFalse(decision.onePerClient());
+    }
+}
@@ -0,0 +1,70 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.SequenceAccountNumberGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH benchmark of the account number generation.
+ * Compares the former random number formatted with String.format with the {@link SequenceAccountNumberGenerator}
+ * backed by an in-memory sequence, from four threads. It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class AccountNumberGeneratorBenchmark {
+
+    private SequenceAccountNumberGenerator generator;
+
+    /**
+     * Builds a generator whose blocks are leased from an in-memory sequence.
+     */
+    @Setup
+    public void setup() {
+        AtomicLong sequence = new AtomicLong();
+        generator = new SequenceAccountNumberGenerator((name, blockSize) ->
+                Mono.fromSupplier(() -> sequence.addAndGet(blockSize) - blockSize + 1));
+    }
+
+    @Benchmark
+    public String randomFormatted() {
+        return String.format("%04d00%012d", new Random().nextInt(10000), new Random().nextLong(1000000000000L));
+    }
+
+    @Benchmark
+    public String leasedSequence() {
+        return generator.next().block();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountNumberGeneratorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
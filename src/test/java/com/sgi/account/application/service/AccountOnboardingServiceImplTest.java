@@ -0,0 +1,282 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.AccountOnboardingServiceImpl;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.OnboardingResult;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import com.sgi.account.domain.ports.out.OnboardingResultRepository;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
+import com.sgi.account.infrastructure.dto.Customer;
+import com.sgi.account.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link AccountOnboardingServiceImpl}.
+ * Verifies that customers are looked up once per batch, that valid rows are counted and written with one
+ * bulk insert, and that every row gets a recorded result, also when the batch is resumed or an account
+ * number is taken.
+ */
+@ExtendWith(MockitoExtension.class)
+public class AccountOnboardingServiceImplTest {
+
+    private static final String BATCH_ID = "migration-0001";
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Mock
+    private OnboardingResultRepository onboardingResultRepository;
+
+    @Mock
+    private CustomerLookupService customerLookupService;
+
+    @Mock
+    private ValidationBankAccount validationBankAccount;
+
+    @Mock
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Mock
+    private ClientProductCounterRepository clientProductCounterRepository;
+
+    @InjectMocks
+    private AccountOnboardingServiceImpl accountOnboardingService;
+
+    @Test
+    void createAccounts_shouldLookUpEachCustomerOnceAndRejectASecondSingleAccount() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        givenValidCheckingAccounts(customer);
+        when(validationBankAccount.isOnePerClient(any(AccountRequest.class), eq(customer))).thenReturn(true);
+        when(clientProductCounterRepository.increment(anyString(), eq("CHECKING"), eq(1)))
+                .thenReturn(Mono.just(true), Mono.just(false));
+        when(bankAccountRepository.findById(anyString())).thenReturn(Mono.empty());
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.insertAll(anyList())).thenReturn(Mono.just(Map.of()));
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID, Flux.just(
+                        FactoryTest.toFactoryBankAccount(AccountRequest.class),
+                        FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .assertNext(response -> {
+                    assertEquals(0L, response.getIndex());
+                    assertEquals(BulkAccountResponse.StatusEnum.CREATED, response.getStatus());
+                    assertEquals("000100000000000017", response.getAccountNumber());
+                })
+                .assertNext(response -> {
+                    assertEquals(1L, response.getIndex());
+                    assertEquals(BulkAccountResponse.StatusEnum.FAILED, response.getStatus());
+                    assertEquals("ACCOUNT-007", response.getErrorCode());
+                })
+                .verifyComplete();
+
+        verify(customerLookupService, times(1)).getCustomer(anyString());
+        ArgumentCaptor<List<BankAccount>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bankAccountRepository, times(1)).insertAll(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        ArgumentCaptor<List<OnboardingResult>> recorded = ArgumentCaptor.forClass(List.class);
+        verify(onboardingResultRepository, times(1)).saveAll(recorded.capture());
+        assertEquals(2, recorded.getValue().size());
+        assertEquals(BATCH_ID + ":0", recorded.getValue().get(0).getId());
+        verify(clientProductCounterRepository, never()).decrement(anyString(), anyString());
+    }
+
+    @Test
+    void createAccounts_shouldSkipRowsAlreadyRecorded() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        when(onboardingResultRepository.findIndexesByBatchId(BATCH_ID)).thenReturn(Flux.just(0L));
+        when(customerLookupService.getCustomer(anyString())).thenReturn(Mono.just(customer));
+        when(validationBankAccount.checkingAccount(any(AccountRequest.class), eq(customer)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(clientProductCounterRepository.increment(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(onboardingResultRepository.saveAll(anyList())).thenReturn(Mono.empty());
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.insertAll(anyList())).thenReturn(Mono.just(Map.of()));
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID, Flux.just(
+                        FactoryTest.toFactoryBankAccount(AccountRequest.class),
+                        FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .assertNext(response -> assertEquals(1L, response.getIndex()))
+                .verifyComplete();
+
+        verify(validationBankAccount, times(1)).checkingAccount(any(AccountRequest.class), eq(customer));
+    }
+
+    @Test
+    void createAccounts_shouldNumberAgainAnAccountWhoseNumberIsTaken() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        givenValidCheckingAccounts(customer);
+        when(clientProductCounterRepository.increment(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"), Mono.just("000100000000000025"));
+        when(bankAccountRepository.insertAll(anyList()))
+                .thenReturn(Mono.just(Map.of(0, new DuplicateKeyException("accountNumber_index"))), Mono.just(Map.of()));
+        when(bankAccountRepository.findById(anyString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID,
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .assertNext(response -> {
+                    assertEquals(BulkAccountResponse.StatusEnum.CREATED, response.getStatus());
+                    assertEquals("000100000000000025", response.getAccountNumber());
+                })
+                .verifyComplete();
+
+        verify(bankAccountRepository, times(2)).insertAll(anyList());
+    }
+
+    @Test
+    void createAccounts_shouldKeepTheAccountCreatedBeforeAnInterruption() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        BankAccount existing = FactoryTest.toFactoryEntityBankAccount();
+        existing.setAccountNumber("000100000000000033");
+        givenValidCheckingAccounts(customer);
+        when(clientProductCounterRepository.increment(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(clientProductCounterRepository.decrement(anyString(), eq("CHECKING"))).thenReturn(Mono.empty());
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.insertAll(anyList()))
+                .thenReturn(Mono.just(Map.of(0, new DuplicateKeyException("_id_"))));
+        when(bankAccountRepository.findById(anyString())).thenReturn(Mono.just(existing));
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID,
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .assertNext(response -> {
+                    assertEquals(BulkAccountResponse.StatusEnum.CREATED, response.getStatus());
+                    assertEquals(existing.getId(), response.getAccountId());
+                    assertEquals(existing.getAccountNumber(), response.getAccountNumber());
+                })
+                .verifyComplete();
+
+        verify(bankAccountRepository, times(1)).insertAll(anyList());
+        verify(clientProductCounterRepository, times(1)).decrement(anyString(), eq("CHECKING"));
+    }
+
+    @Test
+    void createAccounts_shouldTakeBackTheCountOfAnAccountNotInserted() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        givenValidCheckingAccounts(customer);
+        when(clientProductCounterRepository.increment(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(clientProductCounterRepository.decrement(anyString(), eq("CHECKING"))).thenReturn(Mono.empty());
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.insertAll(anyList()))
+                .thenReturn(Mono.just(Map.of(0, new DataIntegrityViolationException("Document failed validation"))));
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID,
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .assertNext(response -> {
+                    assertEquals(BulkAccountResponse.StatusEnum.FAILED, response.getStatus());
+                    assertEquals("ACCOUNT-000", response.getErrorCode());
+                })
+                .verifyComplete();
+
+        verify(clientProductCounterRepository, times(1)).decrement(anyString(), eq("CHECKING"));
+    }
+
+    @Test
+    void createAccounts_shouldRejectAMissingBatchId() {
+        StepVerifier.create(accountOnboardingService.createAccounts(" ",
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-011".equals(((CustomException) throwable).getCode()))
+                .verify();
+
+        verify(bankAccountRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void getResults_shouldReadTheRecordedResultsAfterTheGivenIndex() {
+        when(onboardingResultRepository.findByBatchId(BATCH_ID, 4L)).thenReturn(Flux.just(OnboardingResult.builder()
+                .id(BATCH_ID + ":5")
+                .batchId(BATCH_ID)
+                .index(5L)
+                .status(OnboardingResult.Status.FAILED)
+                .errorCode("ACCOUNT-006")
+                .build()));
+
+        StepVerifier.create(accountOnboardingService.getResults(BATCH_ID, 4L))
+                .assertNext(response -> {
+                    assertEquals(5L, response.getIndex());
+                    assertEquals(BulkAccountResponse.StatusEnum.FAILED, response.getStatus());
+                    assertEquals("ACCOUNT-006", response.getErrorCode());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void createAccounts_shouldTakeBackTheCountsOfAChunkWhoseInsertFailed() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        givenCountedCheckingAccounts(customer);
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.insertAll(anyList()))
+                .thenReturn(Mono.error(new DataAccessResourceFailureException("Timed out")));
+        when(bankAccountRepository.existsById(anyString())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID,
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class))))
+                .expectError(DataAccessResourceFailureException.class)
+                .verify();
+
+        verify(clientProductCounterRepository, timeout(1000).times(1)).decrement(anyString(), eq("CHECKING"));
+    }
+
+    @Test
+    void createAccounts_shouldTakeBackTheCountsOfRowsNotInsertedWhenCancelled() {
+        ReflectionTestUtils.setField(accountOnboardingService, "chunkMaxWait", Duration.ofSeconds(10));
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        givenCountedCheckingAccounts(customer);
+
+        StepVerifier.create(accountOnboardingService.createAccounts(BATCH_ID,
+                        Flux.just(FactoryTest.toFactoryBankAccount(AccountRequest.class)).concatWith(Flux.never())))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+
+        verify(clientProductCounterRepository, timeout(1000).times(1)).decrement(anyString(), eq("CHECKING"));
+        verify(bankAccountRepository, never()).insertAll(anyList());
+        verify(bankAccountRepository, never()).existsById(anyString());
+    }
+
+    private void givenCountedCheckingAccounts(Customer customer) {
+        when(onboardingResultRepository.findIndexesByBatchId(BATCH_ID)).thenReturn(Flux.empty());
+        when(customerLookupService.getCustomer(anyString())).thenReturn(Mono.just(customer));
+        when(validationBankAccount.checkingAccount(any(AccountRequest.class), eq(customer)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(clientProductCounterRepository.increment(anyString(), anyString(), any())).thenReturn(Mono.just(true));
+        when(clientProductCounterRepository.decrement(anyString(), eq("CHECKING"))).thenReturn(Mono.empty());
+    }
+
+    private void givenValidCheckingAccounts(Customer customer) {
+        when(onboardingResultRepository.findIndexesByBatchId(BATCH_ID)).thenReturn(Flux.empty());
+        when(customerLookupService.getCustomer(anyString())).thenReturn(Mono.just(customer));
+        when(validationBankAccount.checkingAccount(any(AccountRequest.class), eq(customer)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(onboardingResultRepository.saveAll(anyList())).thenReturn(Mono.empty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.ValidationBankAccountImpl;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.AccountRequest;
+import com.sgi.account.infrastructure.dto.Customer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the validation of a VIP savings account, whose credit card must be checked.
+ * Compares fetching the customer and then validating, as createAccount did, with the speculative
+ * {@link ValidationBankAccount#validate(AccountRequest, Mono)}, against a customer service and a credit
+ * service answering in 20 to 40 ms. The sample time mode reports the p50 and p99 latencies.
+ * It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AccountValidationFanOutBenchmark {
+
+    private ValidationBankAccountImpl validationBankAccount;
+    private Customer customer;
+    private AccountRequest accountRequest;
+
+    /**
+     * Builds the validation with a credit service that answers after the simulated latency.
+     */
+    @Setup
+    public void setup() {
+        validationBankAccount = new ValidationBankAccountImpl(new CreditEligibilityService() {
+            @Override
+            public Mono<Boolean> hasCreditCard(String clientId) {
+                return Mono.just(true).delayElement(latency());
+            }
+
+            @Override
+            public void creditCreated(String clientId, boolean creditCard) {
+            }
+        });
+        customer = FactoryTest.toFactoryCustomerResponse();
+        accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
+        accountRequest.setClientId(customer.getId());
+    }
+
+    /**
+     * Fetches the customer, then validates the account and looks up its facts.
+     */
+    @Benchmark
+    public AccountRequest sequential() {
+        return fetchCustomer()
+                .flatMap(client -> validationBankAccount.savingsAccount(accountRequest, client))
+                .block();
+    }
+
+    @Benchmark
+    public AccountRequest speculative() {
+        return validationBankAccount.validate(accountRequest, fetchCustomer()).block();
+    }
+
+    private Mono<Customer> fetchCustomer() {
+        return Mono.just(customer).delayElement(latency());
+    }
+
+    private static Duration latency() {
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(20, 41));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountValidationFanOutBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.sgi.account.application.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.account.application.service.impl.BalanceCacheServiceImpl;
+import com.sgi.account.domain.model.Balance;
+import com.sgi.account.domain.model.BalanceView;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.helper.FactoryTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link BalanceCacheServiceImpl}.
+ * Verifies the projection read on a miss, the write-through of newer balances and the
+ * version-aware invalidation of the balance cache.
+ */
+@ExtendWith(MockitoExtension.class)
+public class BalanceCacheServiceImplTest {
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    private AsyncCache<String, BalanceView> balanceCache;
+
+    private BalanceCacheServiceImpl balanceCacheService;
+
+    @BeforeEach
+    void setup() {
+        balanceCache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .recordStats()
+                .buildAsync();
+        balanceCacheService = new BalanceCacheServiceImpl(balanceCache, bankAccountRepository);
+    }
+
+    @Test
+    void getBalance_shouldReadTheProjectionOnceForConcurrentMisses() {
+        BankAccount account = toAccount(BigDecimal.TEN, 1L);
+        when(bankAccountRepository.findBalanceById(account.getId()))
+                .thenReturn(Mono.just(account).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.range(0, 20).flatMap(i -> balanceCacheService.getBalance(account.getId())))
+                .expectNextCount(20)
+                .verifyComplete();
+
+        verify(bankAccountRepository, times(1)).findBalanceById(account.getId());
+        assertEquals(1, balanceCache.synchronous().stats().missCount());
+    }
+
+    @Test
+    void getBalance_shouldBeEmptyForAMissingAccount() {
+        when(bankAccountRepository.findBalanceById("missing")).thenReturn(Mono.empty());
+
+        StepVerifier.create(balanceCacheService.getBalance("missing"))
+                .verifyComplete();
+    }
+
+    @Test
+    void update_shouldServeTheWrittenBalanceWithoutReading() {
+        BankAccount account = toAccount(BigDecimal.TEN, 3L);
+
+        balanceCacheService.update(account);
+
+        StepVerifier.create(balanceCacheService.getBalance(account.getId()))
+                .assertNext(balance -> {
+                    assertEquals(account.getId(), balance.getAccountId());
+                    assertEquals(account.getClientId(), balance.getClientId());
+                    assertEquals(0, BigDecimal.TEN.compareTo(balance.getAccountBalance()));
+                })
+                .verifyComplete();
+        verify(bankAccountRepository, never()).findBalanceById(account.getId());
+    }
+
+    @Test
+    void update_shouldKeepANewerBalance() {
+        BankAccount newer = toAccount(BigDecimal.TEN, 5L);
+        BankAccount older = toAccount(BigDecimal.ONE, 4L);
+        older.setId(newer.getId());
+
+        balanceCacheService.update(newer);
+        balanceCacheService.update(older);
+
+        StepVerifier.create(balanceCacheService.getBalance(newer.getId()))
+                .assertNext(balance -> assertEquals(0, BigDecimal.TEN.compareTo(balance.getAccountBalance())))
+                .verifyComplete();
+    }
+
+    @Test
+    void evict_shouldOnlyEvictBalancesOlderThanTheChange() {
+        BankAccount account = toAccount(BigDecimal.TEN, 5L);
+        balanceCacheService.update(account);
+
+        balanceCacheService.evict(account.getId(), 5L);
+        assertEquals(1, balanceCache.synchronous().estimatedSize());
+
+        balanceCacheService.evict(account.getId(), 6L);
+        assertEquals(0, balanceCache.synchronous().estimatedSize());
+    }
+
+    @Test
+    void evict_shouldEvictRegardlessOfVersionWhenUnknown() {
+        BankAccount account = toAccount(BigDecimal.TEN, 5L);
+        balanceCacheService.update(account);
+
+        balanceCacheService.evict(account.getId(), null);
+
+        assertEquals(0, balanceCache.synchronous().estimatedSize());
+    }
+
+    private static BankAccount toAccount(BigDecimal balance, Long version) {
+        BankAccount account = FactoryTest.toFactoryEntityBankAccount();
+        account.setAccountBalance(new Balance(balance, "PEN"));
+        account.setVersion(version);
+        return account;
+    }
+}
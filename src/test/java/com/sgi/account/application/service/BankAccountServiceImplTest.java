@@ -1,34 +1,46 @@
 package com.sgi.account.application.service;
 
 import com.sgi.account.application.service.impl.BankAccountServiceImpl;
+import com.sgi.account.domain.model.AccountQuery;
 import com.sgi.account.domain.model.BankAccount;
 import com.sgi.account.domain.ports.out.BankAccountRepository;
-import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import com.sgi.account.domain.shared.CustomError;
 import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.AccountExistsBatchRequest;
+import com.sgi.account.infrastructure.dto.AccountExistsResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
 import com.sgi.account.infrastructure.dto.Customer;
 import com.sgi.account.infrastructure.dto.BalanceResponse;
+import com.sgi.account.infrastructure.dto.BalanceRequest;
+import com.sgi.account.infrastructure.dto.AccountBalanceResponse;
 import com.sgi.account.infrastructure.exception.CustomException;
 import com.sgi.account.infrastructure.mapper.BankAccountMapper;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.dao.DuplicateKeyException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -45,31 +57,36 @@ public class BankAccountServiceImplTest {
     @Mock
     private BankAccountRepository bankAccountRepository;
 
-    private static final String customerServiceUrl = "localhost:8081/";
-
     @Mock
-    private FeignExternalService webClient;
+    private CustomerLookupService customerLookupService;
 
     @Mock
     private ValidationBankAccount validateSavingsAccount;
 
+    @Mock
+    private BalanceCacheService balanceCacheService;
+
+    @Mock
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Mock
+    private ClientProductCounterRepository clientProductCounterRepository;
+
     @InjectMocks
     private BankAccountServiceImpl bankAccountService;
 
-    @BeforeEach
-    void setup() {
-        ReflectionTestUtils.setField(bankAccountService, "customerServiceUrl", customerServiceUrl);
-    }
-
     @Test
     void createAccount_shouldReturnCreatedResponse() {
         Customer customer = FactoryTest.toFactoryCustomerResponse();
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         AccountResponse accountResponse =  FactoryTest.toFactoryBankAccount(AccountResponse.class);
-        when(webClient.getMono(anyString(), anyString(), eq(Customer.class)))
+        when(customerLookupService.getCustomer(accountRequest.getClientId()))
                 .thenReturn(Mono.just(customer));
-        when(validateSavingsAccount.checkingAccount(any(), eq(customer)))
-                .thenReturn(Mono.just(accountRequest));
+        givenValidAccount(accountRequest);
+        when(validateSavingsAccount.isOnePerClient(accountRequest, customer)).thenReturn(true);
+        when(clientProductCounterRepository.increment(accountRequest.getClientId(), "CHECKING", 1))
+                .thenReturn(Mono.just(true));
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
         when(bankAccountRepository.save(any(BankAccount.class)))
                 .thenReturn(Mono.just(accountResponse));
         Mono<AccountResponse> result = bankAccountService.createAccount(Mono.just(accountRequest));
@@ -77,22 +94,123 @@ public class BankAccountServiceImplTest {
                 .expectNext(accountResponse)
                 .verifyComplete();
 
-        verify(webClient, times(1)).getMono(anyString(), anyString(), eq(Customer.class));
+        verify(customerLookupService, times(1)).getCustomer(accountRequest.getClientId());
         verify(bankAccountRepository, times(1)).save(any(BankAccount.class));
     }
 
+    @Test
+    void createAccount_shouldRetryWithANewNumberWhenTheNumberIsTaken() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        AccountResponse accountResponse = FactoryTest.toFactoryBankAccount(AccountResponse.class);
+        ArgumentCaptor<BankAccount> saved = ArgumentCaptor.forClass(BankAccount.class);
+        when(customerLookupService.getCustomer(accountRequest.getClientId())).thenReturn(Mono.just(customer));
+        givenValidAccount(accountRequest);
+        when(clientProductCounterRepository.increment(accountRequest.getClientId(), "CHECKING", null))
+                .thenReturn(Mono.just(true));
+        when(accountNumberGenerator.next())
+                .thenReturn(Mono.just("000100000000000017"))
+                .thenReturn(Mono.just("000100000000000025"));
+        when(bankAccountRepository.save(saved.capture()))
+                .thenAnswer(invocation -> Mono.error(new DuplicateKeyException("accountNumber_index")))
+                .thenAnswer(invocation -> Mono.just(accountResponse));
+
+        StepVerifier.create(bankAccountService.createAccount(Mono.just(accountRequest)))
+                .expectNext(accountResponse)
+                .verifyComplete();
+
+        verify(bankAccountRepository, times(2)).save(any(BankAccount.class));
+        assertEquals("000100000000000025", saved.getValue().getAccountNumber());
+    }
+
+    @Test
+    void createAccount_shouldRejectASecondAccountOfATypeLimitedToOne() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        when(customerLookupService.getCustomer(accountRequest.getClientId())).thenReturn(Mono.just(customer));
+        givenValidAccount(accountRequest);
+        when(validateSavingsAccount.isOnePerClient(accountRequest, customer)).thenReturn(true);
+        when(clientProductCounterRepository.increment(accountRequest.getClientId(), "CHECKING", 1))
+                .thenReturn(Mono.just(false));
+
+        StepVerifier.create(bankAccountService.createAccount(Mono.just(accountRequest)))
+                .expectErrorMatches(throwable -> throwable.getCause().getCause() instanceof CustomException customException
+                        && "ACCOUNT-007".equals(customException.getCode()))
+                .verify();
+
+        verify(bankAccountRepository, never()).save(any(BankAccount.class));
+    }
+
+    @Test
+    void createAccount_shouldTakeBackTheCountWhenTheSaveFails() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        when(customerLookupService.getCustomer(accountRequest.getClientId())).thenReturn(Mono.just(customer));
+        givenValidAccount(accountRequest);
+        when(clientProductCounterRepository.increment(accountRequest.getClientId(), "CHECKING", null))
+                .thenReturn(Mono.just(true));
+        when(clientProductCounterRepository.decrement(accountRequest.getClientId(), "CHECKING"))
+                .thenReturn(Mono.empty());
+        when(accountNumberGenerator.next()).thenReturn(Mono.just("000100000000000017"));
+        when(bankAccountRepository.save(any(BankAccount.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)));
+
+        StepVerifier.create(bankAccountService.createAccount(Mono.just(accountRequest)))
+                .expectError()
+                .verify();
+
+        verify(clientProductCounterRepository).decrement(accountRequest.getClientId(), "CHECKING");
+    }
+
+    @Test
+    void createAccount_shouldWrapACustomerFailureOnce() {
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        when(customerLookupService.getCustomer(accountRequest.getClientId()))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)));
+        givenValidAccount(accountRequest);
+
+        StepVerifier.create(bankAccountService.createAccount(Mono.just(accountRequest)))
+                .expectErrorMatches(throwable -> "Failed to fetch customer".equals(throwable.getMessage())
+                        && throwable.getCause() instanceof CustomException)
+                .verify();
+
+        verify(customerLookupService, times(1)).getCustomer(accountRequest.getClientId());
+        verify(bankAccountRepository, never()).save(any(BankAccount.class));
+    }
+
     @Test
     void deleteAccount_shouldReturnVoid() {
         String accountId = UUID.randomUUID().toString();
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
         bankAccount.setId(accountId);
         when(bankAccountRepository.findById(accountId)).thenReturn(Mono.just(bankAccount));
-        when(bankAccountRepository.delete(bankAccount)).thenReturn(Mono.empty());
+        when(bankAccountRepository.deleteIfSettled(accountId)).thenReturn(Mono.just(true));
+        when(clientProductCounterRepository.decrement(bankAccount.getClientId(), bankAccount.getType()))
+                .thenReturn(Mono.empty());
         Mono<Void> result = bankAccountService.deleteAccount(accountId);
         StepVerifier.create(result)
                 .verifyComplete();
         verify(bankAccountRepository).findById(accountId);
-        verify(bankAccountRepository).delete(bankAccount);
+        verify(bankAccountRepository).deleteIfSettled(accountId);
+        verify(clientProductCounterRepository).decrement(bankAccount.getClientId(), bankAccount.getType());
+        verify(balanceCacheService).evict(accountId, null);
+    }
+
+    @Test
+    void deleteAccount_shouldRefuseAnAccountWithPendingMovements() {
+        String accountId = UUID.randomUUID().toString();
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        bankAccount.setId(accountId);
+        when(bankAccountRepository.findById(accountId)).thenReturn(Mono.just(bankAccount));
+        when(bankAccountRepository.deleteIfSettled(accountId)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(bankAccountService.deleteAccount(accountId))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-016".equals(((CustomException) throwable).getCode()))
+                .verify();
+
+        verify(clientProductCounterRepository, never()).decrement(anyString(), anyString());
+        verify(balanceCacheService, never()).evict(anyString(), any());
     }
 
     @Test
@@ -111,13 +229,28 @@ public class BankAccountServiceImplTest {
     @Test
     void getAllAccounts_shouldReturnListAccountResponse() {
         List<AccountResponse> accounts = FactoryTest.toFactoryListBankAccounts();
-        when(bankAccountRepository.findAll(anyString(), anyString(), anyString())).thenReturn(Flux.fromIterable(accounts));
-        Flux<AccountResponse> result = bankAccountService.getAllAccounts(anyString(), anyString(), anyString());
+        AccountQuery accountQuery = AccountQuery.builder().clientId("client-test-0001").build();
+        ArgumentCaptor<AccountQuery> pageQuery = ArgumentCaptor.forClass(AccountQuery.class);
+        when(bankAccountRepository.findAll(pageQuery.capture())).thenReturn(Flux.fromIterable(accounts));
+        Flux<AccountResponse> result = bankAccountService.getAllAccounts(accountQuery);
 
         StepVerifier.create(result)
                 .expectNextCount(2)
                 .verifyComplete();
-        verify(bankAccountRepository).findAll(anyString(), anyString(), anyString());
+        assertEquals("client-test-0001", pageQuery.getValue().getClientId());
+        assertEquals(AccountQuery.DEFAULT_LIMIT, pageQuery.getValue().getLimit());
+        assertNull(accountQuery.getLimit());
+    }
+
+    @Test
+    void getAllAccounts_shouldRejectLimitAboveMaximum() {
+        AccountQuery accountQuery = AccountQuery.builder().limit(AccountQuery.MAX_LIMIT + 1).build();
+
+        StepVerifier.create(bankAccountService.getAllAccounts(accountQuery))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-011".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verifyNoMoreInteractions(bankAccountRepository);
     }
 
     @Test
@@ -157,14 +290,82 @@ public class BankAccountServiceImplTest {
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         AccountResponse accountResponse = BankAccountMapper.INSTANCE.toAccountResponse(bankAccount);
 
-        when(bankAccountRepository.findById(accountId)).thenReturn(Mono.just(bankAccount));
-        when(bankAccountRepository.save(argThat(account -> account.getId().equals(accountId))))
-                .thenReturn(Mono.just(accountResponse));
+        when(bankAccountRepository.update(eq(accountId), any()))
+                .thenAnswer(invocation -> Mono.just(invocation.<UnaryOperator<BankAccount>>getArgument(1).apply(bankAccount)));
         Mono<AccountResponse> result = bankAccountService.updateAccount(accountId, Mono.just(accountRequest));
         StepVerifier.create(result)
-                .expectNext(accountResponse)
+                .assertNext(updated -> {
+                    assertEquals(accountId, updated.getId());
+                    assertEquals(accountResponse.getClientId(), updated.getClientId());
+                })
                 .verifyComplete();
-        verify(bankAccountRepository).findById(accountId);
+        verify(bankAccountRepository).update(eq(accountId), any());
+    }
+
+    @Test
+    void updateAccount_shouldKeepTheNumberAndCountersOfEachUpdatedAccount() {
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        BankAccount first = FactoryTest.toFactoryEntityBankAccount();
+        BankAccount second = FactoryTest.toFactoryEntityBankAccount();
+        for (BankAccount stored : List.of(first, second)) {
+            stored.setClientId(accountRequest.getClientId());
+            stored.setType(accountRequest.getType().name());
+        }
+        first.setAccountNumber("000100000000000017");
+        first.setMovementsUsed(3);
+        second.setAccountNumber("000100000000000025");
+        second.setMovementsUsed(7);
+        for (BankAccount stored : List.of(first, second)) {
+            when(bankAccountRepository.update(eq(stored.getId()), any()))
+                    .thenAnswer(invocation -> Mono.just(invocation.<UnaryOperator<BankAccount>>getArgument(1).apply(stored)));
+        }
+
+        for (BankAccount stored : List.of(first, second)) {
+            StepVerifier.create(bankAccountService.updateAccount(stored.getId(), Mono.just(accountRequest)))
+                    .assertNext(updated -> assertEquals(stored.getAccountNumber(), updated.getAccountNumber()))
+                    .verifyComplete();
+        }
+
+        ArgumentCaptor<BankAccount> cached = ArgumentCaptor.forClass(BankAccount.class);
+        verify(balanceCacheService, times(2)).update(cached.capture());
+        assertEquals(3, cached.getAllValues().get(0).getMovementsUsed());
+        assertEquals(first.getCreatedDate(), cached.getAllValues().get(0).getCreatedDate());
+        assertEquals(first.getAccountBalance(), cached.getAllValues().get(0).getAccountBalance());
+        assertEquals("000100000000000025", cached.getAllValues().get(1).getAccountNumber());
+        assertEquals(7, cached.getAllValues().get(1).getMovementsUsed());
+        verify(clientProductCounterRepository, never()).increment(any(), any(), any());
+    }
+
+    @Test
+    void updatedBalanceByAccountId_shouldRejectDeductionAboveBalance() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        BalanceRequest balanceRequest = new BalanceRequest();
+        balanceRequest.setAccountId(bankAccount.getId());
+        balanceRequest.setAmount(BigDecimal.TEN);
+        when(bankAccountRepository.update(eq(bankAccount.getId()), any()))
+                .thenAnswer(invocation -> Mono.fromCallable(() ->
+                        invocation.<UnaryOperator<BankAccount>>getArgument(1).apply(bankAccount)));
+
+        StepVerifier.create(bankAccountService.updatedBalanceByAccountId("deduct", Mono.just(balanceRequest)))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "Insufficient balance".equals(throwable.getMessage()))
+                .verify();
+    }
+
+    @Test
+    void updatedBalanceByAccountId_shouldAddAmount() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        BalanceRequest balanceRequest = new BalanceRequest();
+        balanceRequest.setAccountId(bankAccount.getId());
+        balanceRequest.setAmount(BigDecimal.TEN);
+        when(bankAccountRepository.update(eq(bankAccount.getId()), any()))
+                .thenAnswer(invocation -> Mono.just(invocation.<UnaryOperator<BankAccount>>getArgument(1).apply(bankAccount)));
+
+        StepVerifier.create(bankAccountService.updatedBalanceByAccountId("add", Mono.just(balanceRequest)))
+                .assertNext(response -> assertEquals(AccountBalanceResponse.StatusEnum.COMPLETED, response.getStatus()))
+                .verifyComplete();
+        assertEquals(0, BigDecimal.valueOf(11).compareTo(bankAccount.getAccountBalance().getBalance()));
+        verify(balanceCacheService).update(bankAccount);
     }
 
     @Test
@@ -173,13 +374,53 @@ public class BankAccountServiceImplTest {
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
         bankAccount.setId(accountId);
         BalanceResponse balanceResponse = BankAccountMapper.INSTANCE.toBalance(bankAccount);
-        when(bankAccountRepository.findById(accountId)).thenReturn(Mono.just(bankAccount));
+        when(balanceCacheService.getBalance(accountId)).thenReturn(Mono.just(balanceResponse));
 
         Mono<BalanceResponse> result = bankAccountService.getClientBalances(accountId);
         StepVerifier.create(result)
                 .expectNext(balanceResponse)
                 .verifyComplete();
-        verify(bankAccountRepository).findById(accountId);
+        verify(balanceCacheService).getBalance(accountId);
+        verifyNoMoreInteractions(bankAccountRepository);
     }
 
+    @Test
+    void existAccounts_shouldResolveEachDistinctIdWithOneLookup() {
+        AccountExistsBatchRequest request = new AccountExistsBatchRequest();
+        request.setAccountIds(List.of("account-1", "account-2", "account-1"));
+        when(bankAccountRepository.findTypesById(List.of("account-1", "account-2")))
+                .thenReturn(Flux.just(BankAccount.builder().id("account-1").type("SAVINGS").build()));
+
+        StepVerifier.create(bankAccountService.existAccounts(Mono.just(request)))
+                .assertNext(response -> {
+                    assertEquals("account-1", response.getAccountId());
+                    assertEquals(true, response.getExists());
+                    assertEquals(AccountExistsResponse.TypeEnum.SAVINGS, response.getType());
+                })
+                .assertNext(response -> {
+                    assertEquals("account-2", response.getAccountId());
+                    assertEquals(false, response.getExists());
+                })
+                .verifyComplete();
+        verify(bankAccountRepository, times(1)).findTypesById(List.of("account-1", "account-2"));
+    }
+
+    @Test
+    void existAccounts_shouldRejectBatchesAboveTheMaximum() {
+        AccountExistsBatchRequest request = new AccountExistsBatchRequest();
+        request.setAccountIds(IntStream.rangeClosed(0, BankAccountServiceImpl.MAX_EXISTS_BATCH)
+                .mapToObj(i -> "account-" + i)
+                .toList());
+
+        StepVerifier.create(bankAccountService.existAccounts(Mono.just(request)))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-011".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verifyNoMoreInteractions(bankAccountRepository);
+    }
+
+    private void givenValidAccount(AccountRequest accountRequest) {
+        when(validateSavingsAccount.validate(eq(accountRequest), any()))
+                .thenAnswer(invocation -> invocation.<Mono<Customer>>getArgument(1).thenReturn(accountRequest));
+    }
 }
@@ -0,0 +1,99 @@
+package com.sgi.account.application.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.account.application.service.impl.CreditEligibilityServiceImpl;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.config.CacheConfiguration;
+import com.sgi.account.infrastructure.dto.Credit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link CreditEligibilityServiceImpl}.
+ * Verifies the short-circuited existence check, the positive and negative caching and the credit-created events.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CreditEligibilityServiceImplTest {
+
+    private static final String CLIENT_ID = "client-test-0001";
+
+    @Mock
+    private FeignExternalService webClient;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CreditEligibilityServiceImpl creditEligibilityService;
+
+    @BeforeEach
+    void setup() {
+        AsyncCache<String, Boolean> creditCardCache = Caffeine.newBuilder()
+                .expireAfter(CacheConfiguration.expireByValue(Duration.ofMinutes(30), Duration.ofMinutes(1)))
+                .ticker(nanos::get)
+                .buildAsync();
+        creditEligibilityService = new CreditEligibilityServiceImpl(creditCardCache, webClient);
+        ReflectionTestUtils.setField(creditEligibilityService, "creditServiceUrl", "localhost:8083");
+    }
+
+    @Test
+    void hasCreditCard_shouldStopReadingAfterTheFirstCredit() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Credit credit = FactoryTest.toFactoryCreditResponse();
+        when(webClient.getFlux(anyString(), eq(CLIENT_ID), eq(Credit.class)))
+                .thenReturn(Flux.just(credit, credit, credit).doOnCancel(() -> cancelled.set(true)));
+
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertTrue(cancelled.get());
+        verify(webClient, times(1)).getFlux(anyString(), eq(CLIENT_ID), eq(Credit.class));
+    }
+
+    @Test
+    void hasCreditCard_shouldCacheMissingCardsForTheNegativeTtl() {
+        when(webClient.getFlux(anyString(), eq(CLIENT_ID), eq(Credit.class)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID)).expectNext(false).verifyComplete();
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID)).expectNext(false).verifyComplete();
+        verify(webClient, times(1)).getFlux(anyString(), eq(CLIENT_ID), eq(Credit.class));
+
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID)).expectNext(false).verifyComplete();
+        verify(webClient, times(2)).getFlux(anyString(), eq(CLIENT_ID), eq(Credit.class));
+    }
+
+    @Test
+    void creditCreated_shouldWarmTheFlagWithoutRemoteCalls() {
+        creditEligibilityService.creditCreated(CLIENT_ID, true);
+
+        StepVerifier.create(creditEligibilityService.hasCreditCard(CLIENT_ID))
+                .expectNext(true)
+                .verifyComplete();
+        verify(webClient, never()).getFlux(anyString(), anyString(), eq(Credit.class));
+    }
+}
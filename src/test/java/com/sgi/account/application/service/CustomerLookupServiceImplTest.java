@@ -0,0 +1,103 @@
+package com.sgi.account.application.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sgi.account.application.service.impl.CustomerLookupServiceImpl;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.Customer;
+import com.sgi.account.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link CustomerLookupServiceImpl}.
+ * Verifies request coalescing, expiration, eviction and the hit and miss statistics of the customer cache.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CustomerLookupServiceImplTest {
+
+    @Mock
+    private FeignExternalService webClient;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AsyncCache<String, Customer> customerCache;
+
+    private CustomerLookupServiceImpl customerLookupService;
+
+    @BeforeEach
+    void setup() {
+        customerCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .maximumSize(100)
+                .recordStats()
+                .ticker(nanos::get)
+                .buildAsync();
+        customerLookupService = new CustomerLookupServiceImpl(customerCache, webClient);
+        ReflectionTestUtils.setField(customerLookupService, "customerServiceUrl", "localhost:8085");
+    }
+
+    @Test
+    void getCustomer_shouldShareOneCallBetweenConcurrentLookups() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        when(webClient.getMono(anyString(), eq(customer.getId()), eq(Customer.class)))
+                .thenReturn(Mono.just(customer).delayElement(Duration.ofMillis(50)));
+
+        StepVerifier.create(Flux.range(0, 20).flatMap(i -> customerLookupService.getCustomer(customer.getId())))
+                .expectNextCount(20)
+                .verifyComplete();
+
+        verify(webClient, times(1)).getMono(anyString(), eq(customer.getId()), eq(Customer.class));
+        assertEquals(1, customerCache.synchronous().stats().missCount());
+        assertEquals(19, customerCache.synchronous().stats().hitCount());
+    }
+
+    @Test
+    void getCustomer_shouldCallAgainAfterExpirationOrEviction() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        when(webClient.getMono(anyString(), eq(customer.getId()), eq(Customer.class)))
+                .thenReturn(Mono.just(customer));
+
+        StepVerifier.create(customerLookupService.getCustomer(customer.getId())).expectNext(customer).verifyComplete();
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        StepVerifier.create(customerLookupService.getCustomer(customer.getId())).expectNext(customer).verifyComplete();
+        customerLookupService.evict(customer.getId());
+        StepVerifier.create(customerLookupService.getCustomer(customer.getId())).expectNext(customer).verifyComplete();
+
+        verify(webClient, times(3)).getMono(anyString(), eq(customer.getId()), eq(Customer.class));
+    }
+
+    @Test
+    void getCustomer_shouldNotCacheFailures() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        when(webClient.getMono(anyString(), eq(customer.getId()), eq(Customer.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)))
+                .thenReturn(Mono.just(customer));
+
+        StepVerifier.create(customerLookupService.getCustomer(customer.getId()))
+                .expectError(CustomException.class)
+                .verify();
+        StepVerifier.create(customerLookupService.getCustomer(customer.getId()))
+                .expectNext(customer)
+                .verifyComplete();
+    }
+}
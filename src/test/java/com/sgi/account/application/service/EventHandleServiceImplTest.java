@@ -0,0 +1,55 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.EventHandleServiceImpl;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link EventHandleServiceImpl}.
+ * Verifies that wallet validations are resolved with a single lookup of the accounts.
+ */
+@ExtendWith(MockitoExtension.class)
+public class EventHandleServiceImplTest {
+
+    @InjectMocks
+    private EventHandleServiceImpl eventHandleService;
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Test
+    void validateExistBankAccounts_shouldOnlyAcceptExistingCheckingAndSavingsAccounts() {
+        List<String> accountIds = List.of("checking", "savings", "fixed-term", "missing");
+        when(bankAccountRepository.findTypesById(accountIds)).thenReturn(Flux.just(
+                BankAccount.builder().id("checking").type("CHECKING").build(),
+                BankAccount.builder().id("savings").type("SAVINGS").build(),
+                BankAccount.builder().id("fixed-term").type("FIXED_TERM").build()));
+
+        StepVerifier.create(eventHandleService.validateExistBankAccounts(accountIds))
+                .expectNext(Map.of("checking", true, "savings", true, "fixed-term", false, "missing", false))
+                .verifyComplete();
+        verify(bankAccountRepository).findTypesById(accountIds);
+    }
+
+    @Test
+    void validateExistBankAccounts_shouldNotQueryWithoutAccounts() {
+        StepVerifier.create(eventHandleService.validateExistBankAccounts(List.of()))
+                .expectNext(Map.of())
+                .verifyComplete();
+        verifyNoInteractions(bankAccountRepository);
+    }
+}
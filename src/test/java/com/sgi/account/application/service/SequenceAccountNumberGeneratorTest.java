@@ -0,0 +1,118 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.SequenceAccountNumberGenerator;
+import com.sgi.account.domain.ports.out.SequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link SequenceAccountNumberGenerator}.
+ * Verifies the account number format and check digit, that a block is leased only when the
+ * previous one is exhausted, and that numbers stay unique under concurrent generation.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SequenceAccountNumberGeneratorTest {
+
+    @InjectMocks
+    private SequenceAccountNumberGenerator generator;
+
+    @Mock
+    private SequenceRepository sequenceRepository;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(generator, "blockSize", 10);
+    }
+
+    @Test
+    void next_shouldFormatThePrefixTheSequenceAndACheckDigit() {
+        when(sequenceRepository.reserve(anyString(), anyInt())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(generator.next())
+                .assertNext(accountNumber -> {
+                    assertEquals("000100000000000017", accountNumber);
+                    assertTrue(isLuhnValid(accountNumber));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void next_shouldLeaseANewBlockOnlyWhenTheCurrentOneIsExhausted() {
+        when(sequenceRepository.reserve(anyString(), anyInt())).thenAnswer(invocation ->
+                Mono.fromSupplier(() -> sequence.addAndGet(10) - 9));
+
+        List<String> accountNumbers = Flux.range(0, 25)
+                .concatMap(i -> generator.next())
+                .collectList()
+                .block();
+
+        assertEquals(25, accountNumbers.stream().distinct().count());
+        assertTrue(accountNumbers.stream().allMatch(SequenceAccountNumberGeneratorTest::isLuhnValid));
+        verify(sequenceRepository, times(3)).reserve(anyString(), anyInt());
+    }
+
+    @Test
+    void next_shouldGenerateUniqueNumbersConcurrently() {
+        when(sequenceRepository.reserve(anyString(), anyInt())).thenAnswer(invocation ->
+                Mono.fromSupplier(() -> sequence.addAndGet(10) - 9).subscribeOn(Schedulers.parallel()));
+
+        List<String> accountNumbers = Flux.range(0, 10_000)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> generator.next())
+                .sequential()
+                .collectList()
+                .block();
+
+        assertEquals(10_000, accountNumbers.stream().distinct().count());
+        assertTrue(sequence.get() <= 10_010);
+    }
+
+    @Test
+    void next_shouldRetryTheLeaseAfterAFailure() {
+        when(sequenceRepository.reserve(anyString(), anyInt()))
+                .thenReturn(Mono.error(new IllegalStateException("Mongo unavailable")))
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(generator.next())
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(generator.next())
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    private static boolean isLuhnValid(String number) {
+        int sum = 0;
+        for (int i = 0; i < number.length(); i++) {
+            int digit = number.charAt(number.length() - 1 - i) - '0';
+            if (i % 2 == 1) {
+                digit = digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+}
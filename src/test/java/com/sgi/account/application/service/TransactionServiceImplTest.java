@@ -3,32 +3,52 @@ package com.sgi.account.application.service;
 import com.sgi.account.application.service.impl.TransactionServiceImpl;
 import com.sgi.account.domain.model.Balance;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransactionHistoryQuery;
 import com.sgi.account.domain.ports.out.BankAccountRepository;
 import com.sgi.account.domain.ports.out.FeignExternalService;
 import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.BatchTransferRequest;
+import com.sgi.account.infrastructure.dto.BatchTransferResponse;
 import com.sgi.account.infrastructure.dto.DepositRequest;
 import com.sgi.account.infrastructure.dto.TransactionRequest;
 import com.sgi.account.infrastructure.dto.TransferRequest;
 import com.sgi.account.infrastructure.dto.TransactionResponse;
 import com.sgi.account.infrastructure.dto.WithdrawalRequest;
 import com.sgi.account.infrastructure.exception.CustomException;
-import com.sgi.account.infrastructure.mapper.BankAccountMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.never;
@@ -52,6 +72,12 @@ public class TransactionServiceImplTest {
     @Mock
     private FeignExternalService feignExternalService;
 
+    @Mock
+    private TransferSagaService transferSagaService;
+
+    @Mock
+    private BalanceCacheService balanceCacheService;
+
     private static final String transactionServiceUrl = "localhost:8081/";
 
     @BeforeEach
@@ -64,39 +90,112 @@ public class TransactionServiceImplTest {
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
         TransactionResponse transactionResponse = FactoryTest.toFactoryToClientIdTransactionResponse(bankAccount.getId(), bankAccount.getClientId());
 
-        when(bankAccountRepository.findById(bankAccount.getId())).thenReturn(Mono.just(bankAccount));
-        when(feignExternalService.getFlux(anyString(), anyString(), eq(TransactionResponse.class)))
+        when(bankAccountRepository.existsById(bankAccount.getId())).thenReturn(Mono.just(true));
+        when(feignExternalService.getFluxStream(anyString(), anyMap(), eq(TransactionResponse.class)))
                 .thenReturn(Flux.just(transactionResponse));
 
-        Flux<TransactionResponse> result = transactionService.getAccountIdTransactions(bankAccount.getId());
+        TransactionHistoryQuery query = new TransactionHistoryQuery();
+        Flux<TransactionResponse> result = transactionService.getAccountIdTransactions(bankAccount.getId(), query);
 
         StepVerifier.create(result)
                 .expectNext(transactionResponse)
                 .verifyComplete();
 
-        verify(bankAccountRepository).findById(bankAccount.getId());
-        verify(feignExternalService).getFlux(anyString(), anyString(), eq(TransactionResponse.class));
+        verify(bankAccountRepository).existsById(bankAccount.getId());
+        verify(feignExternalService).getFluxStream(eq(transactionServiceUrl + "/v1/transactions/{productId}/card?limit={limit}"),
+                eq(Map.of("productId", bankAccount.getId(), "limit", TransactionHistoryQuery.DEFAULT_LIMIT)),
+                eq(TransactionResponse.class));
+        assertNull(query.getLimit());
+    }
+
+    @Test
+    void testGetAccountIdTransactions_PropagatesTheQuery() {
+        OffsetDateTime from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-02-01T00:00:00Z");
+        when(bankAccountRepository.existsById("account-1")).thenReturn(Mono.just(true));
+        when(feignExternalService.getFluxStream(anyString(), anyMap(), eq(TransactionResponse.class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionService.getAccountIdTransactions("account-1", TransactionHistoryQuery.builder()
+                        .from(from)
+                        .to(to)
+                        .limit(50)
+                        .cursor("transaction-9")
+                        .build()))
+                .verifyComplete();
+
+        verify(feignExternalService).getFluxStream(
+                eq(transactionServiceUrl + "/v1/transactions/{productId}/card?from={from}&to={to}&limit={limit}&cursor={cursor}"),
+                eq(Map.of("productId", "account-1", "from", from.toString(), "to", to.toString(), "limit", 50,
+                        "cursor", "transaction-9")),
+                eq(TransactionResponse.class));
+    }
+
+    @Test
+    void testGetAccountIdTransactions_InvalidQuery() {
+        StepVerifier.create(transactionService.getAccountIdTransactions("account-1", TransactionHistoryQuery.builder()
+                        .from(OffsetDateTime.parse("2024-02-01T00:00:00Z"))
+                        .to(OffsetDateTime.parse("2024-01-01T00:00:00Z"))
+                        .build()))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-011".equals(((CustomException) throwable).getCode()))
+                .verify();
+        StepVerifier.create(transactionService.getAccountIdTransactions("account-1", TransactionHistoryQuery.builder()
+                        .limit(TransactionHistoryQuery.MAX_LIMIT + 1)
+                        .build()))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-011".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verify(bankAccountRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void testStreamAccountIdTransactions_Success() {
+        DataBuffer chunk = DefaultDataBufferFactory.sharedInstance.wrap("[{\"id\":\"1\"}]".getBytes(StandardCharsets.UTF_8));
+        when(bankAccountRepository.existsById("account-1")).thenReturn(Mono.just(true));
+        when(feignExternalService.getStream(anyString(), anyMap())).thenReturn(Flux.just(chunk));
+
+        StepVerifier.create(transactionService.streamAccountIdTransactions("account-1", new TransactionHistoryQuery()).flatMapMany(history -> history))
+                .expectNext(chunk)
+                .verifyComplete();
+    }
+
+    @Test
+    void testStreamAccountIdTransactions_AccountNotFound() {
+        when(bankAccountRepository.existsById("account-1")).thenReturn(Mono.just(false));
+
+        StepVerifier.create(transactionService.streamAccountIdTransactions("account-1", new TransactionHistoryQuery()))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-001".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verify(feignExternalService, never()).getStream(anyString(), anyMap());
     }
 
     @Test
     void testDepositToAccount_Success() {
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
         bankAccount.setMaintenanceFee(BigDecimal.ONE);
-        TransactionResponse transactionResponse = FactoryTest.toFactoryToClientIdTransactionResponse(bankAccount.getId(), bankAccount.getClientId());
         DepositRequest depositRequest = FactoryTest.toFactoryDepositRequest();
+        ArgumentCaptor<PendingTransaction> posting = ArgumentCaptor.forClass(PendingTransaction.class);
         when(bankAccountRepository.findById(bankAccount.getId())).thenReturn(Mono.just(bankAccount));
-        when(bankAccountRepository.save(any(BankAccount.class))).thenReturn(Mono.just(BankAccountMapper.INSTANCE.toAccountResponse(bankAccount)));
-        when(feignExternalService.post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class)))
-                .thenReturn(Mono.just(transactionResponse));
+        when(bankAccountRepository.applyMovement(eq(bankAccount.getId()), any(BigDecimal.class), any(BigDecimal.class), isNull(),
+                posting.capture()))
+                .thenReturn(Mono.just(bankAccount));
 
         Mono<TransactionResponse> result = transactionService.depositToAccount(bankAccount.getId(), Mono.just(depositRequest));
 
         StepVerifier.create(result)
-                .expectNext(transactionResponse)
+                .assertNext(response -> {
+                    assertEquals(posting.getValue().getIdempotencyKey(), response.getId());
+                    assertEquals(TransactionResponse.TypeEnum.DEPOSIT, response.getType());
+                    assertEquals(bankAccount.getId(), response.getProductId());
+                })
                 .verifyComplete();
         verify(bankAccountRepository).findById(bankAccount.getId());
-        verify(bankAccountRepository).save(any(BankAccount.class));
-        verify(feignExternalService).post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class));
+        verify(bankAccountRepository).applyMovement(eq(bankAccount.getId()), eq(BigDecimal.valueOf(99.0)),
+                eq(BigDecimal.valueOf(-99.0)), isNull(), any(PendingTransaction.class));
+        assertEquals(0, BigDecimal.ONE.compareTo(posting.getValue().getCommission()));
+        verify(bankAccountRepository, never()).save(any(BankAccount.class));
+        verify(feignExternalService, never()).post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class));
     }
 
 
@@ -105,21 +204,22 @@ public class TransactionServiceImplTest {
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
         bankAccount.setAccountBalance(new Balance(BigDecimal.valueOf(10000), "PEN"));
         bankAccount.setMaintenanceFee(BigDecimal.ONE);
-        TransactionResponse transactionResponse = FactoryTest.toFactoryToClientIdTransactionResponse(bankAccount.getId(), bankAccount.getClientId());
         WithdrawalRequest withdrawalRequest = FactoryTest.toFactoryWithdrawalRequest();
         when(bankAccountRepository.findById(bankAccount.getId())).thenReturn(Mono.just(bankAccount));
-        when(bankAccountRepository.save(any(BankAccount.class))).thenReturn(Mono.just(BankAccountMapper.INSTANCE.toAccountResponse(bankAccount)));
-        when(feignExternalService.post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class)))
-                .thenReturn(Mono.just(transactionResponse));
+        when(bankAccountRepository.applyMovement(eq(bankAccount.getId()), any(BigDecimal.class), any(BigDecimal.class),
+                isNull(), any(PendingTransaction.class)))
+                .thenReturn(Mono.just(bankAccount));
 
         Mono<TransactionResponse> result = transactionService.withdrawFromAccount(bankAccount.getId(), Mono.just(withdrawalRequest));
 
         StepVerifier.create(result)
-                .expectNext(transactionResponse)
+                .assertNext(response -> assertEquals(TransactionResponse.TypeEnum.WITHDRAWAL, response.getType()))
                 .verifyComplete();
         verify(bankAccountRepository).findById(bankAccount.getId());
-        verify(bankAccountRepository).save(any(BankAccount.class));
-        verify(feignExternalService).post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class));
+        verify(bankAccountRepository).applyMovement(eq(bankAccount.getId()), eq(BigDecimal.valueOf(-101.0)),
+                eq(BigDecimal.valueOf(101.0)), isNull(), any(PendingTransaction.class));
+        verify(bankAccountRepository, never()).save(any(BankAccount.class));
+        verify(feignExternalService, never()).post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class));
     }
 
     @Test
@@ -141,6 +241,104 @@ public class TransactionServiceImplTest {
 
         verify(bankAccountRepository).findById(mockAccount.getId());
         verify(bankAccountRepository, never()).save(any(BankAccount.class));
+        verify(bankAccountRepository, never()).applyMovement(anyString(), any(BigDecimal.class), any(BigDecimal.class),
+                any(), any(PendingTransaction.class));
+    }
+
+    @Test
+    void testWithdrawFromAccount_GuardRejectsConcurrentOverdraft() {
+        BankAccount mockAccount = FactoryTest.toFactoryEntityBankAccount();
+        mockAccount.setAccountBalance(new Balance(BigDecimal.valueOf(1000), "PEN"));
+        mockAccount.setMaintenanceFee(BigDecimal.ZERO);
+        when(bankAccountRepository.findById(mockAccount.getId())).thenReturn(Mono.just(mockAccount));
+        when(bankAccountRepository.applyMovement(eq(mockAccount.getId()), any(BigDecimal.class), any(BigDecimal.class),
+                isNull(), any(PendingTransaction.class)))
+                .thenReturn(Mono.empty());
+
+        Mono<TransactionResponse> result = transactionService.withdrawFromAccount(mockAccount.getId(),
+                Mono.just(FactoryTest.toFactoryWithdrawalRequest()));
+
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "Insufficient balance".equals(throwable.getMessage()))
+                .verify();
+        verify(feignExternalService, never()).post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class));
+    }
+
+    @Test
+    void testWithdrawFromAccount_RepricesWhenAnotherMovementWasCounted() {
+        BankAccount snapshot = FactoryTest.toFactoryEntityBankAccount();
+        snapshot.setType("SAVINGS");
+        snapshot.setAccountBalance(new Balance(BigDecimal.valueOf(1000), "PEN"));
+        snapshot.setCommissionFee(BigDecimal.valueOf(5));
+        snapshot.setMovementLimit(2);
+        snapshot.setMovementsUsed(1);
+        BankAccount counted = FactoryTest.toFactoryEntityBankAccount();
+        counted.setId(snapshot.getId());
+        counted.setType("SAVINGS");
+        counted.setAccountBalance(new Balance(BigDecimal.valueOf(1000), "PEN"));
+        counted.setCommissionFee(BigDecimal.valueOf(5));
+        counted.setMovementLimit(2);
+        counted.setMovementsUsed(2);
+        when(bankAccountRepository.findById(snapshot.getId())).thenReturn(Mono.just(snapshot), Mono.just(counted));
+        when(bankAccountRepository.applyMovement(eq(snapshot.getId()), any(BigDecimal.class), any(BigDecimal.class), eq(1),
+                any(PendingTransaction.class)))
+                .thenReturn(Mono.empty());
+        when(bankAccountRepository.applyMovement(eq(snapshot.getId()), any(BigDecimal.class), any(BigDecimal.class), eq(2),
+                any(PendingTransaction.class)))
+                .thenReturn(Mono.just(counted));
+
+        StepVerifier.create(transactionService.withdrawFromAccount(snapshot.getId(), Mono.just(FactoryTest.toFactoryWithdrawalRequest())))
+                .assertNext(response -> assertEquals(TransactionResponse.TypeEnum.WITHDRAWAL, response.getType()))
+                .verifyComplete();
+        verify(bankAccountRepository).applyMovement(eq(snapshot.getId()), eq(BigDecimal.valueOf(-100.0)),
+                eq(BigDecimal.valueOf(100.0)), eq(1), any(PendingTransaction.class));
+        verify(bankAccountRepository).applyMovement(eq(snapshot.getId()), eq(BigDecimal.valueOf(-105.0)),
+                eq(BigDecimal.valueOf(105.0)), eq(2), any(PendingTransaction.class));
+    }
+
+    @Test
+    void testConcurrentMovements_NoUpdateIsLost() {
+        BankAccount account = FactoryTest.toFactoryEntityBankAccount();
+        account.setAccountBalance(new Balance(BigDecimal.valueOf(100), "PEN"));
+        account.setMaintenanceFee(BigDecimal.ZERO);
+        AtomicReference<BigDecimal> storedBalance = new AtomicReference<>(BigDecimal.valueOf(100));
+        when(bankAccountRepository.findById(account.getId())).thenReturn(Mono.just(account));
+        when(bankAccountRepository.applyMovement(eq(account.getId()), any(BigDecimal.class), any(BigDecimal.class),
+                isNull(), any(PendingTransaction.class)))
+                .thenAnswer(invocation -> Mono.fromCallable(() -> {
+                    BigDecimal amount = invocation.getArgument(1);
+                    BigDecimal required = invocation.getArgument(2);
+                    synchronized (storedBalance) {
+                        if (storedBalance.get().compareTo(required) < 0) {
+                            return null;
+                        }
+                        BigDecimal updated = storedBalance.get().add(amount);
+                        storedBalance.set(updated);
+                        return BankAccount.builder()
+                                .id(account.getId())
+                                .clientId(account.getClientId())
+                                .accountBalance(new Balance(updated, "PEN"))
+                                .build();
+                    }
+                }));
+        int deposits = 500;
+        int withdrawals = 800;
+        Flux<Boolean> movements = Flux.merge(
+                Flux.range(0, deposits).map(i -> transactionService
+                        .depositToAccount(account.getId(), Mono.just(new DepositRequest(1D)))),
+                Flux.range(0, withdrawals).map(i -> transactionService
+                        .withdrawFromAccount(account.getId(), Mono.just(new WithdrawalRequest(1D)))))
+                .flatMap(movement -> movement
+                        .map(response -> true)
+                        .onErrorReturn(CustomException.class, false)
+                        .subscribeOn(Schedulers.parallel()), 64);
+
+        Long applied = movements.filter(Boolean::booleanValue).count().block();
+
+        BigDecimal expected = BigDecimal.valueOf(100 + deposits - (applied - deposits));
+        assertEquals(0, expected.compareTo(storedBalance.get()));
+        assertTrue(storedBalance.get().signum() >= 0);
     }
 
     @Test
@@ -160,9 +358,8 @@ public class TransactionServiceImplTest {
         transactionResponse.setDestinationProductId(destinationAccount.getId());
 
         when(bankAccountRepository.findById(sourceAccountId)).thenReturn(Mono.just(sourceAccount));
-        when(bankAccountRepository.findById(destinationAccountId)).thenReturn(Mono.just(destinationAccount));
-        when(bankAccountRepository.saveAll(any(Flux.class))).thenReturn(Flux.just(sourceAccount, destinationAccount));
-        when(feignExternalService.post(anyString(), any(TransactionRequest.class), eq(TransactionResponse.class)))
+        when(bankAccountRepository.existsById(destinationAccountId)).thenReturn(Mono.just(true));
+        when(transferSagaService.transfer(sourceAccount, destinationAccountId, BigDecimal.valueOf(1D)))
                 .thenReturn(Mono.just(transactionResponse));
         TransferRequest transferRequest = FactoryTest.toFactoryTransferRequest(destinationAccountId);
         Mono<TransactionResponse> result = transactionService.transferFunds(sourceAccountId, Mono.just(transferRequest));
@@ -171,7 +368,90 @@ public class TransactionServiceImplTest {
                 .expectNextCount(1)
                 .verifyComplete();
         verify(bankAccountRepository).findById(sourceAccountId);
-        verify(bankAccountRepository).findById(destinationAccountId);
-        verify(bankAccountRepository).saveAll(any(Flux.class));
+        verify(bankAccountRepository).existsById(destinationAccountId);
+        verify(transferSagaService).transfer(sourceAccount, destinationAccountId, BigDecimal.valueOf(1D));
+    }
+
+    @Test
+    void testTransferFunds_DestinationNotFound() {
+        BankAccount sourceAccount = FactoryTest.toFactoryEntityBankAccount();
+        sourceAccount.setAccountBalance(new Balance(BigDecimal.valueOf(100), "PEN"));
+        String destinationAccountId = UUID.randomUUID().toString();
+
+        when(bankAccountRepository.findById(sourceAccount.getId())).thenReturn(Mono.just(sourceAccount));
+        when(bankAccountRepository.existsById(destinationAccountId)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(transactionService.transferFunds(sourceAccount.getId(),
+                        Mono.just(FactoryTest.toFactoryTransferRequest(destinationAccountId))))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-001".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verify(transferSagaService, never()).transfer(any(), anyString(), any());
+    }
+
+    @Test
+    void testTransferFunds_RejectsATransferToTheSameAccount() {
+        BankAccount sourceAccount = FactoryTest.toFactoryEntityBankAccount();
+        sourceAccount.setAccountBalance(new Balance(BigDecimal.valueOf(100), "PEN"));
+
+        when(bankAccountRepository.findById(sourceAccount.getId())).thenReturn(Mono.just(sourceAccount));
+
+        StepVerifier.create(transactionService.transferFunds(sourceAccount.getId(),
+                        Mono.just(FactoryTest.toFactoryTransferRequest(sourceAccount.getId()))))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-015".equals(((CustomException) throwable).getCode()))
+                .verify();
+        verify(transferSagaService, never()).transfer(any(), anyString(), any());
+    }
+
+    @Test
+    void testTransferFundsBatch_KeepsOrderPerSourceAccountAndReportsFailures() {
+        BankAccount first = FactoryTest.toFactoryEntityBankAccount();
+        first.setAccountBalance(new Balance(BigDecimal.valueOf(100), "PEN"));
+        BankAccount second = FactoryTest.toFactoryEntityBankAccount();
+        second.setAccountBalance(new Balance(BigDecimal.valueOf(100), "PEN"));
+        String destinationAccountId = UUID.randomUUID().toString();
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        when(bankAccountRepository.findById(first.getId())).thenReturn(Mono.just(first));
+        when(bankAccountRepository.findById(second.getId())).thenReturn(Mono.just(second));
+        when(bankAccountRepository.findById("missing")).thenReturn(Mono.empty());
+        when(bankAccountRepository.existsById(destinationAccountId)).thenReturn(Mono.just(true));
+        when(transferSagaService.transfer(any(BankAccount.class), eq(destinationAccountId), any(BigDecimal.class)))
+                .thenAnswer(invocation -> {
+                    BankAccount source = invocation.getArgument(0);
+                    BigDecimal amount = invocation.getArgument(2);
+                    return Mono.fromSupplier(() -> {
+                        executed.add(source.getId() + ":" + amount.intValue());
+                        return new TransactionResponse(UUID.randomUUID().toString(), source.getId(), destinationAccountId,
+                                TransactionResponse.TypeEnum.WITHDRAWAL, amount, source.getClientId());
+                    }).subscribeOn(Schedulers.parallel());
+                });
+
+        Flux<BatchTransferRequest> requests = Flux.range(1, 20)
+                .map(i -> batchTransfer(i % 2 == 0 ? first.getId() : second.getId(), destinationAccountId, i))
+                .concatWith(Mono.just(batchTransfer("missing", destinationAccountId, 99)));
+
+        List<BatchTransferResponse> responses = transactionService.transferFundsBatch(requests).collectList().block();
+
+        assertEquals(21, responses.size());
+        BatchTransferResponse failed = responses.stream().filter(response -> response.getIndex() == 20L).findFirst().orElseThrow();
+        assertEquals(BatchTransferResponse.StatusEnum.FAILED, failed.getStatus());
+        assertEquals("ACCOUNT-001", failed.getErrorCode());
+        assertEquals(20, responses.stream().filter(response -> response.getStatus() == BatchTransferResponse.StatusEnum.COMPLETED).count());
+        List<String> firstOrder = executed.stream().filter(entry -> entry.startsWith(first.getId())).toList();
+        List<String> expectedOrder = new ArrayList<>();
+        for (int i = 2; i <= 20; i += 2) {
+            expectedOrder.add(first.getId() + ":" + i);
+        }
+        assertEquals(expectedOrder, firstOrder);
+    }
+
+    private static BatchTransferRequest batchTransfer(String sourceProductId, String destinationProductId, double amount) {
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setSourceProductId(sourceProductId);
+        request.setDestinationProductId(destinationProductId);
+        request.setAmount(amount);
+        return request;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,283 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.TransferSagaServiceImpl;
+import com.sgi.account.domain.model.Balance;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.TransferSagaRepository;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * Unit tests for the {@link TransferSagaServiceImpl}.
+ * The repositories are backed by an in-memory store whose operations are atomic, like the conditional
+ * updates of the real repositories, to verify the saga steps, the compensation, the resumption of an
+ * interrupted transfer and the conservation of funds under concurrent transfers.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TransferSagaServiceImplTest {
+
+    @InjectMocks
+    private TransferSagaServiceImpl transferSagaService;
+
+    @Mock
+    private TransferSagaRepository transferSagaRepository;
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Mock
+    private BalanceCacheService balanceCacheService;
+
+    private final Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+    private final Map<String, TransferSaga> sagas = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setup() {
+        lenient().when(transferSagaRepository.save(any(TransferSaga.class))).thenAnswer(invocation -> {
+            TransferSaga saga = invocation.getArgument(0);
+            sagas.put(saga.getId(), copy(saga));
+            return Mono.just(saga);
+        });
+        lenient().when(transferSagaRepository.findById(anyString()))
+                .thenAnswer(invocation -> Mono.justOrEmpty(sagas.get(invocation.<String>getArgument(0))).map(this::copy));
+        lenient().when(transferSagaRepository.transition(anyString(), any(), any(), any())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            TransferSaga.State from = invocation.getArgument(1);
+            TransferSaga.State to = invocation.getArgument(2);
+            String failureReason = invocation.getArgument(3);
+            synchronized (sagas) {
+                TransferSaga saga = sagas.get(invocation.<String>getArgument(0));
+                if (saga == null || saga.getState() != from) {
+                    return null;
+                }
+                saga.setState(to);
+                if (failureReason != null) {
+                    saga.setFailureReason(failureReason);
+                }
+                return copy(saga);
+            }
+        }));
+        lenient().when(bankAccountRepository.applyTransferStep(anyString(), anyString(), any(BigDecimal.class), any()))
+                .thenAnswer(invocation -> atomically(invocation.getArgument(0), account -> {
+                    String transferId = invocation.getArgument(1);
+                    BigDecimal amount = invocation.getArgument(2);
+                    BigDecimal required = invocation.getArgument(3);
+                    if (account.getPendingTransfers().contains(transferId)
+                            || required != null && account.getAccountBalance().getBalance().compareTo(required) < 0) {
+                        return false;
+                    }
+                    account.getAccountBalance().setBalance(account.getAccountBalance().getBalance().add(amount));
+                    account.getPendingTransfers().add(transferId);
+                    return true;
+                }));
+        lenient().when(bankAccountRepository.settleTransferStep(anyString(), anyString(), any(PendingTransaction.class)))
+                .thenAnswer(invocation -> atomically(invocation.getArgument(0), account -> {
+                    if (!account.getPendingTransfers().remove(invocation.<String>getArgument(1))) {
+                        return false;
+                    }
+                    account.getPendingTransactions().add(invocation.getArgument(2));
+                    return true;
+                }));
+        lenient().when(bankAccountRepository.revertTransferStep(anyString(), anyString(), any(BigDecimal.class)))
+                .thenAnswer(invocation -> atomically(invocation.getArgument(0), account -> {
+                    if (!account.getPendingTransfers().remove(invocation.<String>getArgument(1))) {
+                        return false;
+                    }
+                    account.getAccountBalance().setBalance(account.getAccountBalance().getBalance()
+                            .add(invocation.getArgument(2)));
+                    return true;
+                }));
+        lenient().when(bankAccountRepository.hasPendingTransfer(anyString(), anyString()))
+                .thenAnswer(invocation -> Mono.fromSupplier(() -> {
+                    BankAccount account = accounts.get(invocation.<String>getArgument(0));
+                    synchronized (accounts) {
+                        return account != null && account.getPendingTransfers().contains(invocation.<String>getArgument(1));
+                    }
+                }));
+    }
+
+    @Test
+    void transfer_shouldMoveFundsAndPostBothMovements() {
+        BankAccount source = createAccount(100);
+        BankAccount destination = createAccount(50);
+
+        StepVerifier.create(transferSagaService.transfer(source, destination.getId(), BigDecimal.valueOf(30)))
+                .assertNext(response -> {
+                    assertEquals(source.getId(), response.getProductId());
+                    assertEquals(destination.getId(), response.getDestinationProductId());
+                })
+                .verifyComplete();
+
+        assertEquals(0, BigDecimal.valueOf(70).compareTo(balanceOf(source.getId())));
+        assertEquals(0, BigDecimal.valueOf(80).compareTo(balanceOf(destination.getId())));
+        assertEquals("WITHDRAWAL", accounts.get(source.getId()).getPendingTransactions().get(0).getType());
+        assertEquals("DEPOSIT", accounts.get(destination.getId()).getPendingTransactions().get(0).getType());
+        assertTrue(accounts.get(source.getId()).getPendingTransfers().isEmpty());
+        assertTrue(accounts.get(destination.getId()).getPendingTransfers().isEmpty());
+        assertTrue(sagas.values().stream().allMatch(saga -> saga.getState() == TransferSaga.State.COMPLETED));
+    }
+
+    @Test
+    void transfer_shouldFailWithoutChangesWhenBalanceIsInsufficient() {
+        BankAccount source = createAccount(10);
+        BankAccount destination = createAccount(50);
+
+        StepVerifier.create(transferSagaService.transfer(source, destination.getId(), BigDecimal.valueOf(30)))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-004".equals(((CustomException) throwable).getCode()))
+                .verify();
+
+        assertEquals(0, BigDecimal.TEN.compareTo(balanceOf(source.getId())));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(balanceOf(destination.getId())));
+    }
+
+    @Test
+    void transfer_shouldCompensateWhenDestinationIsGone() {
+        BankAccount source = createAccount(100);
+
+        StepVerifier.create(transferSagaService.transfer(source, "missing-account", BigDecimal.valueOf(30)))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-001".equals(((CustomException) throwable).getCode()))
+                .verify();
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(balanceOf(source.getId())));
+        assertTrue(accounts.get(source.getId()).getPendingTransfers().isEmpty());
+        assertTrue(accounts.get(source.getId()).getPendingTransactions().isEmpty());
+        assertTrue(sagas.values().stream().allMatch(saga -> saga.getState() == TransferSaga.State.FAILED));
+    }
+
+    @Test
+    void resume_shouldFinishAnInterruptedTransferWithoutApplyingStepsTwice() {
+        BankAccount source = createAccount(70);
+        BankAccount destination = createAccount(80);
+        // crashed after crediting the destination but before recording the RESERVED -> CREDITED transition
+        TransferSaga interrupted = TransferSaga.builder()
+                .id("transfer-1")
+                .sourceAccountId(source.getId())
+                .destinationAccountId(destination.getId())
+                .clientId(source.getClientId())
+                .amount(BigDecimal.valueOf(30))
+                .state(TransferSaga.State.RESERVED)
+                .createdDate(Instant.now())
+                .updatedDate(Instant.now())
+                .build();
+        sagas.put(interrupted.getId(), copy(interrupted));
+        accounts.get(source.getId()).getPendingTransfers().add(interrupted.getId());
+        accounts.get(destination.getId()).getPendingTransfers().add(interrupted.getId());
+
+        StepVerifier.create(transferSagaService.resume(interrupted))
+                .assertNext(saga -> assertEquals(TransferSaga.State.COMPLETED, saga.getState()))
+                .verifyComplete();
+
+        assertEquals(0, BigDecimal.valueOf(70).compareTo(balanceOf(source.getId())));
+        assertEquals(0, BigDecimal.valueOf(80).compareTo(balanceOf(destination.getId())));
+        assertEquals(1, accounts.get(source.getId()).getPendingTransactions().size());
+        assertEquals(1, accounts.get(destination.getId()).getPendingTransactions().size());
+    }
+
+    @Test
+    void transfer_shouldRejectATransferToTheSameAccount() {
+        BankAccount account = createAccount(100);
+
+        StepVerifier.create(transferSagaService.transfer(account, account.getId(), BigDecimal.valueOf(30)))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-015".equals(((CustomException) throwable).getCode()))
+                .verify();
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(balanceOf(account.getId())));
+        assertTrue(accounts.get(account.getId()).getPendingTransfers().isEmpty());
+        assertTrue(sagas.isEmpty());
+    }
+
+    @Test
+    void transfer_shouldConserveFundsUnderConcurrentTransfersBetweenOverlappingAccounts() {
+        List<BankAccount> pool = List.of(createAccount(500), createAccount(500), createAccount(500), createAccount(500));
+        Random random = new Random(42);
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int from = random.nextInt(pool.size());
+            pairs.add(new int[]{from, (from + 1 + random.nextInt(pool.size() - 1)) % pool.size(), 1 + random.nextInt(120)});
+        }
+
+        StepVerifier.create(Flux.fromIterable(pairs)
+                        .parallel(8)
+                        .runOn(Schedulers.parallel())
+                        .flatMap(pair -> transferSagaService.transfer(pool.get(pair[0]), pool.get(pair[1]).getId(),
+                                        BigDecimal.valueOf(pair[2]))
+                                .onErrorResume(CustomException.class, ex -> Mono.empty()))
+                        .sequential()
+                        .then())
+                .verifyComplete();
+
+        BigDecimal total = pool.stream().map(account -> balanceOf(account.getId())).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(total));
+        assertTrue(pool.stream().allMatch(account -> balanceOf(account.getId()).signum() >= 0));
+        assertTrue(pool.stream().allMatch(account -> accounts.get(account.getId()).getPendingTransfers().isEmpty()));
+        assertEquals(pairs.size(), sagas.size());
+        assertTrue(sagas.values().stream().allMatch(saga -> saga.getState() == TransferSaga.State.COMPLETED
+                || saga.getState() == TransferSaga.State.FAILED));
+    }
+
+    private BankAccount createAccount(long balance) {
+        BankAccount account = FactoryTest.toFactoryEntityBankAccount();
+        account.setAccountBalance(new Balance(BigDecimal.valueOf(balance), "PEN"));
+        account.setPendingTransfers(new ArrayList<>());
+        account.setPendingTransactions(new ArrayList<>());
+        accounts.put(account.getId(), account);
+        return account;
+    }
+
+    private BigDecimal balanceOf(String accountId) {
+        return accounts.get(accountId).getAccountBalance().getBalance();
+    }
+
+    private Mono<BankAccount> atomically(String accountId, Predicate<BankAccount> update) {
+        return Mono.fromSupplier(() -> {
+            BankAccount account = accounts.get(accountId);
+            synchronized (accounts) {
+                return account != null && update.test(account) ? account : null;
+            }
+        });
+    }
+
+    private TransferSaga copy(TransferSaga saga) {
+        return TransferSaga.builder()
+                .id(saga.getId())
+                .sourceAccountId(saga.getSourceAccountId())
+                .destinationAccountId(saga.getDestinationAccountId())
+                .clientId(saga.getClientId())
+                .amount(saga.getAmount())
+                .state(saga.getState())
+                .failureReason(saga.getFailureReason())
+                .createdDate(saga.getCreatedDate())
+                .updatedDate(saga.getUpdatedDate())
+                .build();
+    }
+}
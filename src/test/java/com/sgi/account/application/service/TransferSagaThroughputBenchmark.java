@@ -0,0 +1,136 @@
+package com.sgi.account.application.service;
+
+import com.sgi.account.application.service.impl.TransferSagaServiceImpl;
+import com.sgi.account.domain.model.Balance;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.model.TransferSaga;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.TransferSagaRepository;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JMH benchmark of the throughput of concurrent transfers between a few overlapping accounts.
+ * The repositories are in-memory stand-ins whose account steps are atomic, like the conditional updates
+ * of the real repositories, so the figure is the overhead of the saga itself under contention.
+ * It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class TransferSagaThroughputBenchmark {
+
+    private final Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+    private final Map<String, TransferSaga> sagas = new ConcurrentHashMap<>();
+    private final List<BankAccount> pool = new ArrayList<>();
+    private TransferSagaServiceImpl transferSagaService;
+
+    /**
+     * Builds the saga over four accounts with in-memory repositories.
+     */
+    @Setup
+    public void setup() {
+        for (int i = 0; i < 4; i++) {
+            BankAccount account = FactoryTest.toFactoryEntityBankAccount();
+            account.setId("account-" + i);
+            account.setAccountBalance(new Balance(BigDecimal.valueOf(1_000_000_000L), "PEN"));
+            account.setPendingTransfers(new ArrayList<>());
+            accounts.put(account.getId(), account);
+            pool.add(account);
+        }
+        TransferSagaRepository transferSagaRepository = mock(TransferSagaRepository.class);
+        when(transferSagaRepository.save(any(TransferSaga.class))).thenAnswer(invocation -> {
+            TransferSaga saga = invocation.getArgument(0);
+            sagas.put(saga.getId(), saga);
+            return Mono.just(saga);
+        });
+        when(transferSagaRepository.transition(anyString(), any(), any(), any())).thenAnswer(invocation -> Mono.fromSupplier(() -> {
+            TransferSaga saga = sagas.get(invocation.<String>getArgument(0));
+            TransferSaga.State to = invocation.getArgument(2);
+            saga.setState(to);
+            if (to == TransferSaga.State.COMPLETED || to == TransferSaga.State.FAILED) {
+                sagas.remove(saga.getId());
+            }
+            return saga;
+        }));
+        BankAccountRepository bankAccountRepository = mock(BankAccountRepository.class);
+        when(bankAccountRepository.applyTransferStep(anyString(), anyString(), any(BigDecimal.class), any()))
+                .thenAnswer(invocation -> atomically(invocation.getArgument(0), account -> {
+                    BigDecimal amount = invocation.getArgument(2);
+                    account.getAccountBalance().setBalance(account.getAccountBalance().getBalance().add(amount));
+                    return account.getPendingTransfers().add(invocation.getArgument(1));
+                }));
+        when(bankAccountRepository.settleTransferStep(anyString(), anyString(), any(PendingTransaction.class)))
+                .thenAnswer(invocation -> atomically(invocation.getArgument(0),
+                        account -> account.getPendingTransfers().remove(invocation.<String>getArgument(1))));
+        transferSagaService = new TransferSagaServiceImpl(transferSagaRepository, bankAccountRepository,
+                mock(BalanceCacheService.class));
+    }
+
+    /**
+     * Transfers one unit between two distinct accounts picked at random.
+     *
+     * @return the response of the transfer
+     */
+    @Benchmark
+    public TransactionResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(pool.size());
+        int to = (from + 1 + random.nextInt(pool.size() - 1)) % pool.size();
+        return transferSagaService.transfer(pool.get(from), pool.get(to).getId(), BigDecimal.ONE).block();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransferSagaThroughputBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private Mono<BankAccount> atomically(String accountId, Predicate<BankAccount> update) {
+        return Mono.fromSupplier(() -> {
+            BankAccount account = accounts.get(accountId);
+            synchronized (account) {
+                return update.test(account) ? account : null;
+            }
+        });
+    }
+}
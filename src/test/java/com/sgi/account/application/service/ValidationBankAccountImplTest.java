@@ -1,36 +1,32 @@
 package com.sgi.account.application.service;
 
 import com.sgi.account.application.service.impl.ValidationBankAccountImpl;
-import com.sgi.account.domain.ports.out.BankAccountRepository;
-import com.sgi.account.domain.ports.out.FeignExternalService;
 import com.sgi.account.domain.shared.CustomError;
 import com.sgi.account.helper.FactoryTest;
 import com.sgi.account.infrastructure.dto.AccountRequest;
-import com.sgi.account.infrastructure.dto.Credit;
 import com.sgi.account.infrastructure.dto.Customer;
 import com.sgi.account.infrastructure.exception.CustomException;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.mockito.Mockito.times;
 
 /**
  * Unit tests for ValidationBankAccountImpl, ensuring bank account validation logic.
@@ -40,30 +36,19 @@ import static org.mockito.Mockito.times;
 public class ValidationBankAccountImplTest {
 
     @Mock
-    private BankAccountRepository bankAccountRepository;
-
-    @Mock
-    private FeignExternalService webClient;
+    private CreditEligibilityService creditEligibilityService;
 
     @InjectMocks
     private ValidationBankAccountImpl validationBankAccount;
 
-    private static final String creditServiceUrl = "localhost:8081/";
-
-    @BeforeEach
-    void setup() {
-        ReflectionTestUtils.setField(validationBankAccount, "creditServiceUrl", creditServiceUrl);
-    }
-
     @Test
     void savingsAccount_shouldReturnAccountRequest() {
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
         Customer customer = FactoryTest.toFactoryCustomerResponse();
-        Credit credit = FactoryTest.toFactoryCreditResponse();
 
-        when(webClient.getFlux(anyString(), anyString(), eq(Credit.class)))
-                .thenReturn(Flux.just(credit));
+        when(creditEligibilityService.hasCreditCard(customer.getId()))
+                .thenReturn(Mono.just(true));
         Mono<AccountRequest> result = validationBankAccount.savingsAccount(accountRequest, customer);
 
         StepVerifier.create(result)
@@ -78,10 +63,6 @@ public class ValidationBankAccountImplTest {
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
         accountRequest.setClientId(customer.getId());
-        when(bankAccountRepository.existsByClientIdAndType(
-                customer.getId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(false));
 
         Mono<AccountRequest> result = validationBankAccount.savingsAccount(accountRequest, customer);
         StepVerifier.create(result)
@@ -90,8 +71,6 @@ public class ValidationBankAccountImplTest {
                     assertEquals(accountRequest.getClientId(), account.getClientId());
                 })
                 .verifyComplete();
-        verify(bankAccountRepository, times(1))
-                .existsByClientIdAndType(customer.getId(), accountRequest.getType().name());
     }
 
     @Test
@@ -112,41 +91,51 @@ public class ValidationBankAccountImplTest {
     }
 
     @Test
-    void savingsAccountNotVipExist_shouldReturnCustomException() {
+    void checkingAccountToTypeBusiness_shouldReturnAccountRequest() {
         Customer customer = FactoryTest.toFactoryCustomerResponse();
-        customer.setProfile(null);
+        customer.setType(Customer.TypeEnum.BUSINESS);
+        customer.setProfile(Customer.ProfileEnum.PYME);
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
-        accountRequest.setClientId(customer.getId());
-        when(bankAccountRepository.existsByClientIdAndType(
-                customer.getId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(true));
+        when(creditEligibilityService.hasCreditCard(customer.getId()))
+                .thenReturn(Mono.just(true));
+        Mono<AccountRequest> result = validationBankAccount.checkingAccount(accountRequest, customer);
 
-        Mono<AccountRequest> result = validationBankAccount.savingsAccount(accountRequest, customer);
         StepVerifier.create(result)
-                .expectErrorMatches(throwable ->
-                        throwable instanceof CustomException
-                                &&
-                                "ACCOUNT-007".equals(((CustomException) throwable).getCode())
-                ).verify();
-        verify(bankAccountRepository, times(1))
-                .existsByClientIdAndType(customer.getId(), accountRequest.getType().name());
+                .expectNext(accountRequest)
+                .verifyComplete();
     }
 
     @Test
-    void checkingAccountToTypeBusiness_shouldReturnAccountRequest() {
+    void checkingAccountToTypeBusinessNotPyme_shouldNotLookUpTheCreditCard() {
         Customer customer = FactoryTest.toFactoryCustomerResponse();
         customer.setType(Customer.TypeEnum.BUSINESS);
-        customer.setProfile(Customer.ProfileEnum.PYME);
-        Credit credit = FactoryTest.toFactoryCreditResponse();
+        customer.setProfile(null);
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
-        when(webClient.getFlux(anyString(), anyString(), eq(Credit.class)))
-                .thenReturn(Flux.just(credit));
         Mono<AccountRequest> result = validationBankAccount.checkingAccount(accountRequest, customer);
 
         StepVerifier.create(result)
-                .expectNext(accountRequest)
+                .assertNext(account -> assertEquals(null, account.getMovementLimit()))
                 .verifyComplete();
+        verify(creditEligibilityService, never()).hasCreditCard(anyString());
+    }
+
+    @Test
+    void savingsAccountVipWithoutCreditCard_shouldReturnCustomException() {
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+
+        when(creditEligibilityService.hasCreditCard(customer.getId()))
+                .thenReturn(Mono.empty());
+        Mono<AccountRequest> result = validationBankAccount.savingsAccount(accountRequest, customer);
+
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable ->
+                        throwable instanceof CustomException
+                                &&
+                                "ACCOUNT-102".equals(((CustomException) throwable).getCode())
+                )
+                .verify();
     }
 
     @Test
@@ -156,10 +145,6 @@ public class ValidationBankAccountImplTest {
         customer.setProfile(null);
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         accountRequest.setClientId(customer.getId());
-        when(bankAccountRepository.existsByClientIdAndType(
-                customer.getId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(false));
         Mono<AccountRequest> result = validationBankAccount.checkingAccount(accountRequest, customer);
         StepVerifier.create(result)
                 .assertNext(account -> {
@@ -167,8 +152,6 @@ public class ValidationBankAccountImplTest {
                     assertEquals(accountRequest.getClientId(), account.getClientId());
                 })
                 .verifyComplete();
-        verify(bankAccountRepository, times(1))
-                .existsByClientIdAndType(customer.getId(), accountRequest.getType().name());
     }
 
     @Test
@@ -192,27 +175,6 @@ public class ValidationBankAccountImplTest {
                 .verify();
     }
 
-    @Test
-    void checkingAccountToTypePerson_shouldThrowExceptionWhenAccountAlreadyExists() {
-        Customer customer = FactoryTest.toFactoryCustomerResponse();
-        customer.setType(Customer.TypeEnum.PERSONAL);
-        customer.setProfile(null);
-        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
-        accountRequest.setClientId(customer.getId());
-        when(bankAccountRepository.existsByClientIdAndType(
-                customer.getId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(true));
-        Mono<AccountRequest> result = validationBankAccount.checkingAccount(accountRequest, customer);
-        StepVerifier.create(result)
-                .expectErrorMatches(throwable ->
-                        throwable instanceof CustomException
-                                &&
-                                "ACCOUNT-007".equals(((CustomException) throwable).getCode())
-                )
-                .verify();
-    }
-
     @Test
     void fixedTermAccount_BusinessClient_ShouldThrowException() {
         Customer customer = FactoryTest.toFactoryCustomerResponse();
@@ -247,32 +209,6 @@ public class ValidationBankAccountImplTest {
                 .verify();
     }
 
-    @Test
-    void fixedTermAccount_ExistingAccount_ShouldThrowException() {
-        Customer customer = FactoryTest.toFactoryCustomerResponse();
-        customer.setType(Customer.TypeEnum.PERSONAL); // Cliente tipo persona
-        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
-        accountRequest.setTransactionDay(LocalDate.now());
-
-        when(bankAccountRepository.existsByClientIdAndType(
-                accountRequest.getClientId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(true));
-
-        Mono<AccountRequest> result = validationBankAccount.fixedTermAccount(accountRequest, customer);
-
-        StepVerifier.create(result)
-                .expectErrorMatches(throwable ->
-                        throwable instanceof CustomException
-                                &&
-                                "ACCOUNT-007".equals(((CustomException) throwable).getCode())
-                )
-                .verify();
-
-        verify(bankAccountRepository, times(1))
-                .existsByClientIdAndType(accountRequest.getClientId(), accountRequest.getType().name());
-    }
-
     @Test
     void fixedTermAccount_ValidPersonalClient_ShouldReturnAccount() {
         Customer customer = FactoryTest.toFactoryCustomerResponse();
@@ -280,11 +216,6 @@ public class ValidationBankAccountImplTest {
         AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
         accountRequest.setTransactionDay(LocalDate.now());
 
-        when(bankAccountRepository.existsByClientIdAndType(
-                accountRequest.getClientId(),
-                accountRequest.getType().name()
-        )).thenReturn(Mono.just(false));
-
         Mono<AccountRequest> result = validationBankAccount.fixedTermAccount(accountRequest, customer);
 
         StepVerifier.create(result)
@@ -294,9 +225,6 @@ public class ValidationBankAccountImplTest {
                     assertEquals(1, account.getMovementLimit());
                 })
                 .verifyComplete();
-
-        verify(bankAccountRepository, times(1))
-                .existsByClientIdAndType(accountRequest.getClientId(), accountRequest.getType().name());
     }
 
     @Test
@@ -312,5 +240,66 @@ public class ValidationBankAccountImplTest {
                 .verifyComplete();
     }
 
+    @Test
+    void validate_shouldLookUpTheCreditCardWhileTheCustomerIsFetched() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
+        accountRequest.setClientId(customer.getId());
+        when(creditEligibilityService.hasCreditCard(customer.getId()))
+                .thenAnswer(invocation -> Mono.just(true).delayElement(Duration.ofMillis(80)));
+
+        StepVerifier.withVirtualTime(() -> validationBankAccount.validate(accountRequest,
+                        Mono.just(customer).delayElement(Duration.ofMillis(100))))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(100))
+                .expectNext(accountRequest)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void validate_shouldCancelTheCreditCardLookupTheCustomerDoesNotNeed() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        customer.setProfile(null);
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
+        accountRequest.setClientId(customer.getId());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(creditEligibilityService.hasCreditCard(customer.getId()))
+                .thenReturn(Mono.<Boolean>never().doOnCancel(() -> cancelled.set(true)));
+
+        StepVerifier.create(validationBankAccount.validate(accountRequest, Mono.just(customer)))
+                .assertNext(account -> assertEquals(BigDecimal.ZERO, account.getMaintenanceFee()))
+                .verifyComplete();
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void validate_shouldNotLookUpFactsTheAccountTypeNeverNeeds() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        accountRequest.setType(AccountRequest.TypeEnum.FIXED_TERM);
+        accountRequest.setTransactionDay(LocalDate.now());
+
+        StepVerifier.create(validationBankAccount.validate(accountRequest, Mono.just(customer)))
+                .expectNext(accountRequest)
+                .verifyComplete();
+        verify(creditEligibilityService, never()).hasCreditCard(anyString());
+    }
+
+    @Test
+    void isOnePerClient_shouldOnlyAllowSeveralVipSavingsAndBusinessAccounts() {
+        Customer customer = FactoryTest.toFactoryCustomerResponse();
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+
+        assertEquals(true, validationBankAccount.isOnePerClient(accountRequest, customer));
+        accountRequest.setType(AccountRequest.TypeEnum.SAVINGS);
+        assertEquals(false, validationBankAccount.isOnePerClient(accountRequest, customer));
+        customer.setProfile(null);
+        assertEquals(true, validationBankAccount.isOnePerClient(accountRequest, customer));
+        customer.setType(Customer.TypeEnum.BUSINESS);
+        assertEquals(false, validationBankAccount.isOnePerClient(accountRequest, customer));
+    }
 
 }
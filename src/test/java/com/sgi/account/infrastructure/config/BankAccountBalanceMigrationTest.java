@@ -0,0 +1,65 @@
+package com.sgi.account.infrastructure.config;
+
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.account.domain.model.BankAccount;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link BankAccountBalanceMigration}.
+ * Verifies that only balances stored with a legacy type are converted, and only by the run that records
+ * the migration marker.
+ */
+public class BankAccountBalanceMigrationTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final BankAccountBalanceMigration migration = new BankAccountBalanceMigration(mongoTemplate);
+
+    @Test
+    void migrate_shouldConvertTheLegacyBalancesToDecimal128() {
+        when(mongoTemplate.insert(any(Document.class), eq(MigrationMarker.COLLECTION)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.updateMulti(any(Query.class), any(AggregationUpdate.class), eq(BankAccount.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(MigrationMarker.COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(migration.migrate())
+                .expectNext(2L)
+                .verifyComplete();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(query.capture(), any(AggregationUpdate.class), eq(BankAccount.class));
+        Document type = query.getValue().getQueryObject().get("accountBalance.balance", Document.class);
+        assertEquals(List.of("double", "string", "int", "long"), type.get("$type"));
+    }
+
+    @Test
+    void migrate_shouldSkipWhenTheMarkerExists() {
+        when(mongoTemplate.insert(any(Document.class), eq(MigrationMarker.COLLECTION)))
+                .thenReturn(Mono.error(new DuplicateKeyException("_id_")));
+
+        StepVerifier.create(migration.migrate())
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(AggregationUpdate.class), eq(BankAccount.class));
+    }
+}
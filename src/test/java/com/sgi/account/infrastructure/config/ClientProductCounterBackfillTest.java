@@ -0,0 +1,87 @@
+package com.sgi.account.infrastructure.config;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.ports.out.ClientProductCounterRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link ClientProductCounterBackfill}.
+ * Verifies that the counters are raised only by the run that records the migration marker, and that
+ * the marker is removed when the run fails so it can be retried.
+ */
+public class ClientProductCounterBackfillTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final ClientProductCounterRepository clientProductCounterRepository = mock(ClientProductCounterRepository.class);
+    private final ClientProductCounterBackfill backfill =
+            new ClientProductCounterBackfill(mongoTemplate, clientProductCounterRepository);
+
+    @Test
+    void migrate_shouldRaiseTheCountersAndCompleteTheMarker() {
+        when(mongoTemplate.insert(any(Document.class), eq(MigrationMarker.COLLECTION)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BankAccount.class), eq(Document.class)))
+                .thenReturn(Flux.just(new Document("_id", new Document("clientId", "1").append("type", "SAVINGS"))
+                        .append("count", 1)));
+        when(clientProductCounterRepository.raiseTo("1", "SAVINGS", 1)).thenReturn(Mono.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(MigrationMarker.COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(backfill.migrate())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(clientProductCounterRepository, times(1)).raiseTo("1", "SAVINGS", 1);
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class),
+                eq(MigrationMarker.COLLECTION));
+    }
+
+    @Test
+    void migrate_shouldSkipWhenTheMarkerExists() {
+        when(mongoTemplate.insert(any(Document.class), eq(MigrationMarker.COLLECTION)))
+                .thenReturn(Mono.error(new DuplicateKeyException("_id_")));
+
+        StepVerifier.create(backfill.migrate())
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(BankAccount.class), eq(Document.class));
+        verify(clientProductCounterRepository, never()).raiseTo(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void migrate_shouldRemoveTheMarkerWhenTheRunFails() {
+        when(mongoTemplate.insert(any(Document.class), eq(MigrationMarker.COLLECTION)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BankAccount.class), eq(Document.class)))
+                .thenReturn(Flux.error(new IllegalStateException("aggregation failed")));
+        when(mongoTemplate.remove(any(Query.class), eq(MigrationMarker.COLLECTION)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(backfill.migrate())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(mongoTemplate, times(1)).remove(any(Query.class), eq(MigrationMarker.COLLECTION));
+    }
+}
@@ -0,0 +1,131 @@
+package com.sgi.account.infrastructure.config;
+
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link QueryPlanVerifier}.
+ * Verifies the detection of collection scans in explain() results, that the queries built by the
+ * repositories are the ones explained, and that each of them filters on, or is sorted by, a field leading
+ * an index declared on its document or created by the {@link MongoIndexInitializer}.
+ */
+public class QueryPlanVerifierTest {
+
+    private final MongoMappingContext mappingContext = new MongoMappingContext();
+    private final MongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+
+    @Test
+    void hasCollectionScan_shouldDetectScansInClassicAndSlotBasedPlans() {
+        Document classic = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "SUBPLAN").append("inputStage", new Document("stage", "OR").append("inputStages", List.of(
+                        new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN")),
+                        new Document("stage", "COLLSCAN"))))));
+        Document slotBased = new Document("queryPlanner", new Document("winningPlan",
+                new Document("queryPlan", new Document("stage", "COLLSCAN")).append("slotBasedPlan", new Document("stages", "scan"))));
+
+        assertTrue(QueryPlanVerifier.hasCollectionScan(classic));
+        assertTrue(QueryPlanVerifier.hasCollectionScan(slotBased));
+    }
+
+    @Test
+    void hasCollectionScan_shouldAcceptIndexPlans() {
+        Document indexed = new Document("queryPlanner", new Document("winningPlan",
+                new Document("stage", "FETCH").append("inputStage",
+                        new Document("stage", "IXSCAN").append("indexName", "clientId_type_index"))));
+
+        assertFalse(QueryPlanVerifier.hasCollectionScan(indexed));
+    }
+
+    @Test
+    void verify_shouldExplainTheRepositoryQueriesAndReportTheScans() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        List<Document> explained = new ArrayList<>();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(any())).thenReturn("collection");
+        when(mongoTemplate.getCollection(anyString())).thenReturn(Mono.just(collection));
+        when(collection.find(any(Bson.class))).thenAnswer(invocation -> {
+            Document filter = invocation.getArgument(0);
+            explained.add(filter);
+            FindPublisher<Document> publisher = mock(FindPublisher.class);
+            when(publisher.sort(any())).thenReturn(publisher);
+            when(publisher.explain(Document.class)).thenReturn(Mono.just(plan(filter.containsKey("isActive") ? "COLLSCAN" : "IXSCAN")));
+            return publisher;
+        });
+
+        StepVerifier.create(new QueryPlanVerifier(mongoTemplate).verify())
+                .expectErrorMatches(throwable -> throwable instanceof IllegalStateException
+                        && throwable.getMessage().endsWith("[BankAccountRepository.findAll by isActive]"))
+                .verify();
+
+        assertEquals(QueryPlanVerifier.queries().size(), explained.size());
+        assertTrue(explained.contains(new Document("_id", new Document("$in", List.of("explain", "explain1")))));
+        assertTrue(explained.stream().anyMatch(filter -> filter.containsKey("accountBalance.currency")));
+        assertTrue(explained.stream().anyMatch(filter -> filter.toJson().contains("outboxLeaseUntil")));
+    }
+
+    @Test
+    void queries_shouldFilterOnOrBeSortedByAnIndexedField() {
+        for (QueryPlanVerifier.VerifiedQuery query : QueryPlanVerifier.queries()) {
+            Set<String> indexPrefixes = indexPrefixes(query.documentType());
+            Document filter = QueryPlanVerifier.filter(converter, query);
+            Document sort = QueryPlanVerifier.sort(converter, query);
+            // walking the index of the sort only avoids a scan when nothing is filtered out
+            boolean sortedByIndex = filter.isEmpty() && !sort.isEmpty() && indexPrefixes.contains(sort.keySet().iterator().next());
+            assertTrue(sortedByIndex || isIndexed(filter, indexPrefixes),
+                    query.name() + " filters on no indexed field");
+        }
+    }
+
+    private Set<String> indexPrefixes(Class<?> documentType) {
+        Set<String> prefixes = new HashSet<>(Set.of("_id"));
+        StreamSupport.stream(new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(documentType).spliterator(), false)
+                .map(IndexDefinition::getIndexKeys)
+                .forEach(keys -> prefixes.add(keys.keySet().iterator().next()));
+        MongoIndexInitializer.PARTIAL_INDEXES.getOrDefault(documentType, List.of())
+                .forEach(index -> prefixes.add(index.getIndexKeys().keySet().iterator().next()));
+        return prefixes;
+    }
+
+    /**
+     * Whether an index can select the documents of the filter: some field, or some branch of an $and,
+     * leads an index, and so does every branch of an $or.
+     */
+    private static boolean isIndexed(Document filter, Set<String> indexPrefixes) {
+        return filter.entrySet().stream().anyMatch(entry -> switch (entry.getKey()) {
+            case "$and" -> ((List<?>) entry.getValue()).stream().anyMatch(branch -> isIndexed((Document) branch, indexPrefixes));
+            case "$or" -> ((List<?>) entry.getValue()).stream().allMatch(branch -> isIndexed((Document) branch, indexPrefixes));
+            default -> indexPrefixes.contains(entry.getKey());
+        });
+    }
+
+    private static Document plan(String stage) {
+        return new Document("queryPlanner", new Document("winningPlan", new Document("stage", stage)));
+    }
+}
@@ -1,10 +1,18 @@
 package com.sgi.account.infrastructure.controller;
 
+import com.sgi.account.domain.model.AccountQuery;
+import com.sgi.account.domain.model.TransactionHistoryQuery;
+import com.sgi.account.domain.ports.in.AccountOnboardingService;
 import com.sgi.account.domain.ports.in.BankAccountService;
 import com.sgi.account.domain.ports.in.TransactionService;
 import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.AccountExistsBatchRequest;
+import com.sgi.account.infrastructure.dto.AccountExistsResponse;
 import com.sgi.account.infrastructure.dto.AccountRequest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
+import com.sgi.account.infrastructure.dto.BatchTransferRequest;
+import com.sgi.account.infrastructure.dto.BatchTransferResponse;
+import com.sgi.account.infrastructure.dto.BulkAccountResponse;
 import com.sgi.account.infrastructure.dto.TransactionResponse;
 import com.sgi.account.infrastructure.dto.TransferRequest;
 import com.sgi.account.infrastructure.dto.BalanceResponse;
@@ -12,6 +20,7 @@ import com.sgi.account.infrastructure.dto.DepositRequest;
 import com.sgi.account.infrastructure.dto.WithdrawalRequest;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
@@ -21,6 +30,7 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -48,6 +58,9 @@ public class BanckAccountControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private AccountOnboardingService accountOnboardingService;
+
         @Test
         void createAccount_shouldReturnCreatedResponse() {
             AccountResponse accountResponse = FactoryTest.toFactoryBankAccount(AccountResponse.class);
@@ -107,7 +120,7 @@ public class BanckAccountControllerTest {
         String accountId = UUID.randomUUID().toString();
         List<AccountResponse> accounts =  FactoryTest.toFactoryListBankAccounts();
         Flux<AccountResponse> accountsFlux = Flux.fromIterable(accounts);
-        Mockito.when(bankAccountService.getAllAccounts(clientId, type, accountId)).thenReturn(accountsFlux);
+        Mockito.when(bankAccountService.getAllAccounts(any(AccountQuery.class))).thenReturn(accountsFlux);
         webTestClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/v1/accounts")
@@ -125,6 +138,32 @@ public class BanckAccountControllerTest {
                 });
     }
 
+    @Test
+    void getAllAccounts_shouldPassPaginationAndStreamNdjson() {
+        String after = UUID.randomUUID().toString();
+        Mockito.when(bankAccountService.getAllAccounts(any(AccountQuery.class)))
+                .thenReturn(Flux.fromIterable(FactoryTest.toFactoryListBankAccounts()));
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1/accounts")
+                        .queryParam("after", after)
+                        .queryParam("limit", 50)
+                        .queryParam("fields", "id,balance")
+                        .build())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(AccountResponse.class)
+                .hasSize(2);
+
+        ArgumentCaptor<AccountQuery> query = ArgumentCaptor.forClass(AccountQuery.class);
+        Mockito.verify(bankAccountService).getAllAccounts(query.capture());
+        Assertions.assertEquals(after, query.getValue().getAfter());
+        Assertions.assertEquals(50, query.getValue().getLimit());
+        Assertions.assertEquals(List.of("id", "balance"), query.getValue().getFields());
+    }
+
     @Test
     void getClientBalances_shouldReturnBalanceResponse() {
         String idAccount = randomUUID().toString();
@@ -182,6 +221,74 @@ public class BanckAccountControllerTest {
         Mockito.verify(transactionService, times(1)).transferFunds(eq(accountId), any(Mono.class));
     }
 
+    @Test
+    void transferToAccountsBatch_shouldStreamResultsAsNdjson() {
+        BatchTransferRequest transferRequest = new BatchTransferRequest();
+        transferRequest.setSourceProductId(randomUUID().toString());
+        transferRequest.setDestinationProductId(randomUUID().toString());
+        transferRequest.setAmount(10D);
+        BatchTransferResponse transferResponse = new BatchTransferResponse();
+        transferResponse.setIndex(0L);
+        transferResponse.setSourceProductId(transferRequest.getSourceProductId());
+        transferResponse.setStatus(BatchTransferResponse.StatusEnum.COMPLETED);
+
+        Mockito.when(transactionService.transferFundsBatch(any(Flux.class)))
+                .thenReturn(Flux.just(transferResponse));
+
+        webTestClient.post()
+                .uri("/v1/accounts/transfers:batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(Flux.just(transferRequest), BatchTransferRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BatchTransferResponse.class)
+                .contains(transferResponse);
+
+        Mockito.verify(transactionService, times(1)).transferFundsBatch(any(Flux.class));
+    }
+
+    @Test
+    void createAccountsBulk_shouldStreamResultsAsNdjson() {
+        AccountRequest accountRequest = FactoryTest.toFactoryBankAccount(AccountRequest.class);
+        BulkAccountResponse bulkResponse = new BulkAccountResponse();
+        bulkResponse.setIndex(0L);
+        bulkResponse.setStatus(BulkAccountResponse.StatusEnum.CREATED);
+        bulkResponse.setAccountId(randomUUID().toString());
+
+        Mockito.when(accountOnboardingService.createAccounts(eq("migration-0001"), any(Flux.class)))
+                .thenReturn(Flux.just(bulkResponse));
+
+        webTestClient.post()
+                .uri("/v1/accounts:bulk?batchId=migration-0001")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(Flux.just(accountRequest), AccountRequest.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BulkAccountResponse.class)
+                .contains(bulkResponse);
+    }
+
+    @Test
+    void getAccountsBulkResults_shouldStreamRecordedResults() {
+        BulkAccountResponse bulkResponse = new BulkAccountResponse();
+        bulkResponse.setIndex(5L);
+        bulkResponse.setStatus(BulkAccountResponse.StatusEnum.FAILED);
+        bulkResponse.setErrorCode("ACCOUNT-006");
+
+        Mockito.when(accountOnboardingService.getResults("migration-0001", 4L))
+                .thenReturn(Flux.just(bulkResponse));
+
+        webTestClient.get()
+                .uri("/v1/accounts:bulk/migration-0001?after=4")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BulkAccountResponse.class)
+                .contains(bulkResponse);
+    }
+
     @Test
     void withdrawFromAccount_shouldReturnTransactionResponse() {
         String accountId = randomUUID().toString();
@@ -207,7 +314,7 @@ public class BanckAccountControllerTest {
     void getClientTransactions_shouldReturnTransactionResponse() {
         String accountId = randomUUID().toString();
         List<TransactionResponse> transactionResponse = FactoryTest.toFactoryListTransactionResponse(accountId);
-        Mockito.when(transactionService.getAccountIdTransactions(eq(accountId)))
+        Mockito.when(transactionService.getAccountIdTransactions(eq(accountId), any(TransactionHistoryQuery.class)))
                 .thenReturn(Flux.fromIterable(transactionResponse));
 
         webTestClient.get()
@@ -218,7 +325,31 @@ public class BanckAccountControllerTest {
                 .expectBodyList(TransactionResponse.class)
                 .isEqualTo(transactionResponse);
 
-        Mockito.verify(transactionService, times(1)).getAccountIdTransactions(eq(accountId));
+        Mockito.verify(transactionService, times(1)).getAccountIdTransactions(eq(accountId), any(TransactionHistoryQuery.class));
+    }
+
+    @Test
+    void getClientTransactions_shouldStreamNdjsonWithTheQuery() {
+        String accountId = randomUUID().toString();
+        List<TransactionResponse> transactionResponse = FactoryTest.toFactoryListTransactionResponse(accountId);
+        ArgumentCaptor<TransactionHistoryQuery> query = ArgumentCaptor.forClass(TransactionHistoryQuery.class);
+        Mockito.when(transactionService.getAccountIdTransactions(eq(accountId), query.capture()))
+                .thenReturn(Flux.fromIterable(transactionResponse));
+
+        webTestClient.get()
+                .uri("/v1/accounts/{accountId}/transactions?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z&limit=50&cursor=tx-9",
+                        accountId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(TransactionResponse.class)
+                .isEqualTo(transactionResponse);
+
+        Assertions.assertEquals(OffsetDateTime.parse("2024-01-01T00:00:00Z"), query.getValue().getFrom());
+        Assertions.assertEquals(OffsetDateTime.parse("2024-02-01T00:00:00Z"), query.getValue().getTo());
+        Assertions.assertEquals(50, query.getValue().getLimit());
+        Assertions.assertEquals("tx-9", query.getValue().getCursor());
     }
 
     @Test
@@ -241,4 +372,29 @@ public class BanckAccountControllerTest {
 
         Mockito.verify(bankAccountService, times(1)).updateAccount(eq(accountId), any(Mono.class));
     }
+
+    @Test
+    void existAccountsBatch_shouldReturnTheExistenceOfEachAccount() {
+        AccountExistsResponse existing = new AccountExistsResponse();
+        existing.setAccountId("account-1");
+        existing.setExists(true);
+        existing.setType(AccountExistsResponse.TypeEnum.SAVINGS);
+        AccountExistsResponse missing = new AccountExistsResponse();
+        missing.setAccountId("account-2");
+        missing.setExists(false);
+        AccountExistsBatchRequest request = new AccountExistsBatchRequest();
+        request.setAccountIds(List.of("account-1", "account-2"));
+        Mockito.when(bankAccountService.existAccounts(any(Mono.class))).thenReturn(Flux.just(existing, missing));
+
+        webTestClient.post()
+                .uri("/v1/accounts/exists:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(AccountExistsResponse.class)
+                .isEqualTo(List.of(existing, missing));
+
+        Mockito.verify(bankAccountService, times(1)).existAccounts(any(Mono.class));
+    }
 }
@@ -0,0 +1,86 @@
+package com.sgi.account.infrastructure.controller;
+
+import com.sgi.account.domain.model.TransactionHistoryQuery;
+import com.sgi.account.domain.ports.in.TransactionService;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.infrastructure.config.TransactionHistoryProxyConfiguration;
+import com.sgi.account.infrastructure.dto.ErrorResponse;
+import com.sgi.account.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for the {@link TransactionHistoryProxyHandler}.
+ * Verifies that the transaction history is relayed unchanged and that a missing account is answered with a 404.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TransactionHistoryProxyHandlerTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setup() {
+        TransactionHistoryProxyConfiguration configuration = new TransactionHistoryProxyConfiguration();
+        webTestClient = WebTestClient.bindToRouterFunction(configuration.transactionHistoryProxyRoute(
+                configuration.transactionHistoryProxyHandler(transactionService))).build();
+    }
+
+    @Test
+    void getAccountIdTransactions_shouldRelayTheDownstreamBody() {
+        Flux<DataBuffer> history = Flux.just("[{\"id\":\"1\"},", "{\"id\":\"2\"}]")
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+        when(transactionService.streamAccountIdTransactions(eq("account-1"), any(TransactionHistoryQuery.class))).thenReturn(Mono.just(history));
+
+        webTestClient.get()
+                .uri("/v1/accounts/{accountId}/transactions", "account-1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(String.class)
+                .isEqualTo("[{\"id\":\"1\"},{\"id\":\"2\"}]");
+    }
+
+    @Test
+    void getAccountIdTransactions_shouldReturnNotFoundForAMissingAccount() {
+        when(transactionService.streamAccountIdTransactions(eq("account-1"), any(TransactionHistoryQuery.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_ACCOUNT_NOT_FOUND)));
+
+        webTestClient.get()
+                .uri("/v1/accounts/{accountId}/transactions", "account-1")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ErrorResponse.class)
+                .value(error -> assertEquals("ACCOUNT-001", error.getCode()));
+    }
+
+    @Test
+    void getAccountIdTransactions_shouldRejectAnInvalidDate() {
+        webTestClient.get()
+                .uri("/v1/accounts/{accountId}/transactions?from={from}", "account-1", "yesterday")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorResponse.class)
+                .value(error -> assertEquals("ACCOUNT-011", error.getCode()));
+        verifyNoInteractions(transactionService);
+    }
+}
@@ -0,0 +1,76 @@
+package com.sgi.account.infrastructure.feign;
+
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.config.DownstreamClientProperties;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmark of the logging overhead of a transaction history response.
+ * Compares logging every element at INFO, as the downstream client used to, with the sampled
+ * {@link DownstreamRequestLog}. It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DownstreamRequestLogBenchmark {
+
+    private static final String URL = "http://transaction-service/v1/transactions/account/{id}";
+
+    private DownstreamRequestLog requestLog;
+    private ResponseEntity<List<TransactionResponse>> response;
+
+    /**
+     * Builds the request log with the default settings and a response of 500 transactions.
+     */
+    @Setup
+    public void setup() {
+        requestLog = new DownstreamRequestLog(new DownstreamClientProperties.RequestLog());
+        response = ResponseEntity.ok(IntStream.range(0, 500)
+                .mapToObj(i -> FactoryTest.toFactoryTransactionResponse("account-" + i))
+                .toList());
+    }
+
+    @Benchmark
+    public void perElementPayloadLog() {
+        response.getBody().forEach(transaction -> log.info("Request to {} succeeded: {}", URL, transaction));
+    }
+
+    @Benchmark
+    public void sampledRequestLog() {
+        requestLog.success("GET", URL, response, 1_000_000);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DownstreamRequestLogBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
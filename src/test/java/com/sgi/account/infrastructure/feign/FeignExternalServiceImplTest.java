@@ -0,0 +1,275 @@
+package com.sgi.account.infrastructure.feign;
+
+import com.sgi.account.infrastructure.config.DownstreamClientProperties;
+import com.sgi.account.infrastructure.exception.CustomException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+/**
+ * Tests for the {@link FeignExternalServiceImpl} against a local HTTP server.
+ * Verifies that every downstream gets its own client, that the response timeout applies and
+ * that the circuit breaker and the bulkhead of a downstream do not affect the others, and that idempotent
+ * GETs are retried within the retry budget and hedged when slower than the latency percentile.
+ */
+public class FeignExternalServiceImplTest {
+
+    private static final String BODY = "{\"id\":\"1\"}";
+
+    private DisposableServer server;
+    private FeignExternalServiceImpl feignExternalService;
+    private String baseUrl;
+    private final AtomicInteger unstableCalls = new AtomicInteger();
+    private final AtomicInteger stalledCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/customer/v1/customers/{id}", (request, response) -> response.sendString(Mono.just(BODY)))
+                        .get("/customer/v1/failing/{id}", (request, response) ->
+                                response.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).send())
+                        .get("/credit/v1/credits/{id}", (request, response) -> response.sendString(Mono.just(BODY)))
+                        .get("/credit/v1/cards/{id}", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Flux.concat(Mono.just("[" + BODY + ","),
+                                        Mono.just(BODY + "]").delayElement(Duration.ofSeconds(2)))))
+                        .get("/credit/v1/unstable/{id}", (request, response) -> unstableCalls.getAndIncrement() == 0
+                                ? response.status(HttpStatus.SERVICE_UNAVAILABLE.value()).send()
+                                : response.sendString(Mono.just(BODY)))
+                        .get("/customer/v1/stalled/{id}", (request, response) -> stalledCalls.getAndIncrement() == 0
+                                ? response.sendString(Mono.just(BODY).delayElement(Duration.ofSeconds(2)))
+                                : response.sendString(Mono.just(BODY)))
+                        .get("/transaction/v1/history/{id}", (request, response) -> response
+                                .header("Content-Type", "application/x-ndjson")
+                                .sendString(Flux.interval(Duration.ofMillis(200)).take(5).map(i -> BODY + "\n")))
+                        .get("/transaction/v1/slow/{id}", (request, response) ->
+                                response.sendString(Mono.just(BODY).delayElement(Duration.ofMillis(500)))))
+                .bindNow();
+        baseUrl = "http://localhost:" + server.port();
+
+        ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory = circuitBreakerFactory();
+        circuitBreakerFactory.configureDefault(id -> new Resilience4JConfigBuilder(id)
+                .circuitBreakerConfig(CircuitBreakerConfig.custom()
+                        .slidingWindowSize(4)
+                        .minimumNumberOfCalls(4)
+                        .failureRateThreshold(50)
+                        .build())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(5)).build())
+                .build());
+
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        properties.getConfig().put("customer-service", downstream(baseUrl + "/customer", 10));
+        properties.getConfig().put("credit-service", downstream(baseUrl + "/credit", 10));
+        DownstreamClientProperties.Downstream transaction = downstream(baseUrl + "/transaction", 1);
+        transaction.setResponseTimeout(Duration.ofSeconds(2));
+        properties.getConfig().put("transaction-service", transaction);
+
+        feignExternalService = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feignExternalService.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void resolve_shouldSelectTheClientOfTheDownstream() {
+        DownstreamClient customer = feignExternalService.resolve(baseUrl + "/customer/v1/customers/{id}");
+        DownstreamClient credit = feignExternalService.resolve(baseUrl + "/credit/v1/credits/{id}");
+
+        assertEquals("customer-service", customer.getName());
+        assertEquals("credit-service", credit.getName());
+        assertEquals("account-service", feignExternalService.resolve("http://unknown/v1").getName());
+        assertNotSame(customer.getConnectionProvider(), credit.getConnectionProvider());
+        assertNotSame(customer.getCircuitBreaker(), credit.getCircuitBreaker());
+    }
+
+    @Test
+    void getMono_shouldFailWhenTheResponseTimeoutElapses() {
+        DownstreamClientProperties.Downstream slow = downstream(baseUrl + "/transaction", 1);
+        slow.setResponseTimeout(Duration.ofMillis(100));
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        properties.getConfig().put("transaction-service", slow);
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory(), properties);
+
+        StepVerifier.create(service.getMono(baseUrl + "/transaction/v1/slow/{id}", "1", String.class))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-000".equals(((CustomException) throwable).getCode()))
+                .verify(Duration.ofSeconds(2));
+        service.close();
+    }
+
+    @Test
+    void getMono_shouldOpenOnlyTheCircuitOfTheFailingDownstream() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(feignExternalService.getMono(baseUrl + "/customer/v1/failing/{id}", "1", String.class))
+                    .expectErrorMatches(throwable -> throwable instanceof CustomException
+                            && "ACCOUNT-000".equals(((CustomException) throwable).getCode()))
+                    .verify();
+        }
+
+        StepVerifier.create(feignExternalService.getMono(baseUrl + "/customer/v1/customers/{id}", "1", String.class))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-013".equals(((CustomException) throwable).getCode()))
+                .verify();
+        StepVerifier.create(feignExternalService.getMono(baseUrl + "/credit/v1/credits/{id}", "1", String.class))
+                .expectNext(BODY)
+                .verifyComplete();
+    }
+
+    @Test
+    void getMono_shouldRejectCallsAboveTheBulkheadLimit() {
+        Mono<String> first = feignExternalService.getMono(baseUrl + "/transaction/v1/slow/{id}", "1", String.class);
+        Mono<String> second = feignExternalService.getMono(baseUrl + "/transaction/v1/slow/{id}", "2", String.class)
+                .delaySubscription(Duration.ofMillis(100));
+
+        StepVerifier.create(Mono.zip(first.map(List::of), second.onErrorResume(CustomException.class,
+                        ex -> Mono.just(ex.getCode())).map(List::of)))
+                .assertNext(result -> {
+                    assertEquals(List.of(BODY), result.getT1());
+                    assertEquals(List.of("ACCOUNT-013"), result.getT2());
+                })
+                .verifyComplete();
+        StepVerifier.create(feignExternalService.getMono(baseUrl + "/credit/v1/credits/{id}", "1", String.class))
+                .expectNext(BODY)
+                .verifyComplete();
+    }
+
+    @Test
+    void getStream_shouldRelayTheResponseBytes() {
+        StepVerifier.create(DataBufferUtils.join(feignExternalService.getStream(baseUrl + "/credit/v1/credits/{id}", Map.of("id", "1")))
+                        .map(buffer -> {
+                            String body = buffer.toString(StandardCharsets.UTF_8);
+                            DataBufferUtils.release(buffer);
+                            return body;
+                        }))
+                .expectNext(BODY)
+                .verifyComplete();
+    }
+
+    @Test
+    void getFlux_shouldEmitEachElementAsItArrives() {
+        StepVerifier.create(feignExternalService.getFlux(baseUrl + "/credit/v1/cards/{id}", "1", Map.class).hasElements())
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        StepVerifier.create(feignExternalService.getFlux(baseUrl + "/credit/v1/cards/{id}", "1", Map.class))
+                .expectNext(Map.of("id", "1"), Map.of("id", "1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void getFluxStream_shouldOutliveTheTimeLimiterAndReleaseTheBulkheadAtTheHeaders() {
+        ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory = circuitBreakerFactory();
+        circuitBreakerFactory.configureDefault(id -> new Resilience4JConfigBuilder(id)
+                .circuitBreakerConfig(CircuitBreakerConfig.ofDefaults())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofMillis(700)).build())
+                .build());
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        properties.getConfig().put("transaction-service", downstream(baseUrl + "/transaction", 1));
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory, properties);
+
+        Mono<Long> stream = service.getFluxStream(baseUrl + "/transaction/v1/history/{id}", Map.of("id", "1"), Map.class)
+                .count();
+        Mono<String> concurrent = service.getMono(baseUrl + "/transaction/v1/slow/{id}", "2", String.class)
+                .delaySubscription(Duration.ofMillis(300));
+
+        StepVerifier.create(Mono.zip(stream, concurrent))
+                .assertNext(result -> {
+                    assertEquals(5L, result.getT1());
+                    assertEquals(BODY, result.getT2());
+                })
+                .verifyComplete();
+        service.close();
+    }
+
+    @Test
+    void getMono_shouldRetryTransientFailures() {
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        DownstreamClientProperties.Downstream credit = downstream(baseUrl + "/credit", 10);
+        credit.setMaxRetries(2);
+        properties.getConfig().put("credit-service", credit);
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory(), properties);
+
+        StepVerifier.create(service.getMono(baseUrl + "/credit/v1/unstable/{id}", "1", String.class))
+                .expectNext(BODY)
+                .verifyComplete();
+        assertEquals(2, unstableCalls.get());
+        service.close();
+    }
+
+    @Test
+    void getMono_shouldNotRetryWhenTheBudgetIsExhausted() {
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        DownstreamClientProperties.Downstream credit = downstream(baseUrl + "/credit", 10);
+        credit.setMaxRetries(2);
+        credit.setRetryBudgetMaxTokens(0);
+        properties.getConfig().put("credit-service", credit);
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory(), properties);
+
+        StepVerifier.create(service.getMono(baseUrl + "/credit/v1/unstable/{id}", "1", String.class))
+                .expectErrorMatches(throwable -> throwable instanceof CustomException
+                        && "ACCOUNT-000".equals(((CustomException) throwable).getCode()))
+                .verify();
+        assertEquals(1, unstableCalls.get());
+        service.close();
+    }
+
+    @Test
+    void getMono_shouldHedgeRequestsSlowerThanThePercentile() {
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        DownstreamClientProperties.Downstream customer = downstream(baseUrl + "/customer", 10);
+        customer.setHedging(true);
+        properties.getConfig().put("customer-service", customer);
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(), circuitBreakerFactory(), properties);
+        for (int i = 0; i < 20; i++) {
+            service.getMono(baseUrl + "/customer/v1/customers/{id}", "1", String.class).block();
+        }
+
+        StepVerifier.create(service.getMono(baseUrl + "/customer/v1/stalled/{id}", "1", String.class))
+                .expectNext(BODY)
+                .verifyComplete();
+        assertEquals(2, stalledCalls.get());
+        service.close();
+    }
+
+    private static ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory() {
+        return new ReactiveResilience4JCircuitBreakerFactory(CircuitBreakerRegistry.ofDefaults(),
+                TimeLimiterRegistry.ofDefaults(), new Resilience4JConfigurationProperties());
+    }
+
+    private static DownstreamClientProperties.Downstream downstream(String url, int maxConcurrentCalls) {
+        DownstreamClientProperties.Downstream downstream = new DownstreamClientProperties.Downstream();
+        downstream.setUrl(url);
+        downstream.setMaxConcurrentCalls(maxConcurrentCalls);
+        downstream.setMaxRetries(0);
+        return downstream;
+    }
+}
@@ -0,0 +1,93 @@
+package com.sgi.account.infrastructure.feign;
+
+import com.sgi.account.infrastructure.config.DownstreamClientProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency benchmark of hedged GETs against a local HTTP server where one response in fifty is slow,
+ * as when a single pod of the downstream service stalls. Compares the p99 latency with and without
+ * hedging. It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HedgingLatencyBenchmarkTest {
+
+    private static final int REQUESTS = 5_000;
+    private static final int CONCURRENCY = 8;
+    private static final int SLOW_EVERY = 50;
+    private static final Duration SLOW_RESPONSE = Duration.ofMillis(300);
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private DisposableServer server;
+
+    @BeforeEach
+    void setup() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/customer/v1/customers/{id}", (request, response) -> {
+                    Mono<String> body = Mono.just("{\"id\":\"" + request.param("id") + "\"}");
+                    return response.sendString(calls.incrementAndGet() % SLOW_EVERY == 0
+                            ? body.delayElement(SLOW_RESPONSE) : body);
+                }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void getMono_shouldReduceTheTailLatencyWithHedging() {
+        long baseline = measureP99(false);
+        long hedged = measureP99(true);
+
+        log.info("Customer GET p99: baseline {} ms, hedged {} ms", baseline, hedged);
+        assertTrue(hedged < baseline);
+    }
+
+    private long measureP99(boolean hedging) {
+        DownstreamClientProperties.Downstream customer = new DownstreamClientProperties.Downstream();
+        customer.setUrl("http://localhost:" + server.port() + "/customer");
+        customer.setHedging(hedging);
+        DownstreamClientProperties properties = new DownstreamClientProperties();
+        properties.getConfig().put("customer-service", customer);
+        FeignExternalServiceImpl service = new FeignExternalServiceImpl(WebClient.builder(),
+                new ReactiveResilience4JCircuitBreakerFactory(CircuitBreakerRegistry.ofDefaults(),
+                        TimeLimiterRegistry.ofDefaults(), new Resilience4JConfigurationProperties()), properties);
+        try {
+            List<Long> latencies = Flux.range(0, REQUESTS)
+                    .flatMap(i -> Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        return service.getMono(customer.getUrl() + "/v1/customers/{id}", String.valueOf(i), String.class)
+                                .map(response -> (System.nanoTime() - start) / 1_000_000);
+                    }), CONCURRENCY)
+                    .skip(REQUESTS / 10)
+                    .sort()
+                    .collectList()
+                    .block();
+            return latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.sgi.account.infrastructure.outbox;
+
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
+import com.sgi.account.domain.ports.out.BankAccountRepository;
+import com.sgi.account.domain.ports.out.FeignExternalService;
+import com.sgi.account.domain.shared.CustomError;
+import com.sgi.account.helper.FactoryTest;
+import com.sgi.account.infrastructure.dto.TransactionRequest;
+import com.sgi.account.infrastructure.dto.TransactionResponse;
+import com.sgi.account.infrastructure.exception.CustomException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link TransactionOutboxRelay}.
+ * Verifies that pending postings are delivered in order with their idempotency keys
+ * and that only delivered postings are acknowledged, keeping the lease of an account whose delivery failed.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TransactionOutboxRelayTest {
+
+    @InjectMocks
+    private TransactionOutboxRelay relay;
+
+    @Mock
+    private BankAccountRepository bankAccountRepository;
+
+    @Mock
+    private FeignExternalService feignExternalService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(relay, "transactionServiceUrl", "localhost:8081/");
+    }
+
+    @Test
+    void drain_shouldDeliverAndAcknowledgePostings() {
+        BankAccount account = toAccountWithPostings("key-1", "key-2");
+        when(bankAccountRepository.claimPendingTransactions(anyInt(), any(Duration.class))).thenReturn(Flux.just(account));
+        when(feignExternalService.post(anyString(), anyString(), any(TransactionRequest.class), eq(TransactionResponse.class)))
+                .thenReturn(Mono.just(FactoryTest.toFactoryTransactionResponse(account.getId())));
+        when(bankAccountRepository.acknowledgePendingTransactions(account.getId(), List.of("key-1", "key-2"), true))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(relay.drain())
+                .verifyComplete();
+
+        verify(feignExternalService).post(anyString(), eq("key-1"), any(TransactionRequest.class), eq(TransactionResponse.class));
+        verify(feignExternalService).post(anyString(), eq("key-2"), any(TransactionRequest.class), eq(TransactionResponse.class));
+        verify(bankAccountRepository).acknowledgePendingTransactions(account.getId(), List.of("key-1", "key-2"), true);
+    }
+
+    @Test
+    void drain_shouldOnlyAcknowledgePostingsDeliveredBeforeAFailure() {
+        BankAccount account = toAccountWithPostings("key-1", "key-2");
+        when(bankAccountRepository.claimPendingTransactions(anyInt(), any(Duration.class))).thenReturn(Flux.just(account));
+        when(feignExternalService.post(anyString(), eq("key-1"), any(TransactionRequest.class), eq(TransactionResponse.class)))
+                .thenReturn(Mono.just(FactoryTest.toFactoryTransactionResponse(account.getId())));
+        when(feignExternalService.post(anyString(), eq("key-2"), any(TransactionRequest.class), eq(TransactionResponse.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)));
+        when(bankAccountRepository.acknowledgePendingTransactions(account.getId(), List.of("key-1"), false))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(relay.drain())
+                .verifyComplete();
+
+        verify(bankAccountRepository).acknowledgePendingTransactions(account.getId(), List.of("key-1"), false);
+    }
+
+    @Test
+    void drain_shouldKeepTheLeaseWhenNoPostingWasDelivered() {
+        BankAccount account = toAccountWithPostings("key-1", "key-2");
+        when(bankAccountRepository.claimPendingTransactions(anyInt(), any(Duration.class))).thenReturn(Flux.just(account));
+        when(feignExternalService.post(anyString(), eq("key-1"), any(TransactionRequest.class), eq(TransactionResponse.class)))
+                .thenReturn(Mono.error(new CustomException(CustomError.E_OPERATION_FAILED)));
+
+        StepVerifier.create(relay.drain())
+                .verifyComplete();
+
+        verify(feignExternalService, never()).post(anyString(), eq("key-2"), any(TransactionRequest.class), eq(TransactionResponse.class));
+        verify(bankAccountRepository, never()).acknowledgePendingTransactions(anyString(), anyList(), anyBoolean());
+    }
+
+    private static BankAccount toAccountWithPostings(String... idempotencyKeys) {
+        BankAccount account = FactoryTest.toFactoryEntityBankAccount();
+        account.setPendingTransactions(Arrays.stream(idempotencyKeys)
+                .map(key -> PendingTransaction.builder()
+                        .idempotencyKey(key)
+                        .type("DEPOSIT")
+                        .amount(BigDecimal.TEN)
+                        .commission(BigDecimal.ZERO)
+                        .balance(BigDecimal.TEN)
+                        .createdDate(Instant.now())
+                        .build())
+                .toList());
+        return account;
+    }
+}
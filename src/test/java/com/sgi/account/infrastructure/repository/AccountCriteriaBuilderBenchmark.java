@@ -0,0 +1,127 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.sgi.account.domain.model.AccountQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmark of the account filters on a seeded dataset of 100000 accounts of 1000 clients.
+ * Compares the union of the filters, as {@code findAllByClientIdOrTypeOrId} used to return, with the
+ * intersection built by {@link AccountCriteriaBuilder}; the sizes of both result sets are logged by the setup.
+ * The queries are evaluated in memory, so the figures cover building, matching and collecting the results,
+ * not the transfer from the database. It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountCriteriaBuilderBenchmark {
+
+    private static final List<String> TYPES = List.of("SAVINGS", "CHECKING", "FIXED_TERM");
+
+    private List<Document> accounts;
+    private AccountQuery accountQuery;
+
+    /**
+     * Seeds the accounts and logs the result set of both filters for a client's savings accounts.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        accounts = IntStream.range(0, 100_000)
+                .mapToObj(i -> new Document("id", "account-" + i)
+                        .append("clientId", "client-" + random.nextInt(1000))
+                        .append("type", TYPES.get(random.nextInt(TYPES.size())))
+                        .append("isActive", random.nextInt(10) > 0)
+                        .append("accountBalance", new Document("currency", random.nextBoolean() ? "PEN" : "USD")))
+                .toList();
+        accountQuery = AccountQuery.builder()
+                .clientId("client-7")
+                .type("SAVINGS")
+                .build();
+        log.info("Accounts matched: union {}, intersection {}", unionOfFilters().size(), intersectionOfFilters().size());
+    }
+
+    /**
+     * Filters the accounts with the union of the filters.
+     *
+     * @return the matching accounts
+     */
+    @Benchmark
+    public List<Document> unionOfFilters() {
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("clientId").is(accountQuery.getClientId()),
+                Criteria.where("type").is(accountQuery.getType()),
+                Criteria.where("id").is(accountQuery.getAccountId())));
+        return find(query);
+    }
+
+    @Benchmark
+    public List<Document> intersectionOfFilters() {
+        return find(AccountCriteriaBuilder.toQuery(accountQuery));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountCriteriaBuilderBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private List<Document> find(Query query) {
+        Document criteria = query.getQueryObject();
+        return accounts.stream()
+                .filter(account -> matches(criteria, account))
+                .toList();
+    }
+
+    /**
+     * Whether the account matches the criteria; only the operators produced by the filters are supported.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Document criteria, Document account) {
+        return criteria.entrySet().stream().allMatch(entry -> switch (entry.getKey()) {
+            case "$and" -> ((List<Document>) entry.getValue()).stream().allMatch(operand -> matches(operand, account));
+            case "$or" -> ((List<Document>) entry.getValue()).stream().anyMatch(operand -> matches(operand, account));
+            default -> entry.getValue() instanceof Document operator && operator.containsKey("$gt")
+                    ? Objects.toString(valueOf(account, entry.getKey()), "").compareTo((String) operator.get("$gt")) > 0
+                    : Objects.equals(valueOf(account, entry.getKey()), entry.getValue());
+        });
+    }
+
+    private static Object valueOf(Document account, String property) {
+        Object value = account;
+        for (String key : property.split("\\.")) {
+            value = value instanceof Document document ? document.get(key) : null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,47 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.sgi.account.domain.model.AccountQuery;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the {@link AccountCriteriaBuilder}.
+ * Verifies that only the filters that are set are applied, and that they are combined with AND.
+ */
+public class AccountCriteriaBuilderTest {
+
+    @Test
+    void toQuery_shouldMatchAllAccountsWithoutFilters() {
+        assertTrue(AccountCriteriaBuilder.toQuery(new AccountQuery()).getQueryObject().isEmpty());
+    }
+
+    @Test
+    void toQuery_shouldUseASingleFilterDirectly() {
+        Document query = AccountCriteriaBuilder.toQuery(AccountQuery.builder().type("SAVINGS").build()).getQueryObject();
+
+        assertEquals(new Document("type", "SAVINGS"), query);
+    }
+
+    @Test
+    void toQuery_shouldAndAllFiltersThatAreSet() {
+        Document query = AccountCriteriaBuilder.toQuery(AccountQuery.builder()
+                .clientId("client-test-0001")
+                .type("SAVINGS")
+                .isActive(true)
+                .currency("PEN")
+                .after("account-1")
+                .build()).getQueryObject();
+
+        assertEquals(new Document("$and", List.of(
+                new Document("clientId", "client-test-0001"),
+                new Document("type", "SAVINGS"),
+                new Document("isActive", true),
+                new Document("accountBalance.currency", "PEN"),
+                new Document("id", new Document("$gt", "account-1")))), query);
+    }
+}
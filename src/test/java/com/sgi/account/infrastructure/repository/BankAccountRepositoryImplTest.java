@@ -1,25 +1,60 @@
 package com.sgi.account.infrastructure.repository;
 
+import com.sgi.account.domain.model.AccountQuery;
 import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.PendingTransaction;
 import com.sgi.account.helper.FactoryTest;
 import com.sgi.account.infrastructure.dto.AccountResponse;
 import com.sgi.account.infrastructure.mapper.BankAccountMapper;
 import com.sgi.account.infrastructure.repository.impl.BankAccountRepositoryImpl;
+import com.sgi.account.infrastructure.exception.CustomException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.Decimal128;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +74,12 @@ public class BankAccountRepositoryImplTest {
     @Mock
     private BankAccountRepositoryJpa repositoryJpa;
 
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Test
     public void testSave() {
         BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
@@ -52,6 +93,27 @@ public class BankAccountRepositoryImplTest {
         verify(repositoryJpa, times(1)).save(bankAccount);
     }
 
+    @Test
+    public void testInsertAll_shouldReturnTheErrorOfEachDocumentNotInserted() {
+        ReactiveBulkOperations bulkOperations = mock(ReactiveBulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BankAccount.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(Mono.error(new DuplicateKeyException("bulk write failed",
+                new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                        List.of(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1),
+                                new BulkWriteError(121, "Document failed validation", new BsonDocument(), 2)),
+                        null, new ServerAddress(), Set.of()))));
+
+        StepVerifier.create(bankAccountRepository.insertAll(List.of(FactoryTest.toFactoryEntityBankAccount(),
+                        FactoryTest.toFactoryEntityBankAccount(), FactoryTest.toFactoryEntityBankAccount())))
+                .assertNext(errors -> {
+                    assertEquals(Set.of(1, 2), errors.keySet());
+                    assertInstanceOf(DuplicateKeyException.class, errors.get(1));
+                    assertFalse(errors.get(2) instanceof DuplicateKeyException);
+                })
+                .verifyComplete();
+    }
+
     @Test
     public void testSaveAll() {
         BankAccount bankAccount1 = FactoryTest.toFactoryEntityBankAccount();
@@ -81,20 +143,87 @@ public class BankAccountRepositoryImplTest {
         verify(repositoryJpa, times(1)).findById(accountId);
     }
 
+    @Test
+    public void testUpdateRetriesOnVersionConflict() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        when(repositoryJpa.findById(bankAccount.getId())).thenReturn(Mono.just(bankAccount));
+        when(repositoryJpa.save(bankAccount))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")), Mono.just(bankAccount));
+
+        Mono<BankAccount> result = bankAccountRepository.update(bankAccount.getId(), account -> {
+            account.setIsActive(false);
+            return account;
+        });
+        StepVerifier.create(result)
+                .expectNext(bankAccount)
+                .verifyComplete();
+
+        verify(repositoryJpa, times(2)).findById(bankAccount.getId());
+        assertEquals(1.0, meterRegistry.counter("bank.account.version.conflicts").count());
+        assertEquals(1.0, meterRegistry.counter("bank.account.version.retries").count());
+    }
+
+    @Test
+    public void testUpdateFailsWhenRetriesAreExhausted() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        ReflectionTestUtils.setField(bankAccountRepository, "maxRetries", 2L);
+        when(repositoryJpa.findById(bankAccount.getId())).thenReturn(Mono.just(bankAccount));
+        when(repositoryJpa.save(bankAccount)).thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")));
+
+        StepVerifier.create(bankAccountRepository.update(bankAccount.getId(), account -> account))
+                .expectError(CustomException.class)
+                .verify();
+
+        verify(repositoryJpa, times(3)).save(bankAccount);
+        assertEquals(3.0, meterRegistry.counter("bank.account.version.conflicts").count());
+    }
+
     @Test
     public void testFindAll() {
         BankAccount bankAccount1 = FactoryTest.toFactoryEntityBankAccount();
         BankAccount bankAccount2 = FactoryTest.toFactoryEntityBankAccount();
-        when(repositoryJpa.findAllByClientIdOrTypeOrId(anyString(), anyString(), anyString()))
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(BankAccount.class)))
                 .thenReturn(Flux.just(bankAccount1, bankAccount2));
-        Flux<AccountResponse> result = bankAccountRepository.findAll(anyString(), anyString(), anyString());
-        result.collectList().subscribe(responses -> {
-            assertNotNull(responses);
-            assertEquals(2, responses.size());
-        });
+        Flux<AccountResponse> result = bankAccountRepository.findAll(AccountQuery.builder()
+                .clientId(bankAccount1.getClientId())
+                .after(bankAccount1.getId())
+                .limit(2)
+                .fields(List.of("id", "balance"))
+                .build());
+        StepVerifier.create(result)
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(2, query.getValue().getLimit());
+        assertEquals(new Document("id", 1), query.getValue().getSortObject());
+        assertEquals(new Document("id", 1).append("accountBalance", 1), query.getValue().getFieldsObject());
+        assertNotNull(query.getValue().getQueryObject().get("$and"));
+    }
 
-        verify(repositoryJpa, times(1))
-                .findAllByClientIdOrTypeOrId(anyString(), anyString(), anyString());
+    @Test
+    public void testFindTypesById() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(BankAccount.class))).thenReturn(Flux.just(bankAccount));
+
+        StepVerifier.create(bankAccountRepository.findTypesById(List.of(bankAccount.getId(), "missing")))
+                .expectNext(bankAccount)
+                .verifyComplete();
+
+        assertEquals(new Document("id", new Document("$in", List.of(bankAccount.getId(), "missing"))),
+                query.getValue().getQueryObject());
+        assertEquals(new Document("type", 1), query.getValue().getFieldsObject());
+    }
+
+    @Test
+    public void testFindAll_RejectsUnknownField() {
+        StepVerifier.create(bankAccountRepository.findAll(AccountQuery.builder()
+                        .limit(10)
+                        .fields(List.of("pendingTransactions"))
+                        .build()))
+                .expectError(CustomException.class)
+                .verify();
     }
 
     @Test
@@ -108,10 +237,24 @@ public class BankAccountRepositoryImplTest {
         verify(repositoryJpa, times(1)).delete(bankAccount);
     }
 
+    @Test
+    public void testDeleteIfSettled() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.remove(query.capture(), eq(BankAccount.class))).thenReturn(Mono.just(DeleteResult.acknowledged(0)));
+
+        StepVerifier.create(bankAccountRepository.deleteIfSettled("account-1"))
+                .expectNext(false)
+                .verifyComplete();
+
+        Document filter = query.getValue().getQueryObject();
+        assertEquals(new Document("$exists", false), filter.get(PendingTransaction.FIELD + ".0"));
+        assertEquals(new Document("$exists", false), filter.get("pendingTransfers.0"));
+    }
+
     @Test
     public void testExistsByClientIdAndType() {
         String clientId = UUID.randomUUID().toString();
-        when(repositoryJpa.existsByClientIdAndType(clientId, "SAVINGS"))
+        when(mongoTemplate.exists(any(Query.class), eq(BankAccount.class)))
                 .thenReturn(Mono.just(true));
 
         Mono<Boolean> result = bankAccountRepository.existsByClientIdAndType(clientId, "SAVINGS");
@@ -119,7 +262,91 @@ public class BankAccountRepositoryImplTest {
                 .expectNext(true)
                 .verifyComplete();
 
-        verify(repositoryJpa, times(1)).existsByClientIdAndType(clientId, "SAVINGS");
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).exists(query.capture(), eq(BankAccount.class));
+        assertEquals(new Document("clientId", clientId).append("type", "SAVINGS"), query.getValue().getQueryObject());
+    }
+
+    @Test
+    public void testApplyMovement() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        PendingTransaction posting = PendingTransaction.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .type("WITHDRAWAL")
+                .amount(BigDecimal.TEN)
+                .commission(BigDecimal.ZERO)
+                .createdDate(Instant.now())
+                .build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        when(mongoTemplate.findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(BankAccount.class)))
+                .thenReturn(Mono.just(bankAccount));
+
+        Mono<BankAccount> result = bankAccountRepository.applyMovement(bankAccount.getId(), BigDecimal.TEN.negate(), BigDecimal.TEN,
+                null, posting);
+        StepVerifier.create(result)
+                .expectNext(bankAccount)
+                .verifyComplete();
+
+        Document criteria = query.getValue().getQueryObject();
+        assertEquals(bankAccount.getId(), criteria.get("id"));
+        assertEquals(new Document("$gte", new Decimal128(BigDecimal.TEN)), criteria.get("accountBalance.balance"));
+        assertFalse(criteria.containsKey("movementsUsed"));
+        List<Document> pipeline = update.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        Document changes = (Document) pipeline.get(0).get("$set");
+        assertEquals(new Document("$add", List.of("$accountBalance.balance", new Decimal128(BigDecimal.TEN.negate()))),
+                changes.get("accountBalance.balance"));
+        assertNotNull(changes.get("pendingTransactions"));
+    }
+
+    @Test
+    public void testApplyMovement_RequiresTheMovementsUsedItWasPricedWith() {
+        BankAccount bankAccount = FactoryTest.toFactoryEntityBankAccount();
+        PendingTransaction posting = PendingTransaction.builder()
+                .idempotencyKey(UUID.randomUUID().toString())
+                .type("DEPOSIT")
+                .amount(BigDecimal.TEN)
+                .commission(BigDecimal.ZERO)
+                .createdDate(Instant.now())
+                .build();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.findAndModify(query.capture(), any(AggregationUpdate.class), any(FindAndModifyOptions.class), eq(BankAccount.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(bankAccountRepository.applyMovement(bankAccount.getId(), BigDecimal.TEN, BigDecimal.TEN.negate(), 3, posting))
+                .verifyComplete();
+
+        assertEquals(3, query.getValue().getQueryObject().get("movementsUsed"));
+    }
+
+    @Test
+    public void testAcknowledgePendingTransactions() {
+        String accountId = UUID.randomUUID().toString();
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.updateFirst(any(Query.class), update.capture(), eq(BankAccount.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(bankAccountRepository.acknowledgePendingTransactions(accountId, List.of("key-1"), true))
+                .verifyComplete();
+
+        Document updateObject = update.getValue().getUpdateObject();
+        assertNotNull(updateObject.get("$pull"));
+        assertNotNull(updateObject.get("$unset"));
+    }
+
+    @Test
+    public void testAcknowledgePendingTransactions_KeepsTheLease() {
+        String accountId = UUID.randomUUID().toString();
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.updateFirst(any(Query.class), update.capture(), eq(BankAccount.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(bankAccountRepository.acknowledgePendingTransactions(accountId, List.of("key-1"), false))
+                .verifyComplete();
+
+        Document updateObject = update.getValue().getUpdateObject();
+        assertNotNull(updateObject.get("$pull"));
+        assertFalse(updateObject.containsKey("$unset"));
     }
 
 }
@@ -0,0 +1,111 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import com.sgi.account.domain.model.BankAccount;
+import com.sgi.account.domain.model.ClientProductCounter;
+import com.sgi.account.infrastructure.config.MigrationMarker;
+import com.sgi.account.infrastructure.repository.impl.ClientProductCounterRepositoryImpl;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link ClientProductCounterRepositoryImpl}.
+ * Verifies that a limited increment is guarded by the current count, that a lost race to create the
+ * counters is retried, that a rejected guard is reported as not counted, and that the stored accounts
+ * are counted until the counters are initialized.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ClientProductCounterRepositoryImplTest {
+
+    @InjectMocks
+    private ClientProductCounterRepositoryImpl clientProductCounterRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Test
+    void increment_shouldGuardTheUpsertWithTheLimit() {
+        givenCountersInitialized(true);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.upsert(query.capture(), any(Update.class), eq(ClientProductCounter.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(clientProductCounterRepository.increment("client-1", "SAVINGS", 1))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertEquals(new Document("$not", new Document("$gte", 1)),
+                query.getValue().getQueryObject().get("products.SAVINGS"));
+    }
+
+    @Test
+    void increment_shouldRetryWhenTheCountersWereCreatedConcurrently() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ClientProductCounter.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("_id_")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        StepVerifier.create(clientProductCounterRepository.increment("client-1", "CHECKING", null))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), any(Update.class), eq(ClientProductCounter.class));
+    }
+
+    @Test
+    void increment_shouldNotCountWhenTheClientReachedTheLimit() {
+        givenCountersInitialized(true);
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ClientProductCounter.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("_id_")));
+
+        StepVerifier.create(clientProductCounterRepository.increment("client-1", "SAVINGS", 1))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void increment_shouldCountTheStoredAccountsUntilTheCountersAreInitialized() {
+        givenCountersInitialized(false);
+        when(mongoTemplate.count(any(Query.class), eq(BankAccount.class))).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(clientProductCounterRepository.increment("client-1", "SAVINGS", 1))
+                .expectNext(false)
+                .verifyComplete();
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ClientProductCounter.class));
+    }
+
+    @Test
+    void increment_shouldCountAClientWithoutStoredAccountsBeforeTheCountersAreInitialized() {
+        givenCountersInitialized(false);
+        when(mongoTemplate.count(any(Query.class), eq(BankAccount.class))).thenReturn(Mono.just(0L));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ClientProductCounter.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(clientProductCounterRepository.increment("client-1", "SAVINGS", 1))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    private void givenCountersInitialized(boolean initialized) {
+        when(mongoTemplate.exists(any(Query.class), eq(MigrationMarker.COLLECTION))).thenReturn(Mono.just(initialized));
+    }
+}
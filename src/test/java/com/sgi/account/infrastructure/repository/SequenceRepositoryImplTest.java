@@ -0,0 +1,55 @@
+package com.sgi.account.infrastructure.repository;
+
+import com.sgi.account.domain.model.Sequence;
+import com.sgi.account.infrastructure.repository.impl.SequenceRepositoryImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link SequenceRepositoryImpl}.
+ * Verifies that a reservation returns the first value of the block and that a lost upsert race is retried.
+ */
+@ExtendWith(MockitoExtension.class)
+public class SequenceRepositoryImplTest {
+
+    @InjectMocks
+    private SequenceRepositoryImpl sequenceRepository;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Test
+    void reserve_shouldReturnTheFirstValueOfTheBlock() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Sequence.class)))
+                .thenReturn(Mono.just(new Sequence("accountNumber", 2000L)));
+
+        StepVerifier.create(sequenceRepository.reserve("accountNumber", 1000))
+                .expectNext(1001L)
+                .verifyComplete();
+    }
+
+    @Test
+    void reserve_shouldRetryWhenAnotherNodeCreatedTheSequence() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Sequence.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("_id_")))
+                .thenReturn(Mono.just(new Sequence("accountNumber", 2000L)));
+
+        StepVerifier.create(sequenceRepository.reserve("accountNumber", 1000))
+                .expectNext(1001L)
+                .verifyComplete();
+    }
+}
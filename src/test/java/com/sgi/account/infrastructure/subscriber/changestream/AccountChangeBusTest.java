@@ -0,0 +1,212 @@
+package com.sgi.account.infrastructure.subscriber.changestream;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.sgi.account.application.service.AccountChangeListener;
+import com.sgi.account.infrastructure.subscriber.events.AccountChangedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the {@link AccountChangeBus}.
+ * The change stream is served by an in-memory stand-in of a replica set, which keeps a bounded change
+ * history and resumes a stream from a token, to verify the delivery of the changes to every listener,
+ * the resumption after a failure without flushing the caches and the flush when the history is lost.
+ */
+@ExtendWith(MockitoExtension.class)
+public class AccountChangeBusTest {
+
+    @Mock
+    private AccountChangeListener balanceListener;
+
+    @Mock
+    private AccountChangeListener otherListener;
+
+    private ReplicaSetStandIn replicaSet;
+
+    private AccountChangeBus accountChangeBus;
+
+    @BeforeEach
+    void setup() {
+        replicaSet = new ReplicaSetStandIn();
+        accountChangeBus = new AccountChangeBus(replicaSet, List.of(balanceListener, otherListener));
+        ReflectionTestUtils.setField(accountChangeBus, "minBackoff", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(accountChangeBus, "maxBackoff", Duration.ofMillis(100));
+    }
+
+    @Test
+    void listen_shouldPublishEveryChangeToEveryListener() {
+        StepVerifier.create(accountChangeBus.listen())
+                .then(() -> replicaSet.update("account-1", 2L))
+                .then(() -> replicaSet.delete("account-2"))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        ArgumentCaptor<AccountChangedEvent> events = ArgumentCaptor.forClass(AccountChangedEvent.class);
+        verify(balanceListener, times(2)).onAccountChanged(events.capture());
+        assertEquals("account-1", events.getAllValues().get(0).getAccountId());
+        assertEquals(2L, events.getAllValues().get(0).getVersion());
+        assertTrue(events.getAllValues().get(1).isDeleted());
+        verify(otherListener, times(2)).onAccountChanged(any());
+        assertEquals(replicaSet.token(1), accountChangeBus.getResumeToken());
+    }
+
+    @Test
+    void listen_shouldKeepPublishingWhenAListenerFails() {
+        doThrow(new IllegalStateException("listener failure")).when(balanceListener).onAccountChanged(any());
+
+        StepVerifier.create(accountChangeBus.listen())
+                .then(() -> replicaSet.update("account-1", 2L))
+                .then(() -> replicaSet.update("account-1", 3L))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        verify(otherListener, times(2)).onAccountChanged(any());
+    }
+
+    @Test
+    void listen_shouldResumeAfterTheLastChangeWithoutFlushingTheCaches() {
+        StepVerifier.withVirtualTime(() -> accountChangeBus.listen())
+                .then(() -> replicaSet.update("account-1", 2L))
+                .expectNextMatches(event -> "account-1".equals(event.getAccountId()))
+                .then(() -> {
+                    replicaSet.stepDown();
+                    replicaSet.update("account-2", 7L);
+                    replicaSet.update("account-3", 4L);
+                })
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextMatches(event -> "account-2".equals(event.getAccountId()))
+                .expectNextMatches(event -> "account-3".equals(event.getAccountId()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(List.of(replicaSet.token(0)), replicaSet.resumedFrom);
+        verify(balanceListener, times(3)).onAccountChanged(any());
+        verify(balanceListener, never()).onChangesLost();
+    }
+
+    @Test
+    void listen_shouldFlushTheCachesWhenTheHistoryIsLost() {
+        StepVerifier.withVirtualTime(() -> accountChangeBus.listen())
+                .then(() -> replicaSet.update("account-1", 2L))
+                .expectNextCount(1)
+                .then(() -> {
+                    replicaSet.stepDown();
+                    replicaSet.update("account-2", 7L);
+                    replicaSet.rollOverHistory();
+                })
+                .thenAwait(Duration.ofSeconds(1))
+                .then(() -> replicaSet.update("account-3", 4L))
+                .expectNextMatches(event -> "account-3".equals(event.getAccountId()))
+                .thenCancel()
+                .verify();
+
+        verify(balanceListener).onChangesLost();
+        verify(otherListener).onChangesLost();
+        assertEquals(replicaSet.token(2), accountChangeBus.getResumeToken());
+    }
+
+    @Test
+    void listen_shouldFlushTheCachesWhenTheStreamFailsBeforeAnyChange() {
+        StepVerifier.withVirtualTime(() -> accountChangeBus.listen())
+                .then(replicaSet::stepDown)
+                .thenAwait(Duration.ofSeconds(1))
+                .then(() -> replicaSet.update("account-1", 2L))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        verify(balanceListener).onChangesLost();
+    }
+
+    /**
+     * In-memory stand-in of a replica set: keeps the change history, serves change streams resumed
+     * from a token and fails them like an election or a rolled over history would.
+     */
+    static class ReplicaSetStandIn implements BankAccountChangeSource {
+
+        private final List<AccountChangedEvent> history = new ArrayList<>();
+        private final List<BsonDocument> resumedFrom = new ArrayList<>();
+        private int firstAvailable;
+        private Sinks.Many<AccountChangedEvent> stream;
+
+        @Override
+        public synchronized Flux<AccountChangedEvent> listen(BsonDocument resumeToken) {
+            int from = history.size();
+            if (resumeToken != null) {
+                resumedFrom.add(resumeToken);
+                from = resumeToken.getInt64("_data").intValue() + 1;
+                if (from < firstAvailable) {
+                    return Flux.error(new MongoCommandException(new BsonDocument("ok", new BsonDouble(0))
+                            .append("code", new BsonInt32(286))
+                            .append("errmsg", new BsonString("resume point may no longer be in the oplog")),
+                            new ServerAddress()));
+                }
+            }
+            stream = Sinks.many().unicast().onBackpressureBuffer();
+            history.subList(from, history.size()).forEach(stream::tryEmitNext);
+            return stream.asFlux();
+        }
+
+        synchronized void update(String accountId, Long version) {
+            append(accountId, version, false);
+        }
+
+        synchronized void delete(String accountId) {
+            append(accountId, null, true);
+        }
+
+        synchronized void stepDown() {
+            if (stream != null) {
+                stream.tryEmitError(new MongoCommandException(new BsonDocument("ok", new BsonDouble(0))
+                        .append("code", new BsonInt32(91))
+                        .append("errmsg", new BsonString("interrupted due to repl state change")),
+                        new ServerAddress()));
+                stream = null;
+            }
+        }
+
+        synchronized void rollOverHistory() {
+            firstAvailable = history.size();
+        }
+
+        BsonDocument token(int position) {
+            return new BsonDocument("_data", new BsonInt64(position));
+        }
+
+        private void append(String accountId, Long version, boolean deleted) {
+            AccountChangedEvent event = new AccountChangedEvent(accountId, version, deleted, token(history.size()));
+            history.add(event);
+            if (stream != null) {
+                stream.tryEmitNext(event);
+            }
+        }
+    }
+}
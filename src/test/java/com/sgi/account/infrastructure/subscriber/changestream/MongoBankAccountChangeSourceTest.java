@@ -0,0 +1,68 @@
+package com.sgi.account.infrastructure.subscriber.changestream;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonArray;
+import org.bson.BsonDateTime;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link MongoBankAccountChangeSource}.
+ * Verifies that the updates written by the outbox claim and acknowledgement are recognised, so they do
+ * not evict cached balances, while any update of another field is still delivered.
+ */
+public class MongoBankAccountChangeSourceTest {
+
+    @Test
+    void isOutboxBookkeeping_shouldRecogniseTheClaimOfTheOutbox() {
+        assertTrue(MongoBankAccountChangeSource.isOutboxBookkeeping(update(List.of(), new BsonDocument()
+                .append("outboxLeaseUntil", new BsonDateTime(1_000L))
+                .append("version", new BsonInt64(3)))));
+    }
+
+    @Test
+    void isOutboxBookkeeping_shouldRecogniseTheAcknowledgementOfTheOutbox() {
+        assertTrue(MongoBankAccountChangeSource.isOutboxBookkeeping(update(List.of("outboxLeaseUntil"), new BsonDocument()
+                .append("pendingTransactions", new BsonArray())
+                .append("version", new BsonInt64(4)))));
+    }
+
+    @Test
+    void isOutboxBookkeeping_shouldDeliverUpdatesOfTheBalance() {
+        assertFalse(MongoBankAccountChangeSource.isOutboxBookkeeping(update(List.of(), new BsonDocument()
+                .append("accountBalance.balance", new BsonDecimal128(Decimal128.parse("10")))
+                .append("pendingTransactions.0", new BsonDocument())
+                .append("version", new BsonInt64(5)))));
+    }
+
+    @Test
+    void isOutboxBookkeeping_shouldDeliverReplacements() {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(OperationType.REPLACE);
+
+        assertFalse(MongoBankAccountChangeSource.isOutboxBookkeeping(change));
+    }
+
+    private static ChangeStreamDocument<Document> update(List<String> removedFields, BsonDocument updatedFields) {
+        UpdateDescription description = mock(UpdateDescription.class);
+        when(description.getRemovedFields()).thenReturn(removedFields);
+        when(description.getUpdatedFields()).thenReturn(updatedFields);
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(OperationType.UPDATE);
+        when(change.getUpdateDescription()).thenReturn(description);
+        return change;
+    }
+}
@@ -0,0 +1,137 @@
+package com.sgi.account.infrastructure.subscriber.listener;
+
+import com.sgi.account.application.service.EventHandleService;
+import com.sgi.account.infrastructure.subscriber.events.BankAccountEvent;
+import com.sgi.account.infrastructure.subscriber.events.BankAccountExistEvent;
+import com.sgi.account.infrastructure.subscriber.message.EventSender;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link TopicListenerAccount}.
+ * Verifies that a poll is validated with a single lookup, that the responses are produced for every
+ * valid request, and that offsets are only committed once the responses of their partition are produced.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TopicListenerAccountTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition(BankAccountEvent.TOPIC, 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition(BankAccountEvent.TOPIC, 1);
+
+    @InjectMocks
+    private TopicListenerAccount topicListenerAccount;
+
+    @Mock
+    private KafkaReceiver<String, String> bankAccountEventReceiver;
+
+    @Mock
+    private EventHandleService eventHandleService;
+
+    @Mock
+    private EventSender eventSender;
+
+    @Test
+    void listen_shouldValidateThePollOnceAndCommitAfterProducing() {
+        ReceiverRecord<String, String> first = toRecord(PARTITION_0, 0, "{\"bootcoinId\":\"b-1\",\"accountId\":\"account-1\"}");
+        ReceiverRecord<String, String> invalid = toRecord(PARTITION_0, 1, "not json");
+        ReceiverRecord<String, String> second = toRecord(PARTITION_1, 0, "{\"bootcoinId\":\"b-2\",\"accountId\":\"account-2\"}");
+        when(bankAccountEventReceiver.receiveBatch()).thenReturn(Flux.just(Flux.just(first, invalid, second)));
+        when(eventHandleService.validateExistBankAccounts(any()))
+                .thenReturn(Mono.just(Map.of("account-1", true, "account-2", false)));
+        when(eventSender.sendEvent(eq(BankAccountExistEvent.TOPIC), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(topicListenerAccount.listen())
+                .verifyComplete();
+
+        verify(eventHandleService, times(1)).validateExistBankAccounts(
+                argThat((Collection<String> ids) -> ids.size() == 2 && ids.containsAll(List.of("account-1", "account-2"))));
+        ArgumentCaptor<Object> responses = ArgumentCaptor.forClass(Object.class);
+        verify(eventSender, times(2)).sendEvent(eq(BankAccountExistEvent.TOPIC), any(), responses.capture());
+        assertEquals(Map.of("account-1", true, "account-2", false), responses.getAllValues().stream()
+                .map(BankAccountExistEvent.class::cast)
+                .collect(Collectors.toMap(BankAccountExistEvent::getAccountId, BankAccountExistEvent::getExist)));
+        verify(first.receiverOffset(), never()).commit();
+        verify(invalid.receiverOffset()).commit();
+        verify(second.receiverOffset()).commit();
+        InOrder inOrder = inOrder(eventSender, invalid.receiverOffset());
+        inOrder.verify(eventSender).sendEvent(eq(BankAccountExistEvent.TOPIC), eq("account-1"), argThat(response ->
+                "account-1".equals(((BankAccountExistEvent) response).getAccountId())));
+        inOrder.verify(invalid.receiverOffset()).commit();
+    }
+
+    @Test
+    void listen_shouldNotCommitWhenAResponseFails() {
+        ReceiverRecord<String, String> record = toRecord(PARTITION_0, 0, "{\"bootcoinId\":\"b-1\",\"accountId\":\"account-1\"}");
+        when(bankAccountEventReceiver.receiveBatch()).thenReturn(Flux.just(Flux.just(record)));
+        when(eventHandleService.validateExistBankAccounts(any())).thenReturn(Mono.just(Map.of("account-1", true)));
+        when(eventSender.sendEvent(eq(BankAccountExistEvent.TOPIC), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("broker unavailable")));
+
+        StepVerifier.withVirtualTime(() -> topicListenerAccount.listen())
+                .thenAwait(Duration.ofMillis(500))
+                .thenCancel()
+                .verify();
+
+        verify(record.receiverOffset(), never()).commit();
+    }
+
+    @Test
+    void listen_shouldCommitEveryPartitionOfAPollWithMorePartitionsThanTheConcurrency() {
+        ReflectionTestUtils.setField(topicListenerAccount, "concurrency", 2);
+        List<ReceiverRecord<String, String>> records = IntStream.range(0, 300)
+                .mapToObj(offset -> toRecord(new TopicPartition(BankAccountEvent.TOPIC, offset % 5), offset / 5,
+                        "{\"bootcoinId\":\"b-" + offset + "\",\"accountId\":\"account-" + offset + "\"}"))
+                .toList();
+        when(bankAccountEventReceiver.receiveBatch()).thenReturn(Flux.just(Flux.fromIterable(records)));
+        when(eventHandleService.validateExistBankAccounts(any())).thenReturn(Mono.just(Map.of()));
+        when(eventSender.sendEvent(eq(BankAccountExistEvent.TOPIC), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(topicListenerAccount.listen())
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(eventSender, times(300)).sendEvent(eq(BankAccountExistEvent.TOPIC), any(), any());
+        records.subList(295, 300).forEach(record -> verify(record.receiverOffset()).commit());
+    }
+
+    private static ReceiverRecord<String, String> toRecord(TopicPartition partition, long offset, String value) {
+        ReceiverOffset receiverOffset = mock(ReceiverOffset.class);
+        when(receiverOffset.topicPartition()).thenReturn(partition);
+        lenient().when(receiverOffset.commit()).thenReturn(Mono.empty());
+        return new ReceiverRecord<>(new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null, value),
+                receiverOffset);
+    }
+}
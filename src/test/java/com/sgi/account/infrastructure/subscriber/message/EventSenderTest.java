@@ -0,0 +1,72 @@
+package com.sgi.account.infrastructure.subscriber.message;
+
+import com.sgi.account.infrastructure.subscriber.events.BankAccountExistEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.sgi.account.infrastructure.mapper.ObjectMappers.OBJECT_MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the {@link EventSender}.
+ * Verifies that events are sent keyed and serialized to JSON bytes, and that the returned
+ * Mono follows the acknowledgement of the broker.
+ */
+@ExtendWith(MockitoExtension.class)
+public class EventSenderTest {
+
+    @InjectMocks
+    private EventSender eventSender;
+
+    @Mock
+    private KafkaSender<String, byte[]> kafkaSender;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendEvent_shouldSendAKeyedJsonRecordAndCompleteOnAck() throws Exception {
+        BankAccountExistEvent event = BankAccountExistEvent.builder()
+                .accountId("account-1")
+                .bootcoinId("bootcoin-1")
+                .exist(true)
+                .build();
+        ArgumentCaptor<Publisher<SenderRecord<String, byte[], String>>> records = ArgumentCaptor.forClass(Publisher.class);
+        SenderResult<String> ack = mock(SenderResult.class);
+        when(kafkaSender.send(records.capture())).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(eventSender.sendEvent(BankAccountExistEvent.TOPIC, "account-1", event))
+                .verifyComplete();
+
+        SenderRecord<String, byte[], String> record = Mono.from(records.getValue()).block();
+        assertEquals(BankAccountExistEvent.TOPIC, record.topic());
+        assertEquals("account-1", record.key());
+        assertEquals(OBJECT_MAPPER.writeValueAsString(event), new String(record.value(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sendEvent_shouldFailWhenTheBrokerRejectsTheRecord() {
+        when(kafkaSender.send(any())).thenReturn(Flux.error(new IllegalStateException("not enough replicas")));
+
+        StepVerifier.create(eventSender.sendEvent(BankAccountExistEvent.TOPIC, "account-1",
+                        BankAccountExistEvent.builder().accountId("account-1").build()))
+                .expectError(IllegalStateException.class)
+                .verify();
+        verify(kafkaSender).send(any());
+    }
+}
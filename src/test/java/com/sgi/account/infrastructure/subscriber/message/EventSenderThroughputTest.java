@@ -0,0 +1,70 @@
+package com.sgi.account.infrastructure.subscriber.message;
+
+import com.sgi.account.infrastructure.subscriber.events.BankAccountExistEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import reactor.core.publisher.Flux;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput benchmark of the {@link EventSender} against an embedded broker.
+ * Compares the tuned producer (lz4, linger, batching, pipelined sends) with sending one event at a
+ * time with the client defaults. It is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EmbeddedKafka(partitions = 6, topics = BankAccountExistEvent.TOPIC)
+public class EventSenderThroughputTest {
+
+    private static final int EVENTS = 100_000;
+
+    @Test
+    void sendEvent_shouldSendFasterWithBatchingAndPipelining(EmbeddedKafkaBroker broker) {
+        double baseline = measure(broker, Map.of(), 1);
+        double tuned = measure(broker, Map.of(
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.BATCH_SIZE_CONFIG, 65536), 1024);
+
+        log.info("EventSender throughput: baseline {} events/s, tuned {} events/s", (long) baseline, (long) tuned);
+        assertTrue(tuned > baseline);
+    }
+
+    private static double measure(EmbeddedKafkaBroker broker, Map<String, Object> tuning, int concurrency) {
+        Map<String, Object> properties = new HashMap<>(tuning);
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        properties.put(ProducerConfig.ACKS_CONFIG, "all");
+        KafkaSender<String, byte[]> kafkaSender = KafkaSender.create(SenderOptions.<String, byte[]>create(properties)
+                .maxInFlight(concurrency));
+        try {
+            EventSender eventSender = new EventSender(kafkaSender);
+            long start = System.nanoTime();
+            Flux.range(0, EVENTS)
+                    .flatMap(i -> eventSender.sendEvent(BankAccountExistEvent.TOPIC, "account-" + (i % 1000),
+                            BankAccountExistEvent.builder()
+                                    .accountId("account-" + (i % 1000))
+                                    .bootcoinId("bootcoin-" + i)
+                                    .exist(i % 2 == 0)
+                                    .build()), concurrency)
+                    .blockLast();
+            return EVENTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            kafkaSender.close();
+        }
+    }
+}